@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks calculating {@link MD5Key}s for data of different sizes, and
+ * using the keys as hash keys.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MD5KeyBenchmark {
+
+	/** The size of the data to hash in bytes. */
+	@Param({"1024", "65536", "1048576"})
+	public int size;
+
+	/** The data to hash. */
+	private byte[] data;
+
+	/** The key for the data. */
+	private MD5Key key;
+
+	/** The string form of the key. */
+	private String keyString;
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		new Random(1).nextBytes(data);
+		key = new MD5Key(data);
+		keyString = key.toString();
+	}
+
+	@Benchmark
+	public MD5Key fromBytes() {
+		return new MD5Key(data);
+	}
+
+	@Benchmark
+	public MD5Key fromStream() throws IOException {
+		return new MD5Key(new ByteArrayInputStream(data));
+	}
+
+	@Benchmark
+	public MD5Key fromString() {
+		return MD5Key.fromString(keyString);
+	}
+
+	@Benchmark
+	public int keyHashCode() {
+		return key.hashCode();
+	}
+
+	@Benchmark
+	public boolean keyEquals() {
+		return key.equals(MD5Key.fromString(keyString));
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks hashing a directory of assets with {@link MD5Key#computeAll(java.util.Collection, int)}
+ * using different numbers of threads, against reading and hashing each file in
+ * turn as campaign loading did. The assets are 3,000 files of between 1KB and
+ * 128KB, written once so they are in the page cache. The sequential benchmark
+ * does not use the parallelism parameter so it only needs to be looked at once.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MD5KeyBulkBenchmark {
+
+	/** The number of asset files. */
+	private static final int FILES = 3000;
+
+	/** The maximum number of files hashed at once. */
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	/** The directory holding the assets. */
+	private Path directory;
+
+	/** The asset files. */
+	private List<Path> files;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("md5assets");
+		files = new ArrayList<>(FILES);
+		Random random = new Random(1);
+		for (int i = 0; i < FILES; i++) {
+			byte[] data = new byte[1024 + random.nextInt(127 * 1024)];
+			random.nextBytes(data);
+			files.add(Files.write(directory.resolve("asset" + i), data));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (DirectoryStream<Path> dir = Files.newDirectoryStream(directory)) {
+			for (Path file : dir) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public Map<Path, MD5Key> computeAll() throws IOException {
+		return MD5Key.computeAll(files, parallelism);
+	}
+
+	@Benchmark
+	public Map<Path, MD5Key> sequentialBytes() throws IOException {
+		Map<Path, MD5Key> keys = new HashMap<>();
+		for (Path file : files) {
+			keys.put(file, new MD5Key(Files.readAllBytes(file)));
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks hashing large files with {@link MD5Key#fromPath(Path)}, which
+ * memory maps the file, against reading the file through
+ * {@link MD5Key#MD5Key(InputStream)} and through a direct buffer. The file is
+ * written once and read repeatedly so it will be in the page cache; this
+ * measures the cost of getting the bytes to the digest, not the disk.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class MD5KeyFileBenchmark {
+
+	/** The size of the file in megabytes. */
+	@Param({"256", "512"})
+	public int megabytes;
+
+	/** The file to hash. */
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Files.createTempFile("md5key", ".bin");
+		Random random = new Random(1);
+		byte[] block = new byte[1024 * 1024];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			for (int i = 0; i < megabytes; i++) {
+				random.nextBytes(block);
+				channel.write(ByteBuffer.wrap(block));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public MD5Key stream() throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return new MD5Key(in);
+		}
+	}
+
+	@Benchmark
+	public MD5Key mapped() throws IOException {
+		return MD5Key.fromPath(file);
+	}
+
+	@Benchmark
+	public MD5Key directBuffer() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) Files.size(file));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Keep reading until the buffer is full.
+			}
+		}
+		buffer.flip();
+		return MD5Key.fromBuffer(buffer);
+	}
+}
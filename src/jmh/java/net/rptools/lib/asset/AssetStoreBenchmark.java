@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.asset;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.rptools.lib.MD5Key;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks adding 100,000 small assets of between 512 bytes and 4KB to an
+ * {@link AssetStore}, reading them all back, and opening a store holding them.
+ * Each iteration of the put benchmark starts with an empty store.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssetStoreBenchmark {
+
+	/** The number of assets. */
+	private static final int ASSETS = 100000;
+
+	/** The assets to store. */
+	@State(Scope.Benchmark)
+	public static class Assets {
+
+		/** The data of the assets. */
+		byte[][] data;
+
+		/** The keys of the assets. */
+		MD5Key[] keys;
+
+		@Setup
+		public void setup() {
+			Random random = new Random(1);
+			data = new byte[ASSETS][];
+			keys = new MD5Key[ASSETS];
+			for (int i = 0; i < ASSETS; i++) {
+				data[i] = new byte[512 + random.nextInt(3584)];
+				random.nextBytes(data[i]);
+				keys[i] = new MD5Key(data[i]);
+			}
+		}
+	}
+
+	/** An empty store, created for each iteration. */
+	@State(Scope.Thread)
+	public static class EmptyStore {
+
+		/** The directory of the store. */
+		Path dir;
+
+		/** The store. */
+		AssetStore store;
+
+		@Setup(Level.Iteration)
+		public void setup() throws IOException {
+			dir = Files.createTempDirectory("assetstore");
+			store = new AssetStore(dir);
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() throws IOException {
+			store.close();
+			delete(dir);
+		}
+	}
+
+	/** A store holding all of the assets. */
+	@State(Scope.Benchmark)
+	public static class FullStore {
+
+		/** The directory of the store. */
+		Path dir;
+
+		/** The store. */
+		AssetStore store;
+
+		@Setup
+		public void setup(Assets assets) throws IOException {
+			dir = Files.createTempDirectory("assetstore");
+			store = new AssetStore(dir);
+			for (byte[] data : assets.data) {
+				store.put(data);
+			}
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			store.close();
+			delete(dir);
+		}
+	}
+
+	/**
+	 * Deletes a directory and everything in it.
+	 *
+	 * @param dir The directory to delete.
+	 *
+	 * @throws IOException if an error occurs deleting the files.
+	 */
+	static void delete(Path dir) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+				Files.delete(d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	@Benchmark
+	public void putAll(Assets assets, EmptyStore empty, Blackhole bh) throws IOException {
+		for (byte[] data : assets.data) {
+			bh.consume(empty.store.put(data));
+		}
+	}
+
+	@Benchmark
+	public void putAllAgain(Assets assets, FullStore full, Blackhole bh) throws IOException {
+		for (byte[] data : assets.data) {
+			bh.consume(full.store.put(data));
+		}
+	}
+
+	@Benchmark
+	public void getAll(Assets assets, FullStore full, Blackhole bh) throws IOException {
+		for (MD5Key key : assets.keys) {
+			bh.consume(full.store.get(key));
+		}
+	}
+
+	@Benchmark
+	public int open(FullStore full) throws IOException {
+		try (AssetStore store = new AssetStore(full.dir)) {
+			return store.count();
+		}
+	}
+}
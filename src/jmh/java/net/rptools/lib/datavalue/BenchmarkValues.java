@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Typical values of each {@link DataType} used as operands by the benchmarks.
+ *
+ */
+final class BenchmarkValues {
+
+	/** The data types that values can be created for, {@link DataType#ANY} is not included. */
+	static final DataType[] TYPES = {
+		DataType.LONG, DataType.DOUBLE, DataType.STRING, DataType.LIST,
+		DataType.DICTIONARY, DataType.RESULT, DataType.BOOLEAN, DataType.NULL
+	};
+
+	/**
+	 * Private constructor as this class only has static methods.
+	 */
+	private BenchmarkValues() {
+	}
+
+	/**
+	 * Returns a typical value of the specified type. Strings hold a number so
+	 * they can be coerced to the numeric types.
+	 *
+	 * @param type The type of the value.
+	 *
+	 * @return the value.
+	 */
+	static DataValue sample(DataType type) {
+		switch (type) {
+			case LONG:
+				return DataValueFactory.longValue(7);
+			case DOUBLE:
+				return DataValueFactory.doubleValue(3.5);
+			case STRING:
+				return DataValueFactory.stringValue("12");
+			case LIST:
+				return DataValueFactory.listValue(longs(4));
+			case DICTIONARY:
+				return DataValueFactory.dictionaryValue(dictionary(4));
+			case RESULT:
+				return DataValueFactory.longValue(7).asResultValue();
+			case BOOLEAN:
+				return DataValueFactory.booleanValue(true);
+			case NULL:
+				return DataValueFactory.nullDataValue();
+			default:
+				throw new IllegalArgumentException("No sample value for " + type);
+		}
+	}
+
+	/**
+	 * Returns a new list of long values from 0 to size - 1.
+	 *
+	 * @param size The number of values.
+	 *
+	 * @return the list of values.
+	 */
+	static List<DataValue> longs(int size) {
+		List<DataValue> vals = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			vals.add(DataValueFactory.longValue(i));
+		}
+		return vals;
+	}
+
+	/**
+	 * Returns a new map of keys "key0" to "key(size - 1)" mapped to long values.
+	 *
+	 * @param size The number of entries.
+	 *
+	 * @return the map.
+	 */
+	static Map<String, DataValue> dictionary(int size) {
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			vals.put("key" + i, DataValueFactory.longValue(i));
+		}
+		return vals;
+	}
+
+	/**
+	 * Returns a list of token property dictionaries, the same for each call
+	 * with the same count.
+	 *
+	 * @param count The number of tokens.
+	 *
+	 * @return the list of tokens.
+	 */
+	static DataValue tokens(int count) {
+		Random random = new Random(1);
+		List<DataValue> lst = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Map<String, DataValue> token = new LinkedHashMap<>();
+			token.put("name", DataValueFactory.stringValue("Goblin " + i));
+			token.put("hp", DataValueFactory.longValue(random.nextInt(40)));
+			token.put("maxHp", DataValueFactory.longValue(40));
+			token.put("ac", DataValueFactory.longValue(10 + random.nextInt(8)));
+			token.put("speed", DataValueFactory.doubleValue(7.5));
+			token.put("notes", DataValueFactory.stringValue("Carries a rusty dagger and " + i + " copper pieces."));
+			long[] rolls = new long[10];
+			for (int j = 0; j < rolls.length; j++) {
+				rolls[j] = random.nextInt(20) + 1;
+			}
+			token.put("rolls", DataValueFactory.longListValue(rolls));
+			Map<String, DataValue> stats = new LinkedHashMap<>();
+			for (String stat : new String[] { "str", "dex", "con", "int", "wis", "cha" }) {
+				stats.put(stat, DataValueFactory.longValue(3 + random.nextInt(16)));
+			}
+			token.put("stats", DataValueFactory.dictionaryValue(stats));
+			token.put("hostile", DataValueFactory.booleanValue(true));
+			lst.add(DataValueFactory.dictionaryValue(token));
+		}
+		return DataValueFactory.listValue(lst);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link DataType#coerce(DataValue)} from each type to each type.
+ * Conversions that are not possible measure the cost of raising the error.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoerceBenchmark {
+
+	/** The type of the value to coerce. */
+	@Param({"LONG", "DOUBLE", "STRING", "LIST", "DICTIONARY", "RESULT", "BOOLEAN", "NULL"})
+	public DataType from;
+
+	/** The type to coerce the value to. */
+	@Param({"LONG", "DOUBLE", "STRING", "LIST", "DICTIONARY", "RESULT", "BOOLEAN", "ANY", "NULL"})
+	public DataType to;
+
+	/** The value to coerce. */
+	private DataValue value;
+
+	@Setup
+	public void setup() {
+		value = BenchmarkValues.sample(from);
+	}
+
+	@Benchmark
+	public Object coerce() {
+		try {
+			return to.coerce(value);
+		} catch (UnsupportedOperationException | NumberFormatException e) {
+			return e;
+		}
+	}
+}
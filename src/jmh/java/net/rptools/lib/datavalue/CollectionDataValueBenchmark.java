@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the construction and comparison of list and dictionary values.
+ * The equality benchmarks compare two separately built values holding equal
+ * contents so neither can short cut on identity.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollectionDataValueBenchmark {
+
+	/** The number of values in the list or dictionary. */
+	@Param({"4", "64", "1024"})
+	public int size;
+
+	/** The values used to build lists. */
+	private List<DataValue> values;
+
+	/** The values as primitive longs. */
+	private long[] longs;
+
+	/** The entries used to build dictionaries. */
+	private Map<String, DataValue> entries;
+
+	/** A list holding {@link #values}. */
+	private DataValue list1;
+
+	/** A second list holding {@link #values}. */
+	private DataValue list2;
+
+	/** A dictionary holding {@link #entries}. */
+	private DataValue dict1;
+
+	/** A second dictionary holding {@link #entries}. */
+	private DataValue dict2;
+
+	@Setup
+	public void setup() {
+		values = BenchmarkValues.longs(size);
+		entries = BenchmarkValues.dictionary(size);
+		longs = new long[size];
+		for (int i = 0; i < size; i++) {
+			longs[i] = i;
+		}
+		list1 = DataValueFactory.listValue(values);
+		list2 = DataValueFactory.listValue(BenchmarkValues.longs(size));
+		dict1 = DataValueFactory.dictionaryValue(entries);
+		dict2 = DataValueFactory.dictionaryValue(BenchmarkValues.dictionary(size));
+	}
+
+	@Benchmark
+	public DataValue listFromCollection() {
+		return DataValueFactory.listValue(values);
+	}
+
+	@Benchmark
+	public DataValue listFromBuilder() {
+		ListDataValue.Builder builder = new ListDataValue.Builder(size);
+		for (int i = 0; i < size; i++) {
+			builder.add(DataValueFactory.longValue(i));
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public DataValue listFromLongArray() {
+		return DataValueFactory.longListValue(longs);
+	}
+
+	@Benchmark
+	public boolean listEquals() {
+		return list1.equals(list2);
+	}
+
+	@Benchmark
+	public DataValue dictionaryFromMap() {
+		return DataValueFactory.dictionaryValue(entries);
+	}
+
+	@Benchmark
+	public DataValue dictionaryFromBuilder() {
+		DictionaryDataValue.Builder builder = new DictionaryDataValue.Builder();
+		for (Map.Entry<String, DataValue> entry : entries.entrySet()) {
+			builder.put(entry.getKey(), entry.getValue());
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public boolean dictionaryEquals() {
+		return dict1.equals(dict2);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing and reading a list of 50 token property dictionaries with
+ * {@link DataValueOutput} and {@link DataValueInput}, against Java
+ * serialization of the same data held in standard collections, as DataValues
+ * are not Serializable, and against UTF-8 JSON with {@link DataValueJsonWriter}
+ * and {@link DataValueJsonReader}. Each benchmark counts the bytes it writes
+ * or reads with a {@link ByteCounter}, so the sizes of the binary, serialized
+ * and JSON forms can be compared.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataValueCodecBenchmark {
+
+	/** The tokens as a DataValue. */
+	private DataValue tokens;
+
+	/** The tokens held in standard collections. */
+	private Object plainTokens;
+
+	/** The binary form of the tokens. */
+	private byte[] binary;
+
+	/** The Java serialized form of the tokens. */
+	private byte[] serialized;
+
+	/** The UTF-8 JSON form of the tokens. */
+	private byte[] json;
+
+	/** Reused to collect the written bytes. */
+	private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+	@Setup
+	public void setup() throws IOException {
+		tokens = BenchmarkValues.tokens(50);
+		plainTokens = plain(tokens);
+		binary = DataValueOutput.toBytes(tokens);
+		serialized = javaWrite(new ByteCounter());
+		json = jsonWrite(new ByteCounter());
+	}
+
+	/**
+	 * Returns the value held in standard Java collections and boxed primitives.
+	 *
+	 * @param dv The value.
+	 *
+	 * @return the value as standard Java objects.
+	 */
+	private static Object plain(DataValue dv) {
+		switch (dv.dataType()) {
+			case LONG:
+				return dv.asLong();
+			case DOUBLE:
+				return dv.asDouble();
+			case BOOLEAN:
+				return dv.asBoolean();
+			case LIST:
+				ArrayList<Object> lst = new ArrayList<>();
+				for (DataValue v : dv.asList()) {
+					lst.add(plain(v));
+				}
+				return lst;
+			case DICTIONARY:
+				LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+				for (Map.Entry<String, DataValue> entry : dv.asDictionary().entrySet()) {
+					map.put(entry.getKey(), plain(entry.getValue()));
+				}
+				return map;
+			default:
+				return dv.asString();
+		}
+	}
+
+	@Benchmark
+	public byte[] binaryWrite(ByteCounter counter) throws IOException {
+		bytes.reset();
+		DataValueOutput output = new DataValueOutput(bytes);
+		output.write(tokens);
+		output.flush();
+		counter.bytes += bytes.size();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public DataValue binaryRead(ByteCounter counter) throws IOException {
+		counter.bytes += binary.length;
+		return DataValueInput.fromBytes(binary);
+	}
+
+	@Benchmark
+	public byte[] javaWrite(ByteCounter counter) throws IOException {
+		bytes.reset();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(plainTokens);
+		}
+		counter.bytes += bytes.size();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public Object javaRead(ByteCounter counter) throws IOException, ClassNotFoundException {
+		counter.bytes += serialized.length;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return in.readObject();
+		}
+	}
+
+	@Benchmark
+	public byte[] jsonWrite(ByteCounter counter) throws IOException {
+		bytes.reset();
+		DataValueJsonWriter writer = new DataValueJsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+		writer.write(tokens);
+		writer.flush();
+		counter.bytes += bytes.size();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public DataValue jsonRead(ByteCounter counter) throws IOException {
+		counter.bytes += json.length;
+		return new DataValueJsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)).read();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the creation of numeric DataValues through {@link DataValueFactory},
+ * which returns small values from a cache, against allocating a new DataValue
+ * for every value. The GC profiler output shows the difference in allocation.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataValueFactoryBenchmark {
+
+	/** The number of values created per benchmark invocation. */
+	private static final int COUNT = 1024;
+
+	/** Typical die faces and modifiers. */
+	private long[] longs;
+
+	/** Typical halved and whole floating point values. */
+	private double[] doubles;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		longs = new long[COUNT];
+		doubles = new double[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			longs[i] = random.nextInt(20) + 1;
+			doubles[i] = (random.nextInt(20) + 1) / 2.0;
+		}
+	}
+
+	@Benchmark
+	public void longValueCached(Blackhole bh) {
+		for (long l : longs) {
+			bh.consume(DataValueFactory.longValue(l));
+		}
+	}
+
+	@Benchmark
+	public void longValueUncached(Blackhole bh) {
+		for (long l : longs) {
+			bh.consume(new LongDataValue(l));
+		}
+	}
+
+	@Benchmark
+	public void doubleValueCached(Blackhole bh) {
+		for (double d : doubles) {
+			bh.consume(DataValueFactory.doubleValue(d));
+		}
+	}
+
+	@Benchmark
+	public void doubleValueUncached(Blackhole bh) {
+		for (double d : doubles) {
+			bh.consume(new DoubleDataValue(d));
+		}
+	}
+
+	@Benchmark
+	public DataValue addLongs() {
+		DataValue sum = DataValueFactory.longValue(0);
+		for (long l : longs) {
+			sum = sum.add(DataValueFactory.longValue(l));
+		}
+		return sum;
+	}
+}
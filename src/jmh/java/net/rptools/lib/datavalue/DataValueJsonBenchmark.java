@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading and writing several megabytes of token JSON with
+ * {@link DataValueJsonReader} and {@link DataValueJsonWriter}. Writing
+ * directly to a buffer is compared with creating the JSON string first and
+ * then encoding it. Each benchmark counts the bytes of JSON it reads or
+ * writes with a {@link ByteCounter}, which run in throughput mode gives the
+ * bytes per time unit.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataValueJsonBenchmark {
+
+	/** The number of tokens in the JSON. */
+	private static final int TOKENS = 10000;
+
+	/** The tokens as a DataValue. */
+	private DataValue tokens;
+
+	/** The JSON form of the tokens. */
+	private String json;
+
+	/** The UTF-8 JSON form of the tokens. */
+	private byte[] utf8;
+
+	/** Reused to hold the written JSON. */
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setup() {
+		tokens = BenchmarkValues.tokens(TOKENS);
+		json = DataValueJsonWriter.toJson(tokens);
+		utf8 = json.getBytes(StandardCharsets.UTF_8);
+		buffer = ByteBuffer.allocate(utf8.length);
+	}
+
+	@Benchmark
+	public DataValue readString(ByteCounter counter) throws IOException {
+		counter.bytes += utf8.length;
+		return new DataValueJsonReader(new StringReader(json)).read();
+	}
+
+	@Benchmark
+	public DataValue readUtf8(ByteCounter counter) throws IOException {
+		counter.bytes += utf8.length;
+		return new DataValueJsonReader(new InputStreamReader(new ByteArrayInputStream(utf8), StandardCharsets.UTF_8)).read();
+	}
+
+	@Benchmark
+	public ByteBuffer writeBuffer(ByteCounter counter) throws IOException {
+		buffer.clear();
+		new DataValueJsonWriter(buffer).write(tokens);
+		counter.bytes += buffer.position();
+		return buffer;
+	}
+
+	@Benchmark
+	public ByteBuffer writeViaString(ByteCounter counter) {
+		buffer.clear();
+		buffer.put(DataValueJsonWriter.toJson(tokens).getBytes(StandardCharsets.UTF_8));
+		counter.bytes += buffer.position();
+		return buffer;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the table based dispatch in {@link DataValueOperations} against the
+ * original cascade of type checks in {@link CascadeDataValueOperations} for each
+ * operation on the numeric type pairs.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataValueOperationsBenchmark {
+
+	/** The types of the operands, in the form FIRST_SECOND. */
+	@Param({"LONG_LONG", "DOUBLE_LONG", "LONG_DOUBLE", "DOUBLE_DOUBLE", "RESULT_LONG"})
+	public String types;
+
+	/** The first operand. */
+	private DataValue v1;
+
+	/** The second operand. */
+	private DataValue v2;
+
+	@Setup
+	public void setup() {
+		String[] t = types.split("_");
+		v1 = operand(DataType.valueOf(t[0]), 7);
+		v2 = operand(DataType.valueOf(t[1]), 3);
+	}
+
+	/**
+	 * Creates an operand of the specified type.
+	 *
+	 * @param type The type of the operand.
+	 * @param val The value of the operand.
+	 *
+	 * @return the operand.
+	 */
+	private static DataValue operand(DataType type, long val) {
+		switch (type) {
+			case DOUBLE:
+				return DataValueFactory.doubleValue(val + 0.5);
+			case RESULT:
+				return DataValueFactory.longValue(val).asResultValue();
+			default:
+				return DataValueFactory.longValue(val);
+		}
+	}
+
+	@Benchmark
+	public DataValue addTable() {
+		return DataValueOperations.add(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue addCascade() {
+		return CascadeDataValueOperations.add(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue subtractTable() {
+		return DataValueOperations.subtract(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue subtractCascade() {
+		return CascadeDataValueOperations.subtract(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue multiplyTable() {
+		return DataValueOperations.multiply(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue multiplyCascade() {
+		return CascadeDataValueOperations.multiply(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue divideTable() {
+		return DataValueOperations.divide(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue divideCascade() {
+		return CascadeDataValueOperations.divide(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue remainderTable() {
+		return DataValueOperations.remainder(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue remainderCascade() {
+		return CascadeDataValueOperations.remainder(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue powerTable() {
+		return DataValueOperations.power(v1, v2);
+	}
+
+	@Benchmark
+	public DataValue powerCascade() {
+		return CascadeDataValueOperations.power(v1, v2);
+	}
+}
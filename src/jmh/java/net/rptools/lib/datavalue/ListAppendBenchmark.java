@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks building a list by 10,000 successive additions, as a macro loop
+ * would, against copying the whole list for each addition as the list
+ * addition operation originally did.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class ListAppendBenchmark {
+
+	/** The number of values to append. */
+	private static final int APPENDS = 10000;
+
+	@Benchmark
+	public DataValue persistentAppend() {
+		DataValue lst = DataValueFactory.listValue(Collections.<DataValue>emptyList());
+		for (int i = 0; i < APPENDS; i++) {
+			lst = lst.add(DataValueFactory.longValue(i));
+		}
+		return lst;
+	}
+
+	@Benchmark
+	public DataValue copyingAppend() {
+		DataValue lst = DataValueFactory.listValue(Collections.<DataValue>emptyList());
+		for (int i = 0; i < APPENDS; i++) {
+			List<DataValue> copy = new ArrayList<>();
+			copy.addAll(lst.asList());
+			copy.add(DataValueFactory.longValue(i));
+			lst = DataValueFactory.listValue(copy);
+		}
+		return lst;
+	}
+}
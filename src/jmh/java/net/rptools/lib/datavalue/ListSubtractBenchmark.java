@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks subtracting one list from another where half of the values of
+ * the first list are in the second, against searching the second list for
+ * each value as list subtraction originally did.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListSubtractBenchmark {
+
+	/** The number of values in each list. */
+	@Param({ "10", "1000", "10000" })
+	public int size;
+
+	/** The list to subtract from. */
+	private DataValue values;
+
+	/** The list to subtract. */
+	private DataValue remove;
+
+	@Setup
+	public void setup() {
+		List<DataValue> vals = new ArrayList<>(size);
+		List<DataValue> rem = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			vals.add(DataValueFactory.stringValue("item" + i));
+			rem.add(DataValueFactory.stringValue("item" + (i + size / 2)));
+		}
+		values = DataValueFactory.listValue(vals);
+		remove = DataValueFactory.listValue(rem);
+	}
+
+	@Benchmark
+	public DataValue subtract() {
+		return values.subtract(remove);
+	}
+
+	@Benchmark
+	public DataValue subtractLinear() {
+		final List<DataValue> lst = remove.asList();
+		final List<DataValue> result = new ArrayList<>();
+		for (DataValue dv : values.asList()) {
+			if (lst.contains(dv) == false) {
+				result.add(dv);
+			}
+		}
+		return DataValueFactory.listValue(result);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks slicing, reversing and concatenating lists with the list views
+ * against copying the values in to a new list through {@link DataValue#asList()}
+ * as had to be done before the views.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListViewBenchmark {
+
+	/** The number of values in the list. */
+	@Param({ "4", "64", "1024" })
+	public int size;
+
+	/** The list. */
+	private DataValue list;
+
+	@Setup
+	public void setup() {
+		list = DataValueFactory.listValue(BenchmarkValues.longs(size));
+	}
+
+	@Benchmark
+	public DataValue sliceView() {
+		return list.slice(1, size);
+	}
+
+	@Benchmark
+	public DataValue sliceCopy() {
+		List<DataValue> lst = list.asList();
+		return DataValueFactory.listValue(lst.subList(1, lst.size()));
+	}
+
+	@Benchmark
+	public DataValue reverseView() {
+		return list.reverse();
+	}
+
+	@Benchmark
+	public DataValue reverseCopy() {
+		List<DataValue> lst = new ArrayList<>(list.asList());
+		Collections.reverse(lst);
+		return DataValueFactory.listValue(lst);
+	}
+
+	@Benchmark
+	public DataValue concatView() {
+		return list.add(list);
+	}
+
+	@Benchmark
+	public DataValue concatCopy() {
+		List<DataValue> lst = new ArrayList<>(list.asList());
+		lst.addAll(list.asList());
+		return DataValueFactory.listValue(lst);
+	}
+}
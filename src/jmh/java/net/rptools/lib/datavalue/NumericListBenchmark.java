@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares numeric lists stored as primitive arrays with lists of individual
+ * DataValues. In the GC profiler output the {@code gc.alloc.rate.norm} figure
+ * for the create benchmarks is the number of bytes used by each representation
+ * (plus the transient source collection for the collection based benchmarks).
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumericListBenchmark {
+
+	/** The number of values in the list. */
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	/** Values outside of the cached range, so each DataValue is a new object. */
+	private long[] longs;
+
+	/** The values as a collection. */
+	private List<Long> boxedLongs;
+
+	/** The values as a list of DataValues. */
+	private List<DataValue> dataValues;
+
+	/** List stored as an array of longs. */
+	private DataValue arrayList;
+
+	/** List stored as DataValues. */
+	private DataValue dataValueList;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		longs = new long[size];
+		boxedLongs = new ArrayList<>(size);
+		dataValues = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			longs[i] = random.nextLong();
+			boxedLongs.add(longs[i]);
+			dataValues.add(new LongDataValue(longs[i]));
+		}
+		arrayList = DataValueFactory.longListValue(longs);
+		dataValueList = DataValueFactory.listValue(dataValues);
+	}
+
+	@Benchmark
+	public DataValue createFromArray() {
+		return DataValueFactory.longListValue(longs);
+	}
+
+	@Benchmark
+	public DataValue createFromCollection() {
+		return DataValueFactory.longListValue(boxedLongs);
+	}
+
+	@Benchmark
+	public DataValue createFromDataValues() {
+		List<DataValue> lst = new ArrayList<>(size);
+		for (long l : longs) {
+			lst.add(new LongDataValue(l));
+		}
+		return DataValueFactory.listValue(lst);
+	}
+
+	@Benchmark
+	public long sumArrayList() {
+		long sum = 0;
+		for (DataValue dv : arrayList.asList()) {
+			sum += dv.asLong();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long sumDataValueList() {
+		long sum = 0;
+		for (DataValue dv : dataValueList.asList()) {
+			sum += dv.asLong();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks multiplying a string by a number against appending the string
+ * to a StringBuilder once per repetition as string multiplication originally
+ * did.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringRepeatBenchmark {
+
+	/** The number of repetitions. */
+	@Param({ "10", "1000", "100000" })
+	public int times;
+
+	/** The string to repeat. */
+	private final DataValue str = DataValueFactory.stringValue("abc ");
+
+	@Benchmark
+	public DataValue repeat() {
+		return str.multiply(times);
+	}
+
+	@Benchmark
+	public DataValue repeatAppend() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = times; i > 0; i--) {
+			sb.append(str.asString());
+		}
+		return DataValueFactory.stringValue(sb.toString());
+	}
+}
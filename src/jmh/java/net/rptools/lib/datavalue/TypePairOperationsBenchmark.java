@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks every operation in {@link DataValueOperations} for every pair of
+ * operand types. Pairs that are not supported measure the cost of raising the
+ * error, as a script that gets it wrong would. There are a lot of combinations
+ * so use {@code -p} to restrict the run, e.g.
+ * {@code -p operation=ADD -p first=LIST}.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypePairOperationsBenchmark {
+
+	/** The operations that can be performed. */
+	public enum Operation {
+		ADD			{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.add(v1, v2); } },
+		SUBTRACT	{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.subtract(v1, v2); } },
+		MULTIPLY	{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.multiply(v1, v2); } },
+		DIVIDE		{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.divide(v1, v2); } },
+		REMAINDER	{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.remainder(v1, v2); } },
+		POWER		{ DataValue apply(DataValue v1, DataValue v2) { return DataValueOperations.power(v1, v2); } };
+
+		/**
+		 * Performs the operation.
+		 *
+		 * @param v1 The first operand.
+		 * @param v2 The second operand.
+		 *
+		 * @return the result of the operation.
+		 */
+		abstract DataValue apply(DataValue v1, DataValue v2);
+	}
+
+	/** The operation to perform. */
+	@Param({"ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "REMAINDER", "POWER"})
+	public Operation operation;
+
+	/** The type of the first operand. */
+	@Param({"LONG", "DOUBLE", "STRING", "LIST", "DICTIONARY", "RESULT", "BOOLEAN", "NULL"})
+	public DataType first;
+
+	/** The type of the second operand. */
+	@Param({"LONG", "DOUBLE", "STRING", "LIST", "DICTIONARY", "RESULT", "BOOLEAN", "NULL"})
+	public DataType second;
+
+	/** The first operand. */
+	private DataValue v1;
+
+	/** The second operand. */
+	private DataValue v2;
+
+	@Setup
+	public void setup() {
+		v1 = BenchmarkValues.sample(first);
+		v2 = BenchmarkValues.sample(second);
+	}
+
+	@Benchmark
+	public Object apply() {
+		try {
+			return operation.apply(v1, v2);
+		} catch (UnsupportedOperationException | NumberFormatException | ArithmeticException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks working out the distribution of pools of up to 1000 dice with
+ * {@link DiceDistribution}, against convolving the dice one at a time.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiceDistributionBenchmark {
+
+	/** The number of dice. */
+	@Param({ "10", "100", "1000" })
+	public int count;
+
+	/** The number of sides of the dice. */
+	@Param({ "6", "20" })
+	public int sides;
+
+	/** The program for all the dice. */
+	private DiceProgram all;
+
+	/** The program keeping the highest 3 dice. */
+	private DiceProgram keepHighest;
+
+	@Setup
+	public void setup() {
+		all = DiceProgram.parse(count + "d" + sides);
+		keepHighest = DiceProgram.parse(count + "d" + sides + "kh3");
+	}
+
+	@Benchmark
+	public DiceDistribution sum() {
+		return DiceDistribution.of(all);
+	}
+
+	@Benchmark
+	public DiceDistribution sumKeepHighest() {
+		return DiceDistribution.of(keepHighest);
+	}
+
+	@Benchmark
+	public double[] sumOneDieAtATime() {
+		final double[] die = new double[sides];
+		Arrays.fill(die, 1.0 / sides);
+		double[] result = die;
+		for (int i = 1; i < count; i++) {
+			result = DiceDistribution.convolve(result, die);
+		}
+		return result;
+	}
+}
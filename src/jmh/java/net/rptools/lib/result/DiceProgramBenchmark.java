@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks getting the {@link DiceProgram} for a few hundred different roll
+ * strings from the shared cache against parsing them each time.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiceProgramBenchmark {
+
+	/** The number of different roll strings. */
+	private static final int ROLL_STRINGS = 256;
+
+	/** The roll strings. */
+	private final String[] rollStrings = new String[ROLL_STRINGS];
+
+	/** The next roll string to use. */
+	private int next;
+
+	@Setup
+	public void setup() {
+		final String[] keeps = { "", "kh1", "kl1", "dl1" };
+		Random random = new Random(1);
+		for (int i = 0; i < ROLL_STRINGS; i++) {
+			final int count = random.nextInt(8) + 2;
+			rollStrings[i] = count + "d" + (2 + random.nextInt(19)) + keeps[random.nextInt(keeps.length)] + " + "
+					+ random.nextInt(10);
+		}
+	}
+
+	/**
+	 * Returns the next roll string, cycling through all of them.
+	 *
+	 * @return the roll string.
+	 */
+	private String nextRollString() {
+		next = (next + 1) & (ROLL_STRINGS - 1);
+		return rollStrings[next];
+	}
+
+	@Benchmark
+	public DiceProgram parse() {
+		return DiceProgram.parse(nextRollString());
+	}
+
+	@Benchmark
+	public DiceProgram cached() {
+		return DiceProgram.compile(nextRollString());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public DiceProgram cachedContended() {
+		return DiceProgram.compile(rollStrings[(int) (Thread.currentThread().getId() * 31) & (ROLL_STRINGS - 1)]);
+	}
+}
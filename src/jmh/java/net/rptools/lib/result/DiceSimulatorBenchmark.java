@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks 10,000,000 trials of a roll with {@link DiceSimulator}, against
+ * rolling a Result for each trial and counting the totals in a histogram.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiceSimulatorBenchmark {
+
+	/** The number of trials. */
+	private static final int TRIALS = 10000000;
+
+	/** The roll string. */
+	@Param({ "3d6+4", "4d6kh3" })
+	public String rollString;
+
+	/** The roll expression. */
+	private RollExpression rexpr;
+
+	/** The simulator using the common pool. */
+	private final DiceSimulator simulator = new DiceSimulator();
+
+	/** The evaluator for rolling a Result for each trial. */
+	private final RollEvaluator evaluator = new RollEvaluator();
+
+	/** The seed for the next simulation. */
+	private long seed;
+
+	@Setup
+	public void setup() {
+		rexpr = RollExpression.getRollExpression(rollString);
+	}
+
+	@Benchmark
+	public RollHistogram simulate() {
+		return simulator.simulate(rexpr, TRIALS, seed++);
+	}
+
+	@Benchmark
+	public long[] resultPerTrial() {
+		final DiceProgram program = rexpr.getProgram();
+		final long[] counts = new long[(int) (program.getMaximum() - program.getMinimum() + 1)];
+		for (int i = 0; i < TRIALS; i++) {
+			counts[(int) (evaluator.evaluate(rexpr).getValue().asLong() - program.getMinimum())]++;
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rolling a large pool of dice with {@link ParallelRollEvaluator}
+ * using a single thread and all of the processors, against rolling it with
+ * {@link RollEvaluator}.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelRollEvaluatorBenchmark {
+
+	/** The roll string. */
+	@Param({ "1000000d6", "1000000d20kh500000" })
+	public String rollString;
+
+	/** The roll expression. */
+	private RollExpression rexpr;
+
+	/** The pool with a single thread. */
+	private ForkJoinPool single;
+
+	/** The evaluator with a single thread. */
+	private ParallelRollEvaluator singleEvaluator;
+
+	/** The evaluator using the common pool. */
+	private final ParallelRollEvaluator parallelEvaluator = new ParallelRollEvaluator();
+
+	/** The sequential evaluator. */
+	private final RollEvaluator evaluator = new RollEvaluator();
+
+	/** The seed for the next roll. */
+	private long seed;
+
+	@Setup
+	public void setup() {
+		rexpr = RollExpression.getRollExpression(rollString);
+		single = new ForkJoinPool(1);
+		singleEvaluator = new ParallelRollEvaluator(single);
+	}
+
+	@TearDown
+	public void tearDown() {
+		single.shutdown();
+	}
+
+	@Benchmark
+	public Result singleThread() {
+		return singleEvaluator.evaluate(rexpr, seed++);
+	}
+
+	@Benchmark
+	public Result parallel() {
+		return parallelEvaluator.evaluate(rexpr, seed++);
+	}
+
+	@Benchmark
+	public Result sequential() {
+		return evaluator.evaluate(rexpr);
+	}
+}
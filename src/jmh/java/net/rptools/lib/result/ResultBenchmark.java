@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks building {@link Result}s with {@link ResultBuilder} the way a
+ * dice roll does, with the individual rolls, a detailed result and a
+ * {@link RollExpression}, and wrapping them as DataValues.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultBenchmark {
+
+	/** The number of individual values (dice) in the result. */
+	@Param({"1", "10", "100"})
+	public int dice;
+
+	/** The individual values of the result. */
+	private List<DataValue> rolls;
+
+	/** The sum of the individual values. */
+	private long total;
+
+	/** The roll expression attached to the result. */
+	private RollExpression rollExpression;
+
+	@Setup
+	public void setup() {
+		rolls = new ArrayList<>(dice);
+		total = 0;
+		for (int i = 0; i < dice; i++) {
+			final int roll = (i % 6) + 1;
+			rolls.add(DataValueFactory.longValue(roll));
+			total += roll;
+		}
+		rollExpression = RollExpression.getDetailedSummedRollExpression(dice + "d6");
+	}
+
+	@Benchmark
+	public Result valueOnly() {
+		return new ResultBuilder().setLongValue(total).toResult();
+	}
+
+	@Benchmark
+	public Result diceRoll() {
+		return new ResultBuilder()
+			.setLongValue(total)
+			.setDetailedResult(DataValueFactory.listValue(rolls))
+			.setIndividualValues(rolls)
+			.setRollExpression(rollExpression)
+			.toResult();
+	}
+
+	@Benchmark
+	public DataValue diceRollValue() {
+		return DataValueFactory.resultValue(diceRoll());
+	}
+}
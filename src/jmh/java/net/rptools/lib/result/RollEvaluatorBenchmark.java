@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rolling roll expressions with {@link RollEvaluator}, with and
+ * without the verbose details, and with a single {@link Random} shared by all
+ * threads in place of the thread local generator.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+@State(Scope.Benchmark)
+public class RollEvaluatorBenchmark {
+
+	/** The roll string. */
+	@Param({ "4d6kh3+2", "1d20+5", "100d6", "10d10000kl3" })
+	public String rollString;
+
+	/** Roll expression for the total only. */
+	private RollExpression total;
+
+	/** Roll expression with the details. */
+	private RollExpression verbose;
+
+	/** The evaluator using the thread local generator. */
+	private final RollEvaluator evaluator = new RollEvaluator();
+
+	/** The evaluator using a shared Random. */
+	private RollEvaluator shared;
+
+	@Setup
+	public void setup() {
+		total = RollExpression.getRollExpression(rollString);
+		verbose = RollExpression.getDetailedSummedRollExpression(rollString);
+		final Random random = new Random(1);
+		shared = new RollEvaluator(new RandomGenerator() {
+			@Override
+			public int nextInt(int bound) {
+				return random.nextInt(bound);
+			}
+		});
+	}
+
+	@Benchmark
+	public Result rollTotal() {
+		return evaluator.evaluate(total);
+	}
+
+	@Benchmark
+	public Result rollVerbose() {
+		return evaluator.evaluate(verbose);
+	}
+
+	@Benchmark
+	public Result rollTotalSharedRandom() {
+		return shared.evaluate(total);
+	}
+}
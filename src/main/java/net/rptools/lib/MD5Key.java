@@ -16,7 +16,25 @@ package net.rptools.lib;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
@@ -32,20 +50,53 @@ final public class MD5Key implements Serializable {
 	/** Serial version UID. */
 	private static final long serialVersionUID = 5451535120110411802L;
 	
+	/** 
+	 * The largest region of a file that is memory mapped at once. Mapping is
+	 * limited to 2GB regions and smaller regions keep the address space used
+	 * while hashing many files at once down.
+	 */
+	static final int MAP_REGION_SIZE = 64 * 1024 * 1024;
 	
-	/** The id of of this instance. */
-    final String id;
+	/** 
+	 * Files smaller than this are read into a buffer instead of being memory
+	 * mapped, as setting up the mapping costs more than reading them.
+	 */
+	private static final int MIN_MAP_SIZE = 64 * 1024;
+	
+	/** The number of hex digits in the id. */
+	private static final int ID_LENGTH = 32;
+	
+	/** The digits used to write the id. */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/** 
+	 * The serialized form is just the hex id, as it was when the id was stored
+	 * as a String, so keys serialized by earlier versions can still be read.
+	 * This also serializes the transient {@link #id} field.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("id", String.class)
+	};
+	
+	
+	/** The first 8 bytes of the digest. */
+	private final long high;
+	
+	/** The last 8 bytes of the digest. */
+	private final long low;
+	
+	/** The hex id of this instance, created when it is first needed. */
+    private transient String id;
             
     /** 
-     * Creates a new MD5Key from the specified String.
-     * This takes the string as the id value of the key, it does not
-     * calculate a new value of the key based on the contents of the
-     * String.
+     * Creates a new MD5Key from the bits of the digest.
      * 
-     * @param md5 The id of the MD5Key.
+     * @param hi The first 8 bytes of the digest.
+     * @param lo The last 8 bytes of the digest.
      */
-    private MD5Key(String md5) {
-    	id = md5;
+    private MD5Key(long hi, long lo) {
+    	high = hi;
+    	low = lo;
     }
     
     
@@ -56,7 +107,9 @@ final public class MD5Key implements Serializable {
      * @param data The data used to generate the key.
      */
     public MD5Key (byte[] data) {
-    	id = DigestUtils.md5Hex(data);
+    	byte[] digest = DigestUtils.md5(data);
+    	high = bits(digest, 0);
+    	low = bits(digest, 8);
     }
     
     /**
@@ -69,14 +122,247 @@ final public class MD5Key implements Serializable {
      *                     <code>InputStream</code>.
      */
     public MD5Key (InputStream input) throws IOException {
-    	id = DigestUtils.md5Hex(input);
+    	byte[] digest = DigestUtils.md5(input);
+    	high = bits(digest, 0);
+    	low = bits(digest, 8);
+    }
+    
+    /**
+     * Creates a new instance of <code>MD5Key</code> with the id based on the
+     * contents of the file. Large files are memory mapped and hashed directly
+     * from the mapping rather than being read through a stream.
+     * 
+     * @param path The path of the file to generate the id for.
+     * 
+     * @return the <code>MD5Key</code> for the contents of the file.
+     * 
+     * @throws IOException when an error occurs reading the file.
+     */
+    public static MD5Key fromPath(Path path) throws IOException {
+    	try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+    		return fromChannel(channel);
+    	}
+    }
+    
+    /**
+     * Calculates the <code>MD5Key</code>s for the contents of many files,
+     * hashing up to one file per available processor at a time.
+     * 
+     * @param paths The paths of the files.
+     * 
+     * @return the <code>MD5Key</code>s mapped from the paths, in the order of
+     *         the paths.
+     * 
+     * @throws IOException when an error occurs reading any of the files.
+     * 
+     * @see #computeAll(Collection, int)
+     */
+    public static Map<Path, MD5Key> computeAll(Collection<Path> paths) throws IOException {
+    	return computeAll(paths, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Calculates the <code>MD5Key</code>s for the contents of many files,
+     * hashing up to <code>parallelism</code> files at a time. Each file is
+     * hashed as by {@link #fromPath(Path)}, and no more than
+     * <code>parallelism</code> files are open at once, so the number of open
+     * files and the amount of concurrent I/O are bounded. If any file can
+     * not be read then the hashing of the remaining files is cancelled.
+     * 
+     * @param paths The paths of the files.
+     * @param parallelism The maximum number of files to hash at once.
+     * 
+     * @return the <code>MD5Key</code>s mapped from the paths, in the order of
+     *         the paths.
+     * 
+     * @throws IOException when an error occurs reading any of the files.
+     * @throws IllegalArgumentException if <code>parallelism</code> is less 
+     *                                  than 1.
+     */
+    public static Map<Path, MD5Key> computeAll(Collection<Path> paths, int parallelism) throws IOException {
+    	if (parallelism < 1) {
+    		throw new IllegalArgumentException("Parallelism must be at least 1.");
+    	}
+    	
+    	Map<Path, MD5Key> keys = new LinkedHashMap<>();
+    	if (paths.isEmpty()) {
+    		return keys;
+    	}
+    	
+    	ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, paths.size()));
+    	try {
+    		Map<Path, Future<MD5Key>> futures = new LinkedHashMap<>();
+    		for (final Path path : paths) {
+    			if (futures.containsKey(path) == false) {
+    				futures.put(path, executor.submit(new Callable<MD5Key>() {
+    					@Override
+    					public MD5Key call() throws IOException {
+    						return fromPath(path);
+    					}
+    				}));
+    			}
+    		}
+    		
+    		for (Map.Entry<Path, Future<MD5Key>> entry : futures.entrySet()) {
+    			keys.put(entry.getKey(), entry.getValue().get());
+    		}
+    		return keys;
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new InterruptedIOException("Interrupted while calculating MD5Keys.");
+    	} catch (ExecutionException e) {
+    		Throwable cause = e.getCause();
+    		if (cause instanceof IOException) {
+    			throw (IOException) cause;
+    		} else if (cause instanceof RuntimeException) {
+    			throw (RuntimeException) cause;
+    		} else if (cause instanceof Error) {
+    			throw (Error) cause;
+    		}
+    		throw new IOException(cause);
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+    
+    /**
+     * Creates a new instance of <code>MD5Key</code> with the id based on the
+     * whole contents of the file that the channel is open on. The position
+     * of the channel is not used or changed.
+     * 
+     * @param channel The channel to read the file from.
+     * 
+     * @return the <code>MD5Key</code> for the contents of the file.
+     * 
+     * @throws IOException when an error occurs reading the file.
+     */
+    public static MD5Key fromChannel(FileChannel channel) throws IOException {
+    	MessageDigest digest = md5Digest();
+    	update(digest, channel, MAP_REGION_SIZE);
+    	return fromBytes(digest.digest());
+    }
+    
+    /**
+     * Creates a new instance of <code>MD5Key</code> with the id based on the
+     * bytes remaining in the buffer, that is from its position to its limit.
+     * The bytes are hashed in place so direct and memory mapped buffers are
+     * not copied to the heap first. The position of the buffer is not changed.
+     * 
+     * @param buffer The buffer holding the data.
+     * 
+     * @return the <code>MD5Key</code> for the data.
+     */
+    public static MD5Key fromBuffer(ByteBuffer buffer) {
+    	return new Hasher().update(buffer.duplicate()).finish();
+    }
+    
+    /**
+     * Adds the contents of the file that the channel is open on to the digest,
+     * mapping it into memory a region at a time.
+     * 
+     * @param digest The digest to update.
+     * @param channel The channel to read from.
+     * @param regionSize The largest region of the file to map at once.
+     * 
+     * @throws IOException when an error occurs reading the file.
+     */
+    static void update(MessageDigest digest, FileChannel channel, int regionSize) throws IOException {
+    	final long size = channel.size();
+    	if (size < MIN_MAP_SIZE) {
+    		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+    		while (buffer.hasRemaining()) {
+    			if (channel.read(buffer, buffer.position()) < 0) {
+    				break;
+    			}
+    		}
+    		buffer.flip();
+    		digest.update(buffer);
+    		return;
+    	}
+    	
+    	for (long pos = 0; pos < size; pos += regionSize) {
+    		final long len = Math.min(regionSize, size - pos);
+    		digest.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, len));
+    	}
+    }
+    
+    /**
+     * Creates an <code>MD5Key</code> from the 16 bytes of an MD5 digest, as
+     * returned by {@link #toBytes()}.
+     * 
+     * @param digest The digest.
+     * 
+     * @return the <code>MD5Key</code>.
+     * 
+     * @throws IllegalArgumentException if the digest is not 16 bytes long.
+     */
+    public static MD5Key fromBytes(byte[] digest) {
+    	if (digest.length != 16) {
+    		throw new IllegalArgumentException("MD5 digest must be 16 bytes.");
+    	}
+    	return new MD5Key(bits(digest, 0), bits(digest, 8));
+    }
+    
+    /**
+     * Returns the 16 bytes of the MD5 digest this key represents.
+     * 
+     * @return the digest.
+     */
+    public byte[] toBytes() {
+    	byte[] digest = new byte[16];
+    	for (int i = 0; i < 8; i++) {
+    		digest[i] = (byte) (high >>> (56 - i * 8));
+    		digest[i + 8] = (byte) (low >>> (56 - i * 8));
+    	}
+    	return digest;
+    }
+    
+    /**
+     * Returns 8 bytes of a digest as a long, most significant byte first.
+     * 
+     * @param digest The digest.
+     * @param offset The offset of the first byte.
+     * 
+     * @return the bytes as a long.
+     */
+    private static long bits(byte[] digest, int offset) {
+    	long val = 0;
+    	for (int i = offset; i < offset + 8; i++) {
+    		val = (val << 8) | (digest[i] & 0xff);
+    	}
+    	return val;
+    }
+    
+    /**
+     * Returns a new MD5 {@link MessageDigest}.
+     * 
+     * @return the digest.
+     */
+    private static MessageDigest md5Digest() {
+    	try {
+    		return MessageDigest.getInstance("MD5");
+    	} catch (NoSuchAlgorithmException e) {
+    		// Every Java platform is required to support MD5.
+    		throw new RuntimeException(e.getMessage(), e);
+    	}
     }
     
     /**
      * Gets the <code>String</code> id of the <code>MD5Key</code>.
      */
     public String toString() {
-        return id;
+    	// Racy but safe, any thread that sees null creates an identical String.
+    	String str = id;
+    	if (str == null) {
+    		char[] chars = new char[ID_LENGTH];
+    		for (int i = 0; i < 16; i++) {
+    			chars[i] = HEX_DIGITS[(int) (high >>> (60 - i * 4)) & 0xf];
+    			chars[i + 16] = HEX_DIGITS[(int) (low >>> (60 - i * 4)) & 0xf];
+    		}
+    		str = new String(chars);
+    		id = str;
+    	}
+        return str;
     }
     
     
@@ -88,9 +374,44 @@ final public class MD5Key implements Serializable {
      * @param str The <codeString</code> representation of the 
      * <code>MD5Key</code>.
      * 
+     * @throws IllegalArgumentException if the string is not 32 hex digits.
      */
     public static MD5Key fromString(String str) {
-    	return new MD5Key(str);
+    	if (str.length() != ID_LENGTH) {
+    		throw new IllegalArgumentException("Invalid MD5Key: " + str);
+    	}
+    	return new MD5Key(parseBits(str, 0), parseBits(str, 16));
+    }
+    
+    /**
+     * Parses 16 hex digits of an id as a long.
+     * 
+     * @param str The id.
+     * @param offset The offset of the first digit.
+     * 
+     * @return the digits as a long.
+     * 
+     * @throws IllegalArgumentException if any of the characters is not an ASCII hex digit.
+     */
+    private static long parseBits(String str, int offset) {
+    	long val = 0;
+    	for (int i = offset; i < offset + 16; i++) {
+    		// Only ASCII digits are accepted, Character.digit also accepts
+    		// other Unicode digits which toString() would not give back.
+    		final char c = str.charAt(i);
+    		int digit;
+    		if (c >= '0' && c <= '9') {
+    			digit = c - '0';
+    		} else if (c >= 'a' && c <= 'f') {
+    			digit = c - 'a' + 10;
+    		} else if (c >= 'A' && c <= 'F') {
+    			digit = c - 'A' + 10;
+    		} else {
+    			throw new IllegalArgumentException("Invalid MD5Key: " + str);
+    		}
+    		val = (val << 4) | digit;
+    	}
+    	return val;
     }
    
     @Override
@@ -99,12 +420,166 @@ final public class MD5Key implements Serializable {
             return false;
         }
         
-        return id.equals(((MD5Key) obj).id);
+        MD5Key key = (MD5Key) obj;
+        return high == key.high && low == key.low;
     }
     
     @Override
     public int hashCode() {
-        return id.hashCode();
+    	// The digest bits are already evenly distributed.
+        return (int) low;
+    }
+    
+    /**
+     * Makes sure the hex id, which is the serialized form, has been created
+     * before the key is written.
+     * 
+     * @return this key.
+     */
+    private Object writeReplace() {
+    	toString();
+    	return this;
+    }
+    
+    /**
+     * Replaces a deserialized key with one holding the digest bits parsed
+     * from its id.
+     * 
+     * @return the key.
+     * 
+     * @throws ObjectStreamException if the id is not valid.
+     */
+    private Object readResolve() throws ObjectStreamException {
+    	if (id == null) {
+    		throw new InvalidObjectException("MD5Key has no id.");
+    	}
+    	try {
+    		return fromString(id);
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidObjectException(e.getMessage());
+    	}
+    }
+    
+    /**
+     * Calculates an <code>MD5Key</code> from data that arrives in pieces, such
+     * as an asset being received over the network, without holding all of
+     * the data at once. Each Hasher calculates a single key, once 
+     * {@link #finish()} has been called it can not be used again.
+     */
+    public static final class Hasher {
+    	
+    	/** The digest being calculated. */
+    	private MessageDigest digest = md5Digest();
+    	
+    	/** The number of bytes added so far. */
+    	private long length;
+    	
+    	/**
+    	 * Checks that {@link #finish()} has not been called.
+    	 * 
+    	 * @throws IllegalStateException if the key has already been calculated.
+    	 */
+    	private void checkNotFinished() {
+    		if (digest == null) {
+    			throw new IllegalStateException("MD5Key has already been calculated.");
+    		}
+    	}
+    	
+    	/**
+    	 * Adds bytes to the data being hashed.
+    	 * 
+    	 * @param data The array holding the bytes.
+    	 * @param off The offset of the first byte to add.
+    	 * @param len The number of bytes to add.
+    	 * 
+    	 * @return {@code this} so that methods can be chained.
+    	 * 
+    	 * @throws IllegalStateException if {@link #finish()} has been called.
+    	 */
+    	public Hasher update(byte[] data, int off, int len) {
+    		checkNotFinished();
+    		digest.update(data, off, len);
+    		length += len;
+    		return this;
+    	}
+    	
+    	/**
+    	 * Adds all of the bytes in the array to the data being hashed.
+    	 * 
+    	 * @param data The bytes to add.
+    	 * 
+    	 * @return {@code this} so that methods can be chained.
+    	 * 
+    	 * @throws IllegalStateException if {@link #finish()} has been called.
+    	 */
+    	public Hasher update(byte[] data) {
+    		return update(data, 0, data.length);
+    	}
+    	
+    	/**
+    	 * Adds the bytes remaining in the buffer to the data being hashed. The
+    	 * position of the buffer is advanced to its limit, as if the bytes had
+    	 * been read from it.
+    	 * 
+    	 * @param buffer The buffer holding the bytes.
+    	 * 
+    	 * @return {@code this} so that methods can be chained.
+    	 * 
+    	 * @throws IllegalStateException if {@link #finish()} has been called.
+    	 */
+    	public Hasher update(ByteBuffer buffer) {
+    		checkNotFinished();
+    		length += buffer.remaining();
+    		digest.update(buffer);
+    		return this;
+    	}
+    	
+    	/**
+    	 * Returns the number of bytes that have been added so far.
+    	 * 
+    	 * @return the number of bytes.
+    	 */
+    	public long length() {
+    		return length;
+    	}
+    	
+    	/**
+    	 * Returns a new Hasher that has had the same bytes added as this one.
+    	 * This can be used to keep the state at a checkpoint, for example
+    	 * the last acknowledged block of a transfer, so hashing can resume
+    	 * from there if the rest of the data has to be sent again.
+    	 * 
+    	 * @return the copy of this Hasher.
+    	 * 
+    	 * @throws IllegalStateException if {@link #finish()} has been called.
+    	 */
+    	public Hasher copy() {
+    		checkNotFinished();
+    		Hasher hasher = new Hasher();
+    		try {
+    			hasher.digest = (MessageDigest) digest.clone();
+    		} catch (CloneNotSupportedException e) {
+    			// The MD5 digests provided by the JRE can all be cloned.
+    			throw new IllegalStateException(e.getMessage(), e);
+    		}
+    		hasher.length = length;
+    		return hasher;
+    	}
+    	
+    	/**
+    	 * Calculates the <code>MD5Key</code> for all of the bytes that have
+    	 * been added.
+    	 * 
+    	 * @return the <code>MD5Key</code>.
+    	 * 
+    	 * @throws IllegalStateException if this has already been called.
+    	 */
+    	public MD5Key finish() {
+    		checkNotFinished();
+    		final MD5Key key = fromBytes(digest.digest());
+    		digest = null;
+    		return key;
+    	}
     }
    
 }
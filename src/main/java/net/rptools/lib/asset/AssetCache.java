@@ -0,0 +1,427 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.asset;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.rptools.lib.MD5Key;
+
+/**
+ * An in memory cache of data identified by its {@link MD5Key}. The total size
+ * of the cached data is limited, when it is exceeded the least recently used
+ * data is evicted.
+ * 
+ * The cache is split into segments, each with its own lock, so threads using
+ * different keys rarely wait for each other. Each segment keeps its data in
+ * least recently used order and eviction takes the eldest data from each
+ * segment in turn, so the eviction order is an approximation of least
+ * recently used across the whole cache.
+ * 
+ * Data at least as large as the off heap threshold is copied to direct buffers
+ * outside of the Java heap so that large images do not fill the heap.
+ *
+ */
+public final class AssetCache {
+
+	/** The number of segments used if not specified. */
+	private static final int DEFAULT_SEGMENTS = 16;
+
+	/** The segments holding the data. */
+	private final Segment[] segments;
+
+	/** Mask used to select the segment for a key. */
+	private final int segmentMask;
+
+	/** The maximum total size in bytes of the cached data. */
+	private final long maximumSize;
+
+	/** Data of this size in bytes or larger is stored off heap. */
+	private final int offHeapThreshold;
+
+	/** The total size in bytes of the cached data. */
+	private final AtomicLong size = new AtomicLong();
+
+	/** The segment to evict from next. */
+	private final AtomicInteger evictionHand = new AtomicInteger();
+
+	/** The number of requests that found data. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The number of requests that did not find data. */
+	private final LongAdder misses = new LongAdder();
+
+	/** The number of times data has been evicted. */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a new AssetCache that holds all data on the heap.
+	 * 
+	 * @param maxSize The maximum total size in bytes of the cached data.
+	 */
+	public AssetCache(long maxSize) {
+		this(maxSize, Integer.MAX_VALUE, DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 * Creates a new AssetCache.
+	 * 
+	 * @param maxSize The maximum total size in bytes of the cached data.
+	 * @param offHeap Data of this size in bytes or larger is stored off heap,
+	 *        {@link Integer#MAX_VALUE} keeps all data on the heap.
+	 * @param concurrency The number of segments, rounded up to a power of two.
+	 * 
+	 * @throws IllegalArgumentException if the maximum size is negative or the
+	 *                                  concurrency is less than 1.
+	 */
+	public AssetCache(long maxSize, int offHeap, int concurrency) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Maximum size can not be negative.");
+		}
+		if (concurrency < 1 || concurrency > (1 << 16)) {
+			throw new IllegalArgumentException("Concurrency must be between 1 and 65536.");
+		}
+		int n = Integer.highestOneBit(concurrency);
+		if (n < concurrency) {
+			n <<= 1;
+		}
+		segments = new Segment[n];
+		for (int i = 0; i < n; i++) {
+			segments[i] = new Segment();
+		}
+		segmentMask = n - 1;
+		maximumSize = maxSize;
+		offHeapThreshold = offHeap;
+	}
+
+	/**
+	 * Returns the segment that holds the data for the key.
+	 * 
+	 * @param key The key.
+	 * 
+	 * @return the segment.
+	 */
+	private Segment segmentFor(MD5Key key) {
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & segmentMask];
+	}
+
+	/**
+	 * Returns the data for the key.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return a read only buffer holding the data, or {@code null} if the data
+	 *         is not in the cache.
+	 */
+	public ByteBuffer get(MD5Key key) {
+		ByteBuffer data = segmentFor(key).get(key);
+		if (data == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return data.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Checks if the data for the key is in the cache. This does not count as
+	 * a use of the data.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return {@code true} if the data is in the cache.
+	 */
+	public boolean contains(MD5Key key) {
+		return segmentFor(key).contains(key);
+	}
+
+	/**
+	 * Adds data to the cache under the key calculated from its contents.
+	 * 
+	 * @param data The data to add, it is copied.
+	 * 
+	 * @return the key of the data.
+	 */
+	public MD5Key put(byte[] data) {
+		MD5Key key = new MD5Key(data);
+		put(key, ByteBuffer.wrap(data));
+		return key;
+	}
+
+	/**
+	 * Adds data to the cache. The data is expected to be the data the key was
+	 * calculated from, it is not checked. If the cache already holds data for
+	 * the key it is kept.
+	 * 
+	 * @param key The key of the data.
+	 * @param data The data to add, it is copied.
+	 * 
+	 * @return {@code true} if the data is in the cache, {@code false} if it
+	 *         is larger than the maximum size of the cache.
+	 */
+	public boolean put(MD5Key key, byte[] data) {
+		return put(key, ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Adds the bytes remaining in the buffer to the cache. The position of the
+	 * buffer is not changed. The data is expected to be the data the key was
+	 * calculated from, it is not checked. If the cache already holds data for
+	 * the key it is kept.
+	 * 
+	 * @param key The key of the data.
+	 * @param data The data to add, it is copied.
+	 * 
+	 * @return {@code true} if the data is in the cache, {@code false} if it
+	 *         is larger than the maximum size of the cache.
+	 */
+	public boolean put(MD5Key key, ByteBuffer data) {
+		final int len = data.remaining();
+		if (len > maximumSize) {
+			return false;
+		}
+
+		Segment segment = segmentFor(key);
+		if (segment.contains(key)) {
+			return true;
+		}
+
+		ByteBuffer copy = len >= offHeapThreshold ? ByteBuffer.allocateDirect(len) : ByteBuffer.allocate(len);
+		copy.put(data.duplicate());
+		copy.flip();
+
+		if (segment.put(key, copy)) {
+			size.addAndGet(len);
+			evict(key);
+		}
+		return true;
+	}
+
+	/**
+	 * Evicts data until the total size is no more than the maximum size.
+	 * 
+	 * @param added The key of the data that was just added, it is only evicted
+	 *        if there is no other data left.
+	 */
+	private void evict(MD5Key added) {
+		int empty = 0;
+		while (size.get() > maximumSize) {
+			Segment segment = segments[evictionHand.getAndIncrement() & segmentMask];
+			if (segment.evictEldest(empty < segments.length ? added : null)) {
+				empty = 0;
+			} else {
+				empty++;
+			}
+		}
+	}
+
+	/**
+	 * Removes the data for the key from the cache.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return {@code true} if the data was in the cache.
+	 */
+	public boolean remove(MD5Key key) {
+		return segmentFor(key).remove(key);
+	}
+
+	/**
+	 * Removes all data from the cache.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Returns the total size in bytes of the cached data.
+	 * 
+	 * @return the size in bytes.
+	 */
+	public long size() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the maximum total size in bytes of the cached data.
+	 * 
+	 * @return the maximum size in bytes.
+	 */
+	public long maximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns the number of keys that have data in the cache.
+	 * 
+	 * @return the number of keys.
+	 */
+	public int count() {
+		int count = 0;
+		for (Segment segment : segments) {
+			count += segment.count();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of times {@link #get(MD5Key)} found the data.
+	 * 
+	 * @return the number of hits.
+	 */
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of times {@link #get(MD5Key)} did not find the data.
+	 * 
+	 * @return the number of misses.
+	 */
+	public long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of times data has been evicted to keep the cache
+	 * within its maximum size.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "AssetCache: size = " + size() + ", maximum size = " + maximumSize + ", hits = " + hitCount()
+				+ ", misses = " + missCount() + ", evictions = " + evictionCount();
+	}
+
+	/**
+	 * A part of the cache holding data in least recently used order. All access
+	 * is synchronized on the segment.
+	 */
+	private final class Segment {
+
+		/** The data in least recently used order. */
+		private final LinkedHashMap<MD5Key, ByteBuffer> data = new LinkedHashMap<>(16, 0.75f, true);
+
+		/**
+		 * Returns the data for the key, marking it as the most recently used.
+		 * 
+		 * @param key The key of the data.
+		 * 
+		 * @return the data or {@code null} if it is not in the segment.
+		 */
+		synchronized ByteBuffer get(MD5Key key) {
+			return data.get(key);
+		}
+
+		/**
+		 * Checks if the segment holds data for the key without changing the
+		 * order.
+		 * 
+		 * @param key The key of the data.
+		 * 
+		 * @return {@code true} if the segment holds data for the key.
+		 */
+		synchronized boolean contains(MD5Key key) {
+			return data.containsKey(key);
+		}
+
+		/**
+		 * Adds data to the segment if there is no data for the key already.
+		 * 
+		 * @param key The key of the data.
+		 * @param buffer The data.
+		 * 
+		 * @return {@code true} if the data was added.
+		 */
+		synchronized boolean put(MD5Key key, ByteBuffer buffer) {
+			if (data.containsKey(key)) {
+				return false;
+			}
+			data.put(key, buffer);
+			return true;
+		}
+
+		/**
+		 * Removes the data for the key.
+		 * 
+		 * @param key The key of the data.
+		 * 
+		 * @return {@code true} if there was data for the key.
+		 */
+		synchronized boolean remove(MD5Key key) {
+			ByteBuffer buffer = data.remove(key);
+			if (buffer == null) {
+				return false;
+			}
+			size.addAndGet(-buffer.capacity());
+			return true;
+		}
+
+		/**
+		 * Evicts the least recently used data.
+		 * 
+		 * @param keep The key of data that must not be evicted, may be
+		 *        {@code null}.
+		 * 
+		 * @return {@code true} if data was evicted.
+		 */
+		synchronized boolean evictEldest(MD5Key keep) {
+			Iterator<Map.Entry<MD5Key, ByteBuffer>> iter = data.entrySet().iterator();
+			if (iter.hasNext() == false) {
+				return false;
+			}
+			Map.Entry<MD5Key, ByteBuffer> eldest = iter.next();
+			if (eldest.getKey().equals(keep)) {
+				return false;
+			}
+			iter.remove();
+			size.addAndGet(-eldest.getValue().capacity());
+			evictions.increment();
+			return true;
+		}
+
+		/**
+		 * Removes all the data from the segment.
+		 */
+		synchronized void clear() {
+			for (ByteBuffer buffer : data.values()) {
+				size.addAndGet(-buffer.capacity());
+			}
+			data.clear();
+		}
+
+		/**
+		 * Returns the number of keys with data in the segment.
+		 * 
+		 * @return the number of keys.
+		 */
+		synchronized int count() {
+			return data.size();
+		}
+	}
+}
@@ -0,0 +1,540 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.asset;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.rptools.lib.MD5Key;
+
+/**
+ * A store of data on the local disk where each piece of data is written once,
+ * to a file named by its {@link MD5Key}. Adding data that is already in the
+ * store does not write it again.
+ * 
+ * The files are spread over 256 directories named by the first two hex digits
+ * of the key, so no directory becomes too large. Data is written to a
+ * temporary file which is forced to the disk and then moved in to place, so 
+ * a file under a key name is always complete, and each index record is 
+ * forced to the disk after the file it refers to. Data read with {@link #get(MD5Key)} is checked against
+ * its key, as is data sent with {@link #transferTo(MD5Key, WritableByteChannel)}
+ * the first time it is sent.
+ * 
+ * The keys and sizes of the stored data are kept in an index file of fixed size
+ * records, which is read when the store is opened rather than listing every
+ * directory. Data that is removed because it does not match its key is 
+ * recorded in the index with a size of -1. If the index is missing it is 
+ * rebuilt from the directories.
+ *
+ */
+public final class AssetStore implements Closeable {
+
+	/** The name of the index file. */
+	private static final String INDEX_NAME = "index";
+
+	/** Identifies an index file, followed by the version of the format. */
+	private static final int INDEX_MAGIC = 0x52504153;
+
+	/** The version of the index file format. */
+	private static final int INDEX_VERSION = 1;
+
+	/** The length of the index file header. */
+	private static final int INDEX_HEADER_LENGTH = 8;
+
+	/** The length of each index record, the key followed by the size. */
+	private static final int INDEX_RECORD_LENGTH = 24;
+
+	/** The size in an index record for a key whose data has been removed. */
+	private static final long REMOVED_SIZE = -1;
+
+	/** The prefix of the temporary files that data is written to. */
+	private static final String TEMP_PREFIX = "put";
+
+	/** The suffix of the temporary files that data is written to. */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/** The size of the buffer used to copy from streams. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The directory holding the store. */
+	private final Path root;
+
+	/** The size of the data for each key in the store. */
+	private final ConcurrentHashMap<MD5Key, Long> index = new ConcurrentHashMap<>();
+
+	/** The keys whose files have been checked since the store was opened. */
+	private final Set<MD5Key> verified = Collections.newSetFromMap(new ConcurrentHashMap<MD5Key, Boolean>());
+
+	/** Lock held while writing to or replacing the index file. */
+	private final Object indexLock = new Object();
+
+	/** 
+	 * The channel used to append to the index file, which is reopened when 
+	 * the index is compacted.
+	 */
+	private FileChannel indexChannel;
+
+	/**
+	 * Opens the store in the specified directory, creating it if it does not
+	 * exist.
+	 * 
+	 * @param dir The directory holding the store.
+	 * 
+	 * @throws IOException if an error occurs creating or reading the store.
+	 */
+	public AssetStore(Path dir) throws IOException {
+		root = dir;
+		Files.createDirectories(root);
+		final Path indexPath = root.resolve(INDEX_NAME);
+
+		removeTempFiles();
+
+		long validLength = -1;
+		if (Files.exists(indexPath)) {
+			validLength = readIndex(indexPath);
+		}
+
+		if (validLength < 0) {
+			scan();
+			writeIndex(indexPath);
+		}
+
+		indexChannel = FileChannel.open(indexPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (validLength >= 0 && indexChannel.size() > validLength) {
+			// Remove a partly written record so that new records are appended
+			// at a record boundary.
+			indexChannel.truncate(validLength);
+		}
+	}
+
+	/**
+	 * Removes temporary files left by writes that did not complete.
+	 * 
+	 * @throws IOException if an error occurs removing the files.
+	 */
+	private void removeTempFiles() throws IOException {
+		try (DirectoryStream<Path> tmps = Files.newDirectoryStream(root, "*" + TEMP_SUFFIX)) {
+			for (Path tmp : tmps) {
+				Files.deleteIfExists(tmp);
+			}
+		}
+	}
+
+	/**
+	 * Reads the index file. A partly written record at the end, from a crash
+	 * while appending, is ignored and should be truncated before appending.
+	 * 
+	 * @param indexPath The path of the index file.
+	 * 
+	 * @return the length of the index up to the end of the last complete 
+	 *         record, or -1 if the file is not a valid index.
+	 * 
+	 * @throws IOException if an error occurs reading the file.
+	 */
+	private long readIndex(Path indexPath) throws IOException {
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			final long length = channel.size();
+			if (length < INDEX_HEADER_LENGTH || length > Integer.MAX_VALUE) {
+				return -1;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Unexpected end of index " + indexPath);
+				}
+			}
+			buffer.flip();
+
+			if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) {
+				return -1;
+			}
+
+			byte[] digest = new byte[16];
+			while (buffer.remaining() >= INDEX_RECORD_LENGTH) {
+				buffer.get(digest);
+				final long size = buffer.getLong();
+				if (size == REMOVED_SIZE) {
+					index.remove(MD5Key.fromBytes(digest));
+				} else {
+					index.put(MD5Key.fromBytes(digest), size);
+				}
+			}
+			return buffer.position();
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the files in the store directories.
+	 * 
+	 * @throws IOException if an error occurs reading the directories.
+	 */
+	private void scan() throws IOException {
+		index.clear();
+		try (DirectoryStream<Path> shards = Files.newDirectoryStream(root)) {
+			for (Path shard : shards) {
+				if (Files.isDirectory(shard) == false) {
+					continue;
+				}
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+					for (Path file : files) {
+						final String name = file.getFileName().toString();
+						if (name.length() == 32 && name.startsWith(shard.getFileName().toString())) {
+							try {
+								index.put(MD5Key.fromString(name), Files.size(file));
+							} catch (IllegalArgumentException e) {
+								// Not a stored file so ignore it.
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a new index file holding the current index, replacing any existing
+	 * file.
+	 * 
+	 * @param indexPath The path of the index file.
+	 * 
+	 * @throws IOException if an error occurs writing the file.
+	 */
+	private void writeIndex(Path indexPath) throws IOException {
+		Path tmp = Files.createTempFile(root, INDEX_NAME, TEMP_SUFFIX);
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_LENGTH + index.size() * INDEX_RECORD_LENGTH);
+			buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION);
+			for (Map.Entry<MD5Key, Long> entry : index.entrySet()) {
+				buffer.put(entry.getKey().toBytes()).putLong(entry.getValue());
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Rewrites the index file so that it holds a single record for each key.
+	 * 
+	 * @throws IOException if an error occurs writing the index.
+	 */
+	public void compactIndex() throws IOException {
+		synchronized (indexLock) {
+			final Path indexPath = root.resolve(INDEX_NAME);
+			writeIndex(indexPath);
+			// The old channel appends to the file that has been replaced.
+			indexChannel.close();
+			indexChannel = FileChannel.open(indexPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+	}
+
+	/**
+	 * Returns the path of the file that holds the data for the key.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return the path of the file.
+	 */
+	public Path pathFor(MD5Key key) {
+		final String name = key.toString();
+		return root.resolve(name.substring(0, 2)).resolve(name);
+	}
+
+	/**
+	 * Checks if the store holds data for the key.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return {@code true} if the store holds the data.
+	 */
+	public boolean contains(MD5Key key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * Returns the size of the data for the key.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return the size in bytes, or -1 if the store does not hold the data.
+	 */
+	public long size(MD5Key key) {
+		Long size = index.get(key);
+		return size == null ? -1 : size;
+	}
+
+	/**
+	 * Returns the number of keys the store holds data for.
+	 * 
+	 * @return the number of keys.
+	 */
+	public int count() {
+		return index.size();
+	}
+
+	/**
+	 * Adds data to the store.
+	 * 
+	 * @param data The data to add.
+	 * 
+	 * @return the key of the data.
+	 * 
+	 * @throws IOException if an error occurs writing the data.
+	 */
+	public MD5Key put(byte[] data) throws IOException {
+		final MD5Key key = new MD5Key(data);
+		if (contains(key) == false) {
+			Path tmp = createTempFile();
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(tmp);
+				throw e;
+			}
+			commit(tmp, key, data.length);
+		}
+		return key;
+	}
+
+	/**
+	 * Adds the data read from the stream to the store. The key is calculated
+	 * while the data is written, so the data is never held in memory.
+	 * 
+	 * @param in The stream to read the data from, it is not closed.
+	 * 
+	 * @return the key of the data.
+	 * 
+	 * @throws IOException if an error occurs reading or writing the data.
+	 */
+	public MD5Key put(InputStream in) throws IOException {
+		Path tmp = createTempFile();
+		MD5Key.Hasher hasher = new MD5Key.Hasher();
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				byte[] bytes = new byte[BUFFER_SIZE];
+				int len;
+				while ((len = in.read(bytes)) >= 0) {
+					hasher.update(bytes, 0, len);
+					ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, len);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+				channel.force(true);
+			}
+			final long size = hasher.length();
+			final MD5Key key = hasher.finish();
+			if (contains(key)) {
+				Files.delete(tmp);
+			} else {
+				commit(tmp, key, size);
+			}
+			return key;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a temporary file to write data to before it is moved to the
+	 * name of its key. It is in the store directory so the move is a rename
+	 * on the same file system.
+	 * 
+	 * @return the path of the temporary file.
+	 * 
+	 * @throws IOException if an error occurs creating the file.
+	 */
+	private Path createTempFile() throws IOException {
+		return Files.createTempFile(root, TEMP_PREFIX, TEMP_SUFFIX);
+	}
+
+	/**
+	 * Moves a completely written temporary file, already forced to the disk,
+	 * to the name of its key and adds it to the index.
+	 * 
+	 * @param tmp The temporary file.
+	 * @param key The key of the data.
+	 * @param size The size of the data.
+	 * 
+	 * @throws IOException if an error occurs moving the file or writing the
+	 *                     index.
+	 */
+	private void commit(Path tmp, MD5Key key, long size) throws IOException {
+		try {
+			Files.createDirectory(pathFor(key).getParent());
+		} catch (FileAlreadyExistsException e) {
+			// Another thread or an earlier run created it.
+		}
+		Files.move(tmp, pathFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		synchronized (indexLock) {
+			if (index.putIfAbsent(key, size) == null) {
+				appendRecord(key, size);
+			}
+		}
+	}
+
+	/**
+	 * Removes a key from the index and records the removal in the index file,
+	 * so the key is not in the index when the store is opened again.
+	 * 
+	 * @param key The key to remove.
+	 * 
+	 * @throws IOException if an error occurs writing the index.
+	 */
+	private void remove(MD5Key key) throws IOException {
+		verified.remove(key);
+		synchronized (indexLock) {
+			if (index.remove(key) != null) {
+				appendRecord(key, REMOVED_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Appends a record to the index file. The index lock must be held.
+	 * 
+	 * @param key The key of the data.
+	 * @param size The size of the data, or {@link #REMOVED_SIZE}.
+	 * 
+	 * @throws IOException if an error occurs writing the index.
+	 */
+	private void appendRecord(MD5Key key, long size) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+		record.put(key.toBytes()).putLong(size).flip();
+		while (record.hasRemaining()) {
+			indexChannel.write(record);
+		}
+		indexChannel.force(true);
+	}
+
+	/**
+	 * Returns the data for the key, after checking that it matches the key.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return the data, or {@code null} if the store does not hold it.
+	 * 
+	 * @throws IOException if an error occurs reading the data or it does not
+	 *                     match the key, in which case it is removed from the
+	 *                     store.
+	 */
+	public byte[] get(MD5Key key) throws IOException {
+		if (contains(key) == false) {
+			return null;
+		}
+
+		byte[] data;
+		try {
+			data = Files.readAllBytes(pathFor(key));
+		} catch (NoSuchFileException e) {
+			remove(key);
+			return null;
+		}
+		if (new MD5Key(data).equals(key) == false) {
+			throw corrupt(key);
+		}
+		verified.add(key);
+		return data;
+	}
+
+	/**
+	 * Writes the data for the key to the channel, which should be in blocking
+	 * mode. The data is sent by the
+	 * operating system without being copied through the JVM where possible,
+	 * so it is only checked against the key the first time it is sent after
+	 * the store is opened.
+	 * 
+	 * @param key The key of the data.
+	 * @param target The channel to write the data to.
+	 * 
+	 * @return the number of bytes written, or -1 if the store does not hold
+	 *         the data.
+	 * 
+	 * @throws IOException if an error occurs reading or writing the data or
+	 *                     it does not match the key, in which case it is
+	 *                     removed from the store.
+	 */
+	public long transferTo(MD5Key key, WritableByteChannel target) throws IOException {
+		if (contains(key) == false) {
+			return -1;
+		}
+
+		try (FileChannel channel = FileChannel.open(pathFor(key), StandardOpenOption.READ)) {
+			if (verified.contains(key) == false) {
+				if (MD5Key.fromChannel(channel).equals(key) == false) {
+					throw corrupt(key);
+				}
+				verified.add(key);
+			}
+
+			final long size = channel.size();
+			long pos = 0;
+			while (pos < size) {
+				pos += channel.transferTo(pos, size - pos, target);
+			}
+			return size;
+		} catch (NoSuchFileException e) {
+			remove(key);
+			return -1;
+		}
+	}
+
+	/**
+	 * Removes a file whose data does not match its key and returns the
+	 * exception to report it.
+	 * 
+	 * @param key The key of the data.
+	 * 
+	 * @return the exception to throw.
+	 * 
+	 * @throws IOException if an error occurs deleting the file.
+	 */
+	private IOException corrupt(MD5Key key) throws IOException {
+		remove(key);
+		Files.deleteIfExists(pathFor(key));
+		return new IOException("Stored data for " + key + " does not match its key and has been removed.");
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (indexLock) {
+			indexChannel.close();
+		}
+	}
+}
@@ -20,6 +20,7 @@ import net.rptools.lib.result.ResultBuilder;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 /**
  * The BooleanDataValue represents boolean values in the scripting language.
@@ -134,11 +135,111 @@ public class BooleanDataValue implements DataValue {
         return DataValueOperations.power(this, exp);
     }
 
+    @Override
+    public DataValue add(long val) {
+        return DataValueOperations.add(this, val);
+    }
+
+    @Override
+    public DataValue add(double val) {
+        return DataValueOperations.add(this, val);
+    }
+
+    @Override
+    public DataValue subtract(long val) {
+        return DataValueOperations.subtract(this, val);
+    }
+
+    @Override
+    public DataValue subtract(double val) {
+        return DataValueOperations.subtract(this, val);
+    }
+
+    @Override
+    public DataValue multiply(long val) {
+        return DataValueOperations.multiply(this, val);
+    }
+
+    @Override
+    public DataValue multiply(double val) {
+        return DataValueOperations.multiply(this, val);
+    }
+
+    @Override
+    public DataValue divide(long val) {
+        return DataValueOperations.divide(this, val);
+    }
+
+    @Override
+    public DataValue divide(double val) {
+        return DataValueOperations.divide(this, val);
+    }
+
+    @Override
+    public DataValue remainder(long val) {
+        return DataValueOperations.remainder(this, val);
+    }
+
+    @Override
+    public DataValue remainder(double val) {
+        return DataValueOperations.remainder(this, val);
+    }
+
+    @Override
+    public DataValue power(long val) {
+        return DataValueOperations.power(this, val);
+    }
+
+    @Override
+    public DataValue power(double val) {
+        return DataValueOperations.power(this, val);
+    }
+
+    @Override
+    public int compareTo(long val) {
+        return DataValueOperations.compare(this, val);
+    }
+
+    @Override
+    public int compareTo(double val) {
+        return DataValueOperations.compare(this, val);
+    }
+
     @Override
     public DataValue negate() {
         throw new UnsupportedOperationException("Can not add negate values.");
     }
 
+    @Override
+    public DataValue with(String key, DataValue val) {
+        throw new UnsupportedOperationException("Can not perform dictionary operations on a boolean.");
+    }
+
+    @Override
+    public DataValue without(String key) {
+        throw new UnsupportedOperationException("Can not perform dictionary operations on a boolean.");
+    }
+
+    @Override
+    public DataValue merge(DataValue dict) {
+        throw new UnsupportedOperationException("Can not perform dictionary operations on a boolean.");
+    }
+
+    @Override
+    public DataValue slice(int from, int to) {
+        throw new UnsupportedOperationException("Can not perform list operations on a boolean.");
+    }
+
+    @Override
+    public DataValue reverse() {
+        throw new UnsupportedOperationException("Can not perform list operations on a boolean.");
+    }
+
+    @Override
+    public DataValue map(UnaryOperator<DataValue> fn) {
+        throw new UnsupportedOperationException("Can not perform list operations on a boolean.");
+    }
+
     @Override
     public boolean hasLabel() {
         return false;
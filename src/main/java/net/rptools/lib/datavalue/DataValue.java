@@ -16,6 +16,7 @@ package net.rptools.lib.datavalue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 
@@ -148,6 +149,7 @@ public interface DataValue {
 	 * @return a new DataValue with the result.
 	 * 
 	 * @throws UnsupportedOperationException if multiplication is not supported on either value.
+	 * @throws StringTooLongException if a string would be repeated to more than the maximum string length.
 	 * 
 	 */	
 	public DataValue multiply(DataValue val);
@@ -188,6 +190,188 @@ public interface DataValue {
 	 */	
 	public DataValue power(DataValue exp);
 
+	/**
+	 * Returns the result of a number added to this DataValue.
+	 * This is equivalent to {@code add(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to add to this DataValue.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if addition is not supported on this value.
+	 */
+	public DataValue add(long val);
+
+	/**
+	 * Returns the result of a number added to this DataValue.
+	 * This is equivalent to {@code add(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to add to this DataValue.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if addition is not supported on this value.
+	 */
+	public DataValue add(double val);
+
+	/**
+	 * Returns the result of a number subtracted from this DataValue.
+	 * This is equivalent to {@code subtract(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to subtract from this DataValue.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if subtraction is not supported on this value.
+	 */
+	public DataValue subtract(long val);
+
+	/**
+	 * Returns the result of a number subtracted from this DataValue.
+	 * This is equivalent to {@code subtract(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to subtract from this DataValue.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if subtraction is not supported on this value.
+	 */
+	public DataValue subtract(double val);
+
+	/**
+	 * Returns the result of this DataValue multiplied by a number.
+	 * This is equivalent to {@code multiply(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to multiply this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if multiplication is not supported on this value.
+	 * @throws StringTooLongException if a string would be repeated to more than the maximum string length.
+	 */
+	public DataValue multiply(long val);
+
+	/**
+	 * Returns the result of this DataValue multiplied by a number.
+	 * This is equivalent to {@code multiply(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to multiply this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if multiplication is not supported on this value.
+	 * @throws StringTooLongException if a string would be repeated to more than the maximum string length.
+	 */
+	public DataValue multiply(double val);
+
+	/**
+	 * Returns the result of this DataValue divided by a number.
+	 * This is equivalent to {@code divide(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to divide this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if division is not supported on this value.
+	 */
+	public DataValue divide(long val);
+
+	/**
+	 * Returns the result of this DataValue divided by a number.
+	 * This is equivalent to {@code divide(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to divide this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if division is not supported on this value.
+	 */
+	public DataValue divide(double val);
+
+	/**
+	 * Returns the remainder when this DataValue is divided by a number.
+	 * This is equivalent to {@code remainder(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to divide this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if division is not supported on this value.
+	 */
+	public DataValue remainder(long val);
+
+	/**
+	 * Returns the remainder when this DataValue is divided by a number.
+	 * This is equivalent to {@code remainder(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to divide this DataValue by.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if division is not supported on this value.
+	 */
+	public DataValue remainder(double val);
+
+	/**
+	 * Returns the result of raising this DataValue to the power of a number.
+	 * This is equivalent to {@code power(DataValueFactory.longValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to raise this DataValue by the power of.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if exponentiation is not supported on this value.
+	 */
+	public DataValue power(long val);
+
+	/**
+	 * Returns the result of raising this DataValue to the power of a number.
+	 * This is equivalent to {@code power(DataValueFactory.doubleValue(val))} but
+	 * numeric values can perform it without creating the intermediate DataValue.
+	 * 
+	 * @param val the number to raise this DataValue by the power of.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if exponentiation is not supported on this value.
+	 */
+	public DataValue power(double val);
+
+	/**
+	 * Compares the numeric value of this DataValue with a number.
+	 * 
+	 * @param val the number to compare this DataValue to.
+	 * 
+	 * @return a negative number, zero or a positive number if this value is less than,
+	 *         equal to, or greater than the number.
+	 * 
+	 * @throws NumberFormatException if the value can not be converted to a number.
+	 */
+	public int compareTo(long val);
+
+	/**
+	 * Compares the numeric value of this DataValue with a number.
+	 * 
+	 * @param val the number to compare this DataValue to.
+	 * 
+	 * @return a negative number, zero or a positive number if this value is less than,
+	 *         equal to, or greater than the number.
+	 * 
+	 * @throws NumberFormatException if the value can not be converted to a number.
+	 */
+	public int compareTo(double val);
+
 	/**
 	 * Returns the negated value of this DataValue.
 	 * 
@@ -197,6 +381,85 @@ public interface DataValue {
 	 * 
 	 */	
 	public DataValue negate();
+
+	/**
+	 * Returns a new {@link DataType#DICTIONARY} DataValue with the same mappings
+	 * as this DataValue and the specified mapping added. If there is already a
+	 * mapping for the name it is replaced. 
+	 * 
+	 * @param key the name to map.
+	 * @param val the DataValue to map the name to.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if this value is not a dictionary.
+	 */
+	public DataValue with(String key, DataValue val);
+
+	/**
+	 * Returns a new {@link DataType#DICTIONARY} DataValue with the same mappings
+	 * as this DataValue except for the specified name.
+	 * 
+	 * @param key the name to remove.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if this value is not a dictionary.
+	 */
+	public DataValue without(String key);
+
+	/**
+	 * Returns a new {@link DataType#DICTIONARY} DataValue with the mappings of this 
+	 * DataValue and the specified dictionary. Where both contain a mapping for the
+	 * same name the mapping from the specified dictionary is used.
+	 * 
+	 * @param dict the dictionary to merge with this one.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if either value is not a dictionary.
+	 */
+	public DataValue merge(DataValue dict);
+
+	/**
+	 * Returns a new {@link DataType#LIST} DataValue holding the values of this
+	 * list from one index up to, but not including, another. The new list shares
+	 * the values of this list instead of copying them.
+	 * 
+	 * @param from the index of the first value to include.
+	 * @param to the index after the last value to include.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if this value is not a list.
+	 * @throws IndexOutOfBoundsException if either index is outside the list or
+	 *         {@code from} is greater than {@code to}.
+	 */
+	public DataValue slice(int from, int to);
+
+	/**
+	 * Returns a new {@link DataType#LIST} DataValue holding the values of this
+	 * list in reverse order, without copying them.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if this value is not a list.
+	 */
+	public DataValue reverse();
+
+	/**
+	 * Returns a new {@link DataType#LIST} DataValue holding the result of a 
+	 * function applied to each of the values of this list. The function is 
+	 * applied to each value when it is first needed rather than when the new 
+	 * list is created, so it should not have side effects.
+	 * 
+	 * @param fn the function to apply, which must not return {@code null}.
+	 * 
+	 * @return a new DataValue with the result.
+	 * 
+	 * @throws UnsupportedOperationException if this value is not a list.
+	 */
+	public DataValue map(UnaryOperator<DataValue> fn);
 	
 	/**
 	 * Returns {@code true} if this DataValue has a label attached to it.
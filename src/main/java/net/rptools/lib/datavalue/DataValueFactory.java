@@ -14,9 +14,7 @@
  */
 package net.rptools.lib.datavalue;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 import net.rptools.lib.result.Result;
@@ -33,23 +31,32 @@ public final class DataValueFactory {
 	/**
 	 * Creates a {@link DataValue} of type {@link DataType#LONG}.
 	 * 
+	 * Small values are returned from a preallocated cache so the returned
+	 * {@link DataValue} may not be a new instance. The range of the cache 
+	 * can be changed with the {@code net.rptools.lib.datavalue.LongDataValue.cacheLow}
+	 * and {@code net.rptools.lib.datavalue.LongDataValue.cacheHigh} system properties
+	 * (defaults -1024 and 65536).
+	 * 
 	 * @param val the long value to create a {@link DataValue} for.
 	 * 
-	 * @return the new {@link DataValue}.
+	 * @return the {@link DataValue}.
 	 */
 	public static DataValue longValue(long val) {
-		return new LongDataValue(val);
+		return LongDataValue.getLongDataValue(val);
 	}
 	
 	/**
 	 * Creates a {@link DataValue} of type {@link DataType#DOUBLE}.
 	 * 
+	 * Common values such as 0.0, 0.5 and 1.0 are returned from a preallocated 
+	 * cache so the returned {@link DataValue} may not be a new instance.
+	 * 
 	 * @param val the double value to create a {@link DataValue} for.
 	 * 
-	 * @return the new {@link DataValue}.
+	 * @return the {@link DataValue}.
 	 */
 	public static DataValue doubleValue(double val) {
-		return new DoubleDataValue(val);
+		return DoubleDataValue.getDoubleDataValue(val);
 	}
 	
 	/**
@@ -147,12 +154,27 @@ public final class DataValueFactory {
 	 * @return a {@link DataType#LIST} DataType containing the values.
 	 */
 	public static DataValue doubleListValue(Collection<Double> vals) {
-		List<DataValue> lst = new ArrayList<>(vals.size());
+		double[] arr = new double[vals.size()];
+		int i = 0;
 		for (Double d : vals) {
-			lst.add(doubleValue(d));
+			arr[i++] = d;
 		}
 		
-		return listValue(lst);
+		return ListDataValue.fromDoubleArray(arr);
+	}
+	
+	/**
+	 * Creates a {@link DataValue} of type {@link DataType#LIST} containing
+	 * {@link DataType#DOUBLE} values created from the array that is passed in.
+	 * The values are stored in a double array and the DataValues for them are 
+	 * only created when they are retrieved from the list.
+	 * 
+	 * @param vals The double values to create DataTypes for.
+	 * 
+	 * @return a {@link DataType#LIST} DataType containing the values.
+	 */
+	public static DataValue doubleListValue(double[] vals) {
+		return ListDataValue.fromDoubleArray(vals.clone());
 	}
 	
 	/**
@@ -164,12 +186,12 @@ public final class DataValueFactory {
 	 * @return a {@link DataType#STRING} DataType containing the values.
 	 */
 	public static DataValue stringListValue(Collection<String> vals) {
-		List<DataValue> lst = new ArrayList<>(vals.size());
+		ListDataValue.Builder builder = new ListDataValue.Builder(vals.size());
 		for (String s : vals) {
-			lst.add(stringValue(s));
+			builder.add(stringValue(s));
 		}
 		
-		return listValue(lst);
+		return builder.build();
 	}
 
 	/**
@@ -181,12 +203,27 @@ public final class DataValueFactory {
 	 * @return a {@link DataType#LIST} DataType containing the values.
 	 */
 	public static DataValue longListValue(Collection<Long> vals) {
-		List<DataValue> lst = new ArrayList<>(vals.size());
+		long[] arr = new long[vals.size()];
+		int i = 0;
 		for (Long l : vals) {
-			lst.add(longValue(l));
+			arr[i++] = l;
 		}
 		
-		return listValue(lst);
+		return ListDataValue.fromLongArray(arr);
+	}
+
+	/**
+	 * Creates a {@link DataValue} of type {@link DataType#LIST} containing
+	 * {@link DataType#LONG} values created from the array that is passed in.
+	 * The values are stored in a long array and the DataValues for them are 
+	 * only created when they are retrieved from the list.
+	 * 
+	 * @param vals The long values to create DataTypes for.
+	 * 
+	 * @return a {@link DataType#LIST} DataType containing the values.
+	 */
+	public static DataValue longListValue(long[] vals) {
+		return ListDataValue.fromLongArray(vals.clone());
 	}
 
 
@@ -0,0 +1,460 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import static net.rptools.lib.datavalue.DataValueOutput.ROLL_PRESENT;
+import static net.rptools.lib.datavalue.DataValueOutput.ROLL_SUM;
+import static net.rptools.lib.datavalue.DataValueOutput.ROLL_VERBOSE;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_DICTIONARY;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_DOUBLE;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_DOUBLE_LIST;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_FALSE;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_LABELED;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_LIST;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_LONG;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_LONG_LIST;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_NULL;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_RESULT;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_STRING;
+import static net.rptools.lib.datavalue.DataValueOutput.TAG_TRUE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.rptools.lib.result.ResultBuilder;
+import net.rptools.lib.result.RollExpression;
+
+/**
+ * Reads {@link DataValue}s written by {@link DataValueOutput}. Values are read
+ * from the source through a small buffer and built as they are read.
+ * 
+ * When reading from a stream more bytes than the value needs may be read
+ * from the stream, so all the values in a stream should be read with the
+ * same DataValueInput. When reading from a buffer its position is left at
+ * the end of the value that was read.
+ * 
+ * The lengths in the input are not trusted, space is only allocated for data
+ * as it is read, so corrupt or malicious input causes an exception rather
+ * than allocating huge amounts of memory.
+ *
+ */
+public final class DataValueInput {
+
+	/** The size of the buffer. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The largest number of values that space is allocated for in advance. */
+	private static final int MAX_INITIAL_CAPACITY = 4096;
+
+	/**
+	 * The deepest that lists, dictionaries, results and labels can be nested,
+	 * which {@link DataValueOutput} also enforces.
+	 */
+	static final int MAX_DEPTH = 512;
+
+	/** The stream being read from, {@code null} if reading from a buffer. */
+	private final InputStream in;
+
+	/** The buffer being read from, {@code null} if reading from a stream. */
+	private final ByteBuffer source;
+
+	/** Bytes read from the source. */
+	private final byte[] buf = new byte[BUFFER_SIZE];
+
+	/** The position of the next byte in {@link #buf}. */
+	private int pos;
+
+	/** The number of bytes in {@link #buf}. */
+	private int limit;
+
+	/** How deeply nested the value being read is. */
+	private int depth;
+
+	/**
+	 * Creates a new DataValueInput that reads from a stream.
+	 * 
+	 * @param is The stream to read from.
+	 */
+	public DataValueInput(InputStream is) {
+		in = is;
+		source = null;
+	}
+
+	/**
+	 * Creates a new DataValueInput that reads from a buffer, starting at its
+	 * position.
+	 * 
+	 * @param buffer The buffer to read from.
+	 */
+	public DataValueInput(ByteBuffer buffer) {
+		in = null;
+		source = buffer;
+	}
+
+	/**
+	 * Reads a value from its binary form.
+	 * 
+	 * @param data The bytes of the binary form.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if the data is not a valid value.
+	 */
+	public static DataValue fromBytes(byte[] data) throws IOException {
+		return new DataValueInput(ByteBuffer.wrap(data)).read();
+	}
+
+	/**
+	 * Reads the next value.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws EOFException if the end of the input is reached before the end
+	 *                      of the value.
+	 * @throws IOException if an error occurs reading from the stream or the
+	 *                     input is not valid.
+	 */
+	public DataValue read() throws IOException {
+		depth = 0;
+		try {
+			return readValue();
+		} finally {
+			if (source != null) {
+				// Return the bytes that were read ahead to the buffer.
+				source.position(source.position() - (limit - pos));
+				pos = 0;
+				limit = 0;
+			}
+		}
+	}
+
+	/**
+	 * Makes sure the specified number of bytes are available in the buffer.
+	 * 
+	 * @param len The number of bytes, no more than the size of the buffer.
+	 * 
+	 * @throws IOException if an error occurs reading from the stream.
+	 */
+	private void require(int len) throws IOException {
+		if (limit - pos >= len) {
+			return;
+		}
+		System.arraycopy(buf, pos, buf, 0, limit - pos);
+		limit -= pos;
+		pos = 0;
+		while (limit < len) {
+			int n;
+			if (source != null) {
+				n = Math.min(source.remaining(), buf.length - limit);
+				source.get(buf, limit, n);
+				if (n == 0) {
+					n = -1;
+				}
+			} else {
+				n = in.read(buf, limit, buf.length - limit);
+			}
+			if (n < 0) {
+				throw new EOFException("Unexpected end of DataValue input.");
+			}
+			limit += n;
+		}
+	}
+
+	/**
+	 * Reads a value and its tag.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readValue() throws IOException {
+		final int tag = readByte();
+		switch (tag) {
+			case TAG_NULL:
+				return DataValueFactory.nullDataValue();
+			case TAG_FALSE:
+				return DataValueFactory.booleanValue(false);
+			case TAG_TRUE:
+				return DataValueFactory.booleanValue(true);
+			case TAG_LONG:
+				return DataValueFactory.longValue(readLong());
+			case TAG_DOUBLE:
+				return DataValueFactory.doubleValue(readDouble());
+			case TAG_STRING:
+				return DataValueFactory.stringValue(readString());
+			case TAG_LIST:
+				return readList();
+			case TAG_LONG_LIST:
+				return readLongList();
+			case TAG_DOUBLE_LIST:
+				return readDoubleList();
+			case TAG_DICTIONARY:
+				return readDictionary();
+			case TAG_RESULT:
+				return readResult();
+			case TAG_LABELED:
+				final String name = readString();
+				final long index = readLong();
+				if (index < Integer.MIN_VALUE || index > Integer.MAX_VALUE) {
+					throw new StreamCorruptedException("Invalid label index " + index);
+				}
+				enter();
+				final DataValue val = readValue();
+				depth--;
+				return DataValueFactory.labeledValue(val, new DataLabel(name, (int) index));
+			default:
+				throw new StreamCorruptedException("Invalid DataValue tag " + tag);
+		}
+	}
+
+	/**
+	 * Records that a nested value is being read.
+	 * 
+	 * @throws StreamCorruptedException if the values are nested too deeply.
+	 */
+	private void enter() throws StreamCorruptedException {
+		if (++depth > MAX_DEPTH) {
+			throw new StreamCorruptedException("DataValues are nested too deeply.");
+		}
+	}
+
+	/**
+	 * Reads a list value.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readList() throws IOException {
+		final int size = readLength();
+		enter();
+		ListDataValue.Builder builder = new ListDataValue.Builder(Math.min(size, MAX_INITIAL_CAPACITY));
+		for (int i = 0; i < size; i++) {
+			builder.add(readValue());
+		}
+		depth--;
+		return builder.build();
+	}
+
+	/**
+	 * Reads a list value held as an array of longs.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readLongList() throws IOException {
+		final int size = readLength();
+		long[] vals = new long[Math.min(size, MAX_INITIAL_CAPACITY)];
+		for (int i = 0; i < size; i++) {
+			if (i == vals.length) {
+				vals = Arrays.copyOf(vals, (int) Math.min(size, vals.length * 2L));
+			}
+			vals[i] = readLong();
+		}
+		return ListDataValue.fromLongArray(vals);
+	}
+
+	/**
+	 * Reads a list value held as an array of doubles.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readDoubleList() throws IOException {
+		final int size = readLength();
+		double[] vals = new double[Math.min(size, MAX_INITIAL_CAPACITY)];
+		for (int i = 0; i < size; i++) {
+			if (i == vals.length) {
+				vals = Arrays.copyOf(vals, (int) Math.min(size, vals.length * 2L));
+			}
+			vals[i] = readDouble();
+		}
+		return ListDataValue.fromDoubleArray(vals);
+	}
+
+	/**
+	 * Reads a dictionary value.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readDictionary() throws IOException {
+		final int size = readLength();
+		enter();
+		DictionaryDataValue.Builder builder = new DictionaryDataValue.Builder();
+		for (int i = 0; i < size; i++) {
+			final String key = readString();
+			builder.put(key, readValue());
+		}
+		depth--;
+		return builder.build();
+	}
+
+	/**
+	 * Reads a result value.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the input is not valid.
+	 */
+	private DataValue readResult() throws IOException {
+		enter();
+		ResultBuilder builder = new ResultBuilder();
+		builder.setValue(readValue());
+		builder.setDetailedResult(readValue());
+		final int size = readLength();
+		List<DataValue> values = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+		for (int i = 0; i < size; i++) {
+			values.add(readValue());
+		}
+		builder.setIndividualValues(values);
+		depth--;
+
+		final int flags = readByte();
+		if ((flags & ROLL_PRESENT) != 0) {
+			final String rollString = readString();
+			switch (flags & (ROLL_VERBOSE | ROLL_SUM)) {
+				case ROLL_SUM:
+					builder.setRollExpression(RollExpression.getRollExpression(rollString));
+					break;
+				case ROLL_VERBOSE:
+					builder.setRollExpression(RollExpression.getDetailedRollExpression(rollString));
+					break;
+				case ROLL_VERBOSE | ROLL_SUM:
+					builder.setRollExpression(RollExpression.getDetailedSummedRollExpression(rollString));
+					break;
+				default:
+					throw new StreamCorruptedException("Invalid roll expression flags " + flags);
+			}
+		}
+		return DataValueFactory.resultValue(builder.toResult());
+	}
+
+	/**
+	 * Reads a single byte.
+	 * 
+	 * @return the byte as an unsigned value.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private int readByte() throws IOException {
+		require(1);
+		return buf[pos++] & 0xff;
+	}
+
+	/**
+	 * Reads a variable length integer.
+	 * 
+	 * @return the bits of the integer.
+	 * 
+	 * @throws IOException if an error occurs reading or the integer is too long.
+	 */
+	private long readVarLong() throws IOException {
+		long val = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = readByte();
+			val |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return val;
+			}
+		}
+		throw new StreamCorruptedException("Variable length integer is too long.");
+	}
+
+	/**
+	 * Reads a length.
+	 * 
+	 * @return the length.
+	 * 
+	 * @throws IOException if an error occurs reading or the length is not valid.
+	 */
+	private int readLength() throws IOException {
+		final long len = readVarLong();
+		if (len < 0 || len > Integer.MAX_VALUE) {
+			throw new StreamCorruptedException("Invalid length " + len);
+		}
+		return (int) len;
+	}
+
+	/**
+	 * Reads a zig-zag encoded long.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private long readLong() throws IOException {
+		final long bits = readVarLong();
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+
+	/**
+	 * Reads the 8 bytes of a double.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private double readDouble() throws IOException {
+		require(8);
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (buf[pos++] & 0xff);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Reads a string written as its UTF-8 length followed by the UTF-8 bytes.
+	 * 
+	 * @return the string.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private String readString() throws IOException {
+		final int len = readLength();
+		if (len <= buf.length) {
+			require(len);
+			final String str = new String(buf, pos, len, StandardCharsets.UTF_8);
+			pos += len;
+			return str;
+		}
+
+		// Longer than the buffer so gather the bytes a buffer full at a time.
+		byte[] bytes = new byte[Math.min(len, buf.length * 16)];
+		int count = 0;
+		while (count < len) {
+			final int n = Math.min(len - count, buf.length);
+			require(n);
+			if (count + n > bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(len, bytes.length * 2L));
+			}
+			System.arraycopy(buf, pos, bytes, count, n);
+			pos += n;
+			count += n;
+		}
+		return new String(bytes, 0, len, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,554 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Reads JSON text and creates {@link DataValue}s directly as it is parsed,
+ * without building any other representation of the JSON first.
+ * 
+ * <ul>
+ *   <li>Objects become {@link DataType#DICTIONARY} values with the keys in
+ *       the order they appear. If a key appears more than once the last
+ *       value is used, at the position of the first.</li>
+ *   <li>Arrays become {@link DataType#LIST} values.</li>
+ *   <li>Numbers without a fraction or exponent that fit in a long become
+ *       {@link DataType#LONG} values, all other numbers become 
+ *       {@link DataType#DOUBLE} values.</li>
+ *   <li>Strings, {@code true}, {@code false} and {@code null} become
+ *       {@link DataType#STRING}, {@link DataType#BOOLEAN} and
+ *       {@link DataType#NULL} values.</li>
+ * </ul>
+ * 
+ * The input may hold more than one JSON value separated by white space, each
+ * call to {@link #read()} returns the next one.
+ *
+ */
+public final class DataValueJsonReader {
+
+	/** The size of the buffer. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The deepest that arrays and objects can be nested, which
+	 * {@link DataValueJsonWriter} also enforces.
+	 */
+	static final int MAX_DEPTH = 512;
+
+	/** The most digits a number can have and still be accumulated as a long without overflow. */
+	private static final int MAX_LONG_DIGITS = 18;
+
+	/** The reader to read the JSON from. */
+	private final Reader in;
+
+	/** Characters read from the reader. */
+	private final char[] buf = new char[BUFFER_SIZE];
+
+	/** The position of the next character in {@link #buf}. */
+	private int pos;
+
+	/** The number of characters in {@link #buf}. */
+	private int limit;
+
+	/** The number of characters discarded from the buffer, used to report positions. */
+	private long offset;
+
+	/** How deeply nested the value being read is. */
+	private int depth;
+
+	/** Used to build strings and numbers that can not be taken directly from the buffer. */
+	private final StringBuilder sb = new StringBuilder();
+
+	/**
+	 * Creates a new DataValueJsonReader.
+	 * 
+	 * @param reader The reader to read the JSON from.
+	 */
+	public DataValueJsonReader(Reader reader) {
+		in = reader;
+	}
+
+	/**
+	 * Creates a DataValue from JSON text holding a single value.
+	 * 
+	 * @param json The JSON text.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if the text is not a single valid JSON value.
+	 */
+	public static DataValue fromJson(String json) throws IOException {
+		DataValueJsonReader reader = new DataValueJsonReader(new StringReader(json));
+		DataValue val = reader.read();
+		if (reader.skipWhitespace()) {
+			throw reader.error("Unexpected text after JSON value");
+		}
+		return val;
+	}
+
+	/**
+	 * Reads the next JSON value.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws EOFException if there are no more values or the input ends part
+	 *                      way through a value.
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	public DataValue read() throws IOException {
+		depth = 0;
+		if (skipWhitespace() == false) {
+			throw new EOFException("No more JSON values.");
+		}
+		return readValue();
+	}
+
+	/**
+	 * Reads more characters in to the buffer, keeping any characters from
+	 * {@code keep} onwards.
+	 * 
+	 * @param keep The position of the first character to keep.
+	 * 
+	 * @return the number of characters the kept characters moved back by, or
+	 *         -1 if the end of the input has been reached.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private int fill(int keep) throws IOException {
+		final int shift = keep;
+		System.arraycopy(buf, keep, buf, 0, limit - keep);
+		limit -= shift;
+		pos -= shift;
+		offset += shift;
+		final int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0) {
+			return -1;
+		}
+		limit += n;
+		return shift;
+	}
+
+	/**
+	 * Skips white space.
+	 * 
+	 * @return {@code false} if the end of the input has been reached.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private boolean skipWhitespace() throws IOException {
+		while (true) {
+			while (pos < limit) {
+				final char c = buf[pos];
+				if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+					return true;
+				}
+				pos++;
+			}
+			if (fill(pos) < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the next character that is not white space, without consuming it.
+	 * 
+	 * @return the character.
+	 * 
+	 * @throws IOException if an error occurs reading or the end of the input
+	 *                     has been reached.
+	 */
+	private char peek() throws IOException {
+		if (skipWhitespace() == false) {
+			throw new EOFException("Unexpected end of JSON input.");
+		}
+		return buf[pos];
+	}
+
+	/**
+	 * Returns the next character.
+	 * 
+	 * @return the character.
+	 * 
+	 * @throws IOException if an error occurs reading or the end of the input
+	 *                     has been reached.
+	 */
+	private char next() throws IOException {
+		if (pos == limit && fill(pos) < 0) {
+			throw new EOFException("Unexpected end of JSON input.");
+		}
+		return buf[pos++];
+	}
+
+	/**
+	 * Creates an exception reporting invalid JSON at the current position.
+	 * 
+	 * @param msg The description of the problem.
+	 * 
+	 * @return the exception.
+	 */
+	private IOException error(String msg) {
+		return new IOException(msg + " at offset " + (offset + pos) + " of JSON input.");
+	}
+
+	/**
+	 * Reads a value starting at the current character.
+	 * 
+	 * @return the value.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private DataValue readValue() throws IOException {
+		final char c = peek();
+		switch (c) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				pos++;
+				return DataValueFactory.stringValue(readString());
+			case 't':
+				readLiteral("true");
+				return DataValueFactory.booleanValue(true);
+			case 'f':
+				readLiteral("false");
+				return DataValueFactory.booleanValue(false);
+			case 'n':
+				readLiteral("null");
+				return DataValueFactory.nullDataValue();
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return readNumber();
+				}
+				throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	/**
+	 * Reads one of the literal words.
+	 * 
+	 * @param literal The word expected.
+	 * 
+	 * @throws IOException if an error occurs reading or the word is not there.
+	 */
+	private void readLiteral(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (next() != literal.charAt(i)) {
+				pos--;
+				throw error("Expected '" + literal + "'");
+			}
+		}
+	}
+
+	/**
+	 * Records that a nested value is being read.
+	 * 
+	 * @throws IOException if the values are nested too deeply.
+	 */
+	private void enter() throws IOException {
+		if (++depth > MAX_DEPTH) {
+			throw error("JSON is nested too deeply");
+		}
+	}
+
+	/**
+	 * Reads an object.
+	 * 
+	 * @return the dictionary value.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private DataValue readObject() throws IOException {
+		enter();
+		pos++;
+		DictionaryDataValue.Builder builder = new DictionaryDataValue.Builder();
+		if (peek() == '}') {
+			pos++;
+		} else {
+			while (true) {
+				if (peek() != '"') {
+					throw error("Expected a string key");
+				}
+				pos++;
+				final String key = readString();
+				if (peek() != ':') {
+					throw error("Expected ':'");
+				}
+				pos++;
+				builder.put(key, readValue());
+
+				final char c = peek();
+				pos++;
+				if (c == '}') {
+					break;
+				} else if (c != ',') {
+					pos--;
+					throw error("Expected ',' or '}'");
+				}
+			}
+		}
+		depth--;
+		return builder.build();
+	}
+
+	/**
+	 * Reads an array.
+	 * 
+	 * @return the list value.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private DataValue readArray() throws IOException {
+		enter();
+		pos++;
+		ListDataValue.Builder builder = new ListDataValue.Builder();
+		if (peek() == ']') {
+			pos++;
+		} else {
+			while (true) {
+				builder.add(readValue());
+
+				final char c = peek();
+				pos++;
+				if (c == ']') {
+					break;
+				} else if (c != ',') {
+					pos--;
+					throw error("Expected ',' or ']'");
+				}
+			}
+		}
+		depth--;
+		return builder.build();
+	}
+
+	/**
+	 * Reads a string, after the opening quote.
+	 * 
+	 * @return the string.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private String readString() throws IOException {
+		// Most strings have no escapes and are in the buffer, so take them directly.
+		int start = pos;
+		while (true) {
+			while (pos < limit) {
+				final char c = buf[pos];
+				if (c == '"') {
+					final String str = new String(buf, start, pos - start);
+					pos++;
+					return str;
+				} else if (c == '\\' || c < 0x20) {
+					sb.setLength(0);
+					sb.append(buf, start, pos - start);
+					return readEscapedString();
+				}
+				pos++;
+			}
+			final int shift = fill(start);
+			if (shift < 0) {
+				throw new EOFException("Unexpected end of JSON input in string.");
+			}
+			start -= shift;
+			if (limit == buf.length && start == 0) {
+				// The string is longer than the buffer.
+				sb.setLength(0);
+				sb.append(buf, start, pos - start);
+				return readEscapedString();
+			}
+		}
+	}
+
+	/**
+	 * Reads the rest of a string that has escapes or is longer than the buffer,
+	 * appending it to {@link #sb}.
+	 * 
+	 * @return the string.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private String readEscapedString() throws IOException {
+		while (true) {
+			final char c = next();
+			if (c == '"') {
+				return sb.toString();
+			} else if (c < 0x20) {
+				pos--;
+				throw error("Control character in string");
+			} else if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+
+			final char e = next();
+			switch (e) {
+				case '"':
+				case '\\':
+				case '/':
+					sb.append(e);
+					break;
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					int cp = 0;
+					for (int i = 0; i < 4; i++) {
+						final int digit = Character.digit(next(), 16);
+						if (digit < 0) {
+							pos--;
+							throw error("Invalid unicode escape");
+						}
+						cp = (cp << 4) | digit;
+					}
+					sb.append((char) cp);
+					break;
+				default:
+					pos--;
+					throw error("Invalid escape '\\" + e + "'");
+			}
+		}
+	}
+
+	/**
+	 * Reads a number.
+	 * 
+	 * @return a long value if the number is an integer that fits in a long,
+	 *         otherwise a double value.
+	 * 
+	 * @throws IOException if an error occurs reading or the JSON is not valid.
+	 */
+	private DataValue readNumber() throws IOException {
+		sb.setLength(0);
+		boolean integer = true;
+		boolean negative = false;
+		long val = 0;
+		int digits = 0;
+
+		int c = next();
+		if (c == '-') {
+			negative = true;
+			sb.append((char) c);
+			c = next();
+		}
+		if (c < '0' || c > '9') {
+			pos--;
+			throw error("Expected a digit");
+		}
+		if (c == '0') {
+			sb.append((char) c);
+			c = nextOrEnd();
+		} else {
+			while (c >= '0' && c <= '9') {
+				sb.append((char) c);
+				val = val * 10 + (c - '0');
+				digits++;
+				c = nextOrEnd();
+			}
+		}
+
+		if (c == '.') {
+			integer = false;
+			sb.append((char) c);
+			c = readDigits(nextOrEnd());
+		}
+		if (c == 'e' || c == 'E') {
+			integer = false;
+			sb.append((char) c);
+			c = nextOrEnd();
+			if (c == '+' || c == '-') {
+				sb.append((char) c);
+				c = nextOrEnd();
+			}
+			c = readDigits(c);
+		}
+		if (c >= 0) {
+			// Give back the character after the number.
+			pos--;
+		}
+
+		if (integer) {
+			if (digits <= MAX_LONG_DIGITS) {
+				return DataValueFactory.longValue(negative ? -val : val);
+			}
+			try {
+				return DataValueFactory.longValue(Long.parseLong(sb.toString()));
+			} catch (NumberFormatException e) {
+				// Too large for a long.
+			}
+		}
+		final double d = Double.parseDouble(sb.toString());
+		if (Double.isInfinite(d)) {
+			// DataValueJsonWriter can not write infinite values back.
+			throw error("Number out of range");
+		}
+		return DataValueFactory.doubleValue(d);
+	}
+
+	/**
+	 * Reads at least one digit, appending them to {@link #sb}.
+	 * 
+	 * @param first The first character, already read.
+	 * 
+	 * @return the character after the digits, or -1 at the end of the input.
+	 * 
+	 * @throws IOException if an error occurs reading or there is no digit.
+	 */
+	private int readDigits(int first) throws IOException {
+		int c = first;
+		if (c < '0' || c > '9') {
+			if (c >= 0) {
+				pos--;
+			}
+			throw error("Expected a digit");
+		}
+		while (c >= '0' && c <= '9') {
+			sb.append((char) c);
+			c = nextOrEnd();
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the next character, or -1 at the end of the input.
+	 * 
+	 * @return the character.
+	 * 
+	 * @throws IOException if an error occurs reading.
+	 */
+	private int nextOrEnd() throws IOException {
+		if (pos == limit && fill(pos) < 0) {
+			return -1;
+		}
+		return buf[pos++];
+	}
+}
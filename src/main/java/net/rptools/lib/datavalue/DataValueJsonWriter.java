@@ -0,0 +1,481 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link DataValue}s as JSON text, directly to the destination as
+ * the tree of values is walked, through a small buffer. The JSON can be read
+ * back with {@link DataValueJsonReader}.
+ * 
+ * JSON can not hold all of the information in a DataValue, so
+ * <ul>
+ *   <li>{@link DataType#RESULT} values are written as the value of the
+ *       result.</li>
+ *   <li>Labels are not written, only the labeled value.</li>
+ *   <li>{@link DataType#DOUBLE} values that are whole numbers are written with
+ *       a fraction (e.g. {@code 2.0}) so that they are read back as doubles,
+ *       but NaN and infinite values can not be written.</li>
+ * </ul>
+ * 
+ * When more than one value is written they are separated by new lines.
+ *
+ */
+public final class DataValueJsonWriter implements Flushable {
+
+	/** The size of the buffer. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The largest number of characters a number or escape takes. */
+	private static final int MAX_PRIMITIVE_LENGTH = 32;
+
+	/** The hexadecimal digits for unicode escapes. */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/** The writer being written to, {@code null} if writing to a buffer. */
+	private final Writer out;
+
+	/** The buffer being written to, {@code null} if writing to a writer. */
+	private final ByteBuffer target;
+
+	/** The encoder used to write to {@link #target}. */
+	private final CharsetEncoder encoder;
+
+	/** Characters waiting to be written. */
+	private final char[] buf = new char[BUFFER_SIZE];
+
+	/** The number of characters waiting to be written. */
+	private int pos;
+
+	/** How deeply nested the array or object being written is. */
+	private int depth;
+
+	/** Has a value been written yet. */
+	private boolean written;
+
+	/**
+	 * Creates a new DataValueJsonWriter that writes to a {@link Writer}. Values
+	 * are buffered, {@link #flush()} must be called to make sure they have been
+	 * written to the writer.
+	 * 
+	 * @param writer The writer to write to.
+	 */
+	public DataValueJsonWriter(Writer writer) {
+		out = writer;
+		target = null;
+		encoder = null;
+	}
+
+	/**
+	 * Creates a new DataValueJsonWriter that writes UTF-8 encoded JSON to a
+	 * buffer. Each value is in the buffer when {@link #write(DataValue)}
+	 * returns.
+	 * 
+	 * @param buffer The buffer to write to, starting at its position.
+	 */
+	public DataValueJsonWriter(ByteBuffer buffer) {
+		out = null;
+		target = buffer;
+		encoder = StandardCharsets.UTF_8.newEncoder();
+	}
+
+	/**
+	 * Returns the JSON for a value.
+	 * 
+	 * @param val The value.
+	 * 
+	 * @return the JSON text.
+	 */
+	public static String toJson(DataValue val) {
+		StringWriter sw = new StringWriter();
+		DataValueJsonWriter writer = new DataValueJsonWriter(sw);
+		try {
+			writer.write(val);
+			writer.flush();
+		} catch (IOException e) {
+			// StringWriter does not throw IOExceptions.
+			throw new IllegalStateException(e);
+		}
+		return sw.toString();
+	}
+
+	/**
+	 * Writes a value.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 * @throws UnsupportedOperationException if the value holds a NaN or
+	 *         infinite double, part of the value may have been written.
+	 * @throws BufferOverflowException if the value does not fit in the buffer
+	 *         being written to, part of the value may have been written.
+	 * @throws IllegalArgumentException if lists and dictionaries are nested
+	 *         more than {@value DataValueJsonReader#MAX_DEPTH} deep, which
+	 *         {@link DataValueJsonReader} can not read, part of the value may
+	 *         have been written.
+	 */
+	public void write(DataValue val) throws IOException {
+		depth = 0;
+		if (written) {
+			ensure(1);
+			buf[pos++] = '\n';
+		}
+		written = true;
+		writeValue(val);
+		if (target != null) {
+			flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Makes sure there is room for the specified number of characters in the
+	 * buffer, writing out the characters already there if there is not.
+	 * 
+	 * @param len The number of characters, no more than the size of the buffer.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void ensure(int len) throws IOException {
+		if (pos + len > buf.length) {
+			drain();
+		}
+	}
+
+	/**
+	 * Writes out the characters in the buffer without flushing the writer. When
+	 * writing to a buffer a high surrogate at the end is kept until the low
+	 * surrogate that follows it has been added.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void drain() throws IOException {
+		if (target == null) {
+			out.write(buf, 0, pos);
+			pos = 0;
+			return;
+		}
+
+		CharBuffer chars = CharBuffer.wrap(buf, 0, pos);
+		CoderResult cr = encoder.encode(chars, target, false);
+		if (cr.isOverflow()) {
+			throw new BufferOverflowException();
+		} else if (cr.isError()) {
+			try {
+				cr.throwException();
+			} catch (CharacterCodingException e) {
+				throw new IllegalArgumentException("String can not be encoded as UTF-8.", e);
+			}
+		}
+		final int left = chars.remaining();
+		System.arraycopy(buf, chars.position(), buf, 0, left);
+		pos = left;
+	}
+
+	/**
+	 * Writes a value.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeValue(DataValue val) throws IOException {
+		if (val instanceof LabeledDataValue) {
+			writeValue(((LabeledDataValue) val).getValue());
+			return;
+		}
+
+		switch (val.dataType()) {
+			case NULL:
+				writeChars("null");
+				break;
+			case BOOLEAN:
+				writeChars(val.asBoolean() ? "true" : "false");
+				break;
+			case LONG:
+				writeLong(val.asLong());
+				break;
+			case DOUBLE:
+				writeDouble(val.asDouble());
+				break;
+			case STRING:
+				writeString(val.asString());
+				break;
+			case LIST:
+				writeList(val.asList());
+				break;
+			case DICTIONARY:
+				enter();
+				ensure(1);
+				buf[pos++] = '{';
+				boolean first = true;
+				for (Map.Entry<String, DataValue> entry : val.asDictionary().entrySet()) {
+					ensure(1);
+					if (first == false) {
+						buf[pos++] = ',';
+					}
+					first = false;
+					writeString(entry.getKey());
+					ensure(1);
+					buf[pos++] = ':';
+					writeValue(entry.getValue());
+				}
+				ensure(1);
+				buf[pos++] = '}';
+				depth--;
+				break;
+			case RESULT:
+				writeValue(val.asResult().getValue());
+				break;
+			default:
+				throw new IllegalArgumentException("Can not write a value of type " + val.dataType());
+		}
+	}
+
+	/**
+	 * Writes a list, reading the values of lists held in primitive arrays
+	 * directly.
+	 * 
+	 * @param lst The values in the list.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeList(List<DataValue> lst) throws IOException {
+		final int size = lst.size();
+		enter();
+		ensure(1);
+		buf[pos++] = '[';
+		if (lst instanceof LongArrayList) {
+			final LongArrayList longs = (LongArrayList) lst;
+			for (int i = 0; i < size; i++) {
+				if (i > 0) {
+					ensure(1);
+					buf[pos++] = ',';
+				}
+				writeLong(longs.getLong(i));
+			}
+		} else if (lst instanceof DoubleArrayList) {
+			final DoubleArrayList doubles = (DoubleArrayList) lst;
+			for (int i = 0; i < size; i++) {
+				if (i > 0) {
+					ensure(1);
+					buf[pos++] = ',';
+				}
+				writeDouble(doubles.getDouble(i));
+			}
+		} else {
+			boolean first = true;
+			for (DataValue dv : lst) {
+				if (first == false) {
+					ensure(1);
+					buf[pos++] = ',';
+				}
+				first = false;
+				writeValue(dv);
+			}
+		}
+		ensure(1);
+		buf[pos++] = ']';
+		depth--;
+	}
+
+	/**
+	 * Records that an array or object is being written.
+	 * 
+	 * @throws IllegalArgumentException if they are nested too deeply.
+	 */
+	private void enter() {
+		if (++depth > DataValueJsonReader.MAX_DEPTH) {
+			throw new IllegalArgumentException("DataValues are nested more than " + DataValueJsonReader.MAX_DEPTH + " deep.");
+		}
+	}
+
+	/**
+	 * Writes characters that need no escaping.
+	 * 
+	 * @param str The characters to write, no longer than {@link #MAX_PRIMITIVE_LENGTH}.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeChars(String str) throws IOException {
+		final int len = str.length();
+		ensure(len);
+		str.getChars(0, len, buf, pos);
+		pos += len;
+	}
+
+	/**
+	 * Writes a long.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeLong(long val) throws IOException {
+		if (val == Long.MIN_VALUE) {
+			writeChars(Long.toString(val));
+			return;
+		}
+		ensure(MAX_PRIMITIVE_LENGTH);
+		if (val < 0) {
+			buf[pos++] = '-';
+			val = -val;
+		}
+
+		// Write the digits backwards from the end then move them in to place.
+		int end = pos + 20;
+		int i = end;
+		do {
+			buf[--i] = (char) ('0' + (val % 10));
+			val /= 10;
+		} while (val != 0);
+		final int len = end - i;
+		System.arraycopy(buf, i, buf, pos, len);
+		pos += len;
+	}
+
+	/**
+	 * Writes a double.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 * @throws UnsupportedOperationException if the value is NaN or infinite.
+	 */
+	private void writeDouble(double val) throws IOException {
+		if (Double.isNaN(val) || Double.isInfinite(val)) {
+			throw new UnsupportedOperationException("Can not write " + val + " as JSON.");
+		}
+		writeChars(Double.toString(val));
+	}
+
+	/**
+	 * Writes a string in quotes, escaping quotes, back slashes, control
+	 * characters and surrogates that are not part of a pair. Escaping unpaired
+	 * surrogates means they are written the same way to a writer and to a 
+	 * buffer, where they can not be encoded as UTF-8.
+	 * 
+	 * @param str The string to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeString(String str) throws IOException {
+		ensure(1);
+		buf[pos++] = '"';
+		final int len = str.length();
+		int i = 0;
+		while (i < len) {
+			// Copy as many characters that need no escaping as fit in the buffer.
+			ensure(MAX_PRIMITIVE_LENGTH);
+			final int end = Math.min(len, i + buf.length - pos);
+			int p = pos;
+			while (i < end) {
+				final char c = str.charAt(i);
+				if (c < 0x20 || c == '"' || c == '\\' || c == '\u2028' || c == '\u2029' 
+						|| (Character.isSurrogate(c) && isPaired(str, i) == false)) {
+					break;
+				}
+				buf[p++] = c;
+				i++;
+			}
+			pos = p;
+
+			if (i < end) {
+				writeEscape(str.charAt(i++));
+			}
+		}
+		ensure(1);
+		buf[pos++] = '"';
+	}
+
+	/**
+	 * Checks if the surrogate at an index of a string is part of a surrogate
+	 * pair.
+	 * 
+	 * @param str The string.
+	 * @param i The index of the surrogate.
+	 * 
+	 * @return {@code true} if the surrogate is part of a pair.
+	 */
+	private static boolean isPaired(String str, int i) {
+		if (Character.isHighSurrogate(str.charAt(i))) {
+			return i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1));
+		} else {
+			return i > 0 && Character.isHighSurrogate(str.charAt(i - 1));
+		}
+	}
+
+	/**
+	 * Writes the escape for a character. The line and paragraph separators are
+	 * escaped as well as the characters JSON requires so that the JSON is also
+	 * valid JavaScript.
+	 * 
+	 * @param c The character to escape.
+	 * 
+	 * @throws IOException if an error occurs writing to the writer.
+	 */
+	private void writeEscape(char c) throws IOException {
+		ensure(6);
+		buf[pos++] = '\\';
+		switch (c) {
+			case '"':
+			case '\\':
+				buf[pos++] = c;
+				break;
+			case '\b':
+				buf[pos++] = 'b';
+				break;
+			case '\f':
+				buf[pos++] = 'f';
+				break;
+			case '\n':
+				buf[pos++] = 'n';
+				break;
+			case '\r':
+				buf[pos++] = 'r';
+				break;
+			case '\t':
+				buf[pos++] = 't';
+				break;
+			default:
+				buf[pos++] = 'u';
+				buf[pos++] = HEX_DIGITS[(c >> 12) & 0xf];
+				buf[pos++] = HEX_DIGITS[(c >> 8) & 0xf];
+				buf[pos++] = HEX_DIGITS[(c >> 4) & 0xf];
+				buf[pos++] = HEX_DIGITS[c & 0xf];
+				break;
+		}
+	}
+}
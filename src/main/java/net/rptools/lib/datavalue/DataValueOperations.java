@@ -15,350 +15,681 @@
 package net.rptools.lib.datavalue;
 
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 /**
  * DataValueOperations is a helper class that implements the mathematical operations on DataValues.
+ *
+ * Each operation has a table indexed by the {@link DataType} of both operands which holds the
+ * {@link Operation} to perform for that pair of types, so the operation is selected with a single
+ * lookup rather than checking the type of each value in turn. The tables are built once when the
+ * class is loaded.
  */
 class DataValueOperations {
 
     /**
-     * Returns the result of adding two DataValues.
-     *
-     * @param v1 The first DataValue to add.
-     * @param v2 The second DataValue to add.
-     *
-     * @return the result.
-     *
-     * throws UnsupportedOperationException if the values can not be added.
+     * System property used to set the maximum length of the strings that string repetition can
+     * create, so that scripts can not exhaust the memory with a single multiplication.
      */
-    public static DataValue add(DataValue v1, DataValue v2) {
+    static final String MAX_STRING_LENGTH_PROPERTY = "net.rptools.lib.datavalue.DataValueOperations.maxStringLength";
 
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
+    /** The default maximum length of the strings that string repetition can create. */
+    private static final int DEFAULT_MAX_STRING_LENGTH = 1 << 24;
 
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
-        }
+    /** The maximum length of the strings that string repetition can create. */
+    private static final int maxStringLength = Math.max(0, Integer.getInteger(MAX_STRING_LENGTH_PROPERTY,
+            DEFAULT_MAX_STRING_LENGTH));
+
+    /**
+     * An operation performed on two DataValues.
+     */
+    interface Operation {
+        /**
+         * Performs the operation.
+         *
+         * @param dv1 The first operand.
+         * @param dv2 The second operand.
+         *
+         * @return the result.
+         *
+         * @throws UnsupportedOperationException if the operation is not supported for the values.
+         */
+        DataValue apply(DataValue dv1, DataValue dv2);
+    }
+
+
+    /**
+     * Selects the {@link Operation} to perform for a pair of {@link DataType}s when building
+     * an operation table.
+     */
+    private interface Selector {
+        /**
+         * Returns the {@link Operation} for the types.
+         *
+         * @param t1 The type of the first operand.
+         * @param t2 The type of the second operand.
+         *
+         * @return the {@link Operation}.
+         */
+        Operation select(DataType t1, DataType t2);
+    }
 
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
-        }
 
-        // Adding two lists or to a list.
-        if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            List<DataValue> lst = new ArrayList<>();
-            lst.addAll(dv1.asList());
-            lst.addAll(dv2.asList());
+    /**
+     * {@link Operation} that is not supported for the types of its operands.
+     */
+    private static final class Unsupported implements Operation {
+        /** The message for the exception thrown. */
+        private final String message;
 
-            return DataValueFactory.listValue(lst);
+        /**
+         * Creates a new Unsupported operation.
+         *
+         * @param msg The message for the exception thrown.
+         */
+        Unsupported(String msg) {
+            message = msg;
         }
 
-        // Adding a null to something
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform addition on a null.");
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            throw new UnsupportedOperationException(message);
         }
+    }
 
-        // Adding to a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not perform addition with a dictionary.");
+
+    /**
+     * {@link Operation} used when either operand is a {@link DataType#RESULT}, the value of the
+     * result is used in its place and the operation dispatched again.
+     */
+    private static final class UnwrapResult implements Operation {
+        /** The table to dispatch the values from the results with. */
+        private final Operation[][] table;
+
+        /**
+         * Creates a new UnwrapResult operation.
+         *
+         * @param tbl The table to dispatch the values from the results with.
+         */
+        UnwrapResult(Operation[][] tbl) {
+            table = tbl;
+        }
+
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return dispatch(table, unwrap(dv1), unwrap(dv2));
+        }
+
+        /**
+         * Returns the real value of a {@link DataType#RESULT}.
+         *
+         * @param dv The value to unwrap.
+         *
+         * @return the value.
+         */
+        private static DataValue unwrap(DataValue dv) {
+            DataValue val = dv;
+            while (val.dataType() == DataType.RESULT) {
+                val = val.asResult().getValue();
+            }
+            return val;
         }
+    }
+
 
-        // Adding boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not perform addition with a boolean.");
+    /** Concatenates two values as a list. */
+    private static final Operation ADD_LISTS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return ListDataValue.concat(dv1.asList(), dv2.asList());
         }
+    };
 
-        // Adding to a string.
-        if (dv1.dataType() == DataType.STRING || dv2.dataType() == DataType.STRING) {
+    /** Concatenates two values as a string. */
+    private static final Operation ADD_STRINGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
             return DataValueFactory.stringValue(dv1.asString() + dv2.asString());
         }
+    };
 
-
-
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
+    /** Adds two numbers as doubles. */
+    private static final Operation ADD_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
             return DataValueFactory.doubleValue(dv1.asDouble() + dv2.asDouble());
-        } else {
-            return DataValueFactory.longValue(dv1.asLong() + dv2.asLong());
         }
+    };
 
+    /** Adds two numbers as longs. */
+    private static final Operation ADD_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue(dv1.asLong() + dv2.asLong());
+        }
+    };
 
-    }
+    /**
+     * The largest number of comparisons list subtraction will make by searching the second list
+     * for each value of the first, above this the values of the second list are put in a hash set.
+     */
+    static final int SUBTRACT_LINEAR_LIMIT = 256;
 
     /**
-     * Returns the result of subtracting one DataValue from another.
-     *
-     * @param v1 The DataValues to subtract from.
-     * @param v2 The DataValue to subtract.
-     *
-     * @return the result.
-     *
-     * throws UnsupportedOperationException if the values can not be subtracted.
+     * Removes the elements of the second list from the first, every occurrence of a value that is
+     * in the second list is removed. Small lists are compared directly, otherwise the values of the
+     * second list are put in a hash set so that the time taken grows with the sum of the sizes of the
+     * lists rather than their product.
      */
-    public static DataValue subtract(DataValue v1, DataValue v2) {
+    private static final Operation SUBTRACT_LISTS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            final List<DataValue> values = dv1.asList();
+            final List<DataValue> remove = dv2.asList();
+            final Collection<DataValue> lookup;
+            if ((long) values.size() * remove.size() <= SUBTRACT_LINEAR_LIMIT) {
+                lookup = remove;
+            } else {
+                lookup = new HashSet<>(remove);
+            }
 
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
+            final ListDataValue.Builder builder = new ListDataValue.Builder();
+            for (DataValue dv : values) {
+                if (lookup.contains(dv) == false) {
+                    builder.add(dv);
+                }
+            }
 
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
+            return builder.build();
         }
+    };
 
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
+    /** Removes all occurrences of the second string from the first. */
+    private static final Operation SUBTRACT_STRINGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.stringValue(dv1.asString().replace(dv2.asString(), ""));
         }
+    };
 
-        // Subtracting two lists or to a list.
-        if (dv1.dataType() == DataType.LIST && dv2.dataType() == DataType.LIST) {
-            List<DataValue> lst = new ArrayList<>();
-            lst.addAll(dv1.asList());
-            lst.removeAll(dv2.asList());
+    /** Subtracts two numbers as doubles. */
+    private static final Operation SUBTRACT_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.doubleValue(dv1.asDouble() - dv2.asDouble());
+        }
+    };
 
-            return DataValueFactory.listValue(lst);
-        } else if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            throw new UnsupportedOperationException("Can only subtract a list from another list.");
+    /** Subtracts two numbers as longs. */
+    private static final Operation SUBTRACT_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue(dv1.asLong() - dv2.asLong());
         }
+    };
 
-        // Subtracting a null from something
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform subtraction on a null.");
+    /** Repeats the string in the first value by the number in the second. */
+    private static final Operation REPEAT_FIRST = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return repeat(dv1.asString(), dv2.asLong());
         }
+    };
 
-        // Subtracting from a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not perform subtraction with a dictionary.");
+    /** Repeats the string in the second value by the number in the first. */
+    private static final Operation REPEAT_SECOND = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return repeat(dv2.asString(), dv1.asLong());
         }
+    };
 
-        // Subtracting boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not perform subtraction with a boolean.");
+    /** Multiplies two numbers as doubles. */
+    private static final Operation MULTIPLY_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.doubleValue(dv1.asDouble() * dv2.asDouble());
         }
+    };
 
-        // Subtracting from a string.
-        if (dv1.dataType() == DataType.STRING && dv2.dataType() == DataType.STRING) {
-            return DataValueFactory.stringValue(dv1.asString().replace(dv2.asString(), ""));
-        } else if (dv1.dataType() == DataType.STRING || dv2.dataType() == DataType.STRING) {
-            throw new UnsupportedOperationException("Can not subtract a number from a string.");
+    /** Multiplies two numbers as longs. */
+    private static final Operation MULTIPLY_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue(dv1.asLong() * dv2.asLong());
         }
+    };
 
+    /** Divides two numbers as doubles. */
+    private static final Operation DIVIDE_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.doubleValue(dv1.asDouble() / dv2.asDouble());
+        }
+    };
 
+    /** Divides two numbers as longs. */
+    private static final Operation DIVIDE_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue(dv1.asLong() / dv2.asLong());
+        }
+    };
 
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
-            return DataValueFactory.doubleValue(dv1.asDouble() - dv2.asDouble());
-        } else {
-            return DataValueFactory.longValue(dv1.asLong() - dv2.asLong());
+    /** The remainder of dividing two numbers as doubles. */
+    private static final Operation REMAINDER_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.doubleValue(dv1.asDouble() % dv2.asDouble());
         }
+    };
 
-    }
+    /** The remainder of dividing two numbers as longs. */
+    private static final Operation REMAINDER_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue(dv1.asLong() % dv2.asLong());
+        }
+    };
 
+    /** Raises a number to the power of another as doubles. */
+    private static final Operation POWER_DOUBLES = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.doubleValue(Math.pow(dv1.asDouble(), dv2.asDouble()));
+        }
+    };
 
+    /** Raises a number to the power of another as longs. */
+    private static final Operation POWER_LONGS = new Operation() {
+        @Override
+        public DataValue apply(DataValue dv1, DataValue dv2) {
+            return DataValueFactory.longValue((long)Math.pow(dv1.asLong(), dv2.asLong()));
+        }
+    };
 
-    /**
-     * Returns the result of multiplying two DataValues.
-     *
-     * @param v1 The first DataValue to multiply.
-     * @param v2 The second DataValue to multiply.
-     *
-     * @return the result.
-     *
-     * throws UnsupportedOperationException if the values can not be multiplied.
-     */
-    public static DataValue multiply(DataValue v1, DataValue v2) {
 
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
+    /** The operation table for addition. */
+    private static final Operation[][] ADD = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            // Adding two lists or to a list.
+            if (either(DataType.LIST, t1, t2)) {
+                return ADD_LISTS;
+            }
 
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
-        }
+            // Adding a null to something
+            if (either(DataType.NULL, t1, t2)) {
+                return new Unsupported("Can not perform addition on a null.");
+            }
 
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
-        }
+            // Adding to a dictionary
+            if (either(DataType.DICTIONARY, t1, t2)) {
+                return new Unsupported("Can not perform addition with a dictionary.");
+            }
 
-        // Multiply two lists or to a list.
-        if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            throw new UnsupportedOperationException("Can not multiply a list.");
-        }
+            // Adding boolean
+            if (either(DataType.BOOLEAN, t1, t2)) {
+                return new Unsupported("Can not perform addition with a boolean.");
+            }
 
-        // Multiply by a null
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform multiplication by a null.");
-        }
+            // Adding to a string.
+            if (either(DataType.STRING, t1, t2)) {
+                return ADD_STRINGS;
+            }
 
-        // Adding to a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not multiply dictionary.");
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? ADD_DOUBLES : ADD_LONGS;
         }
+    });
+
+    /** The operation table for subtraction. */
+    private static final Operation[][] SUBTRACT = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            // Subtracting two lists or to a list.
+            if (t1 == DataType.LIST && t2 == DataType.LIST) {
+                return SUBTRACT_LISTS;
+            } else if (either(DataType.LIST, t1, t2)) {
+                return new Unsupported("Can only subtract a list from another list.");
+            }
+
+            // Subtracting a null from something
+            if (either(DataType.NULL, t1, t2)) {
+                return new Unsupported("Can not perform subtraction on a null.");
+            }
+
+            // Subtracting from a dictionary
+            if (either(DataType.DICTIONARY, t1, t2)) {
+                return new Unsupported("Can not perform subtraction with a dictionary.");
+            }
+
+            // Subtracting boolean
+            if (either(DataType.BOOLEAN, t1, t2)) {
+                return new Unsupported("Can not perform subtraction with a boolean.");
+            }
 
-        // Adding boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not multiply a boolean.");
+            // Subtracting from a string.
+            if (t1 == DataType.STRING && t2 == DataType.STRING) {
+                return SUBTRACT_STRINGS;
+            } else if (either(DataType.STRING, t1, t2)) {
+                return new Unsupported("Can not subtract a number from a string.");
+            }
+
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? SUBTRACT_DOUBLES : SUBTRACT_LONGS;
         }
+    });
+
+    /** The operation table for multiplication. */
+    private static final Operation[][] MULTIPLY = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            // Multiply two lists or to a list.
+            if (either(DataType.LIST, t1, t2)) {
+                return new Unsupported("Can not multiply a list.");
+            }
+
+            // Multiply by a null
+            if (either(DataType.NULL, t1, t2)) {
+                return new Unsupported("Can not perform multiplication by a null.");
+            }
+
+            // Multiply a dictionary
+            if (either(DataType.DICTIONARY, t1, t2)) {
+                return new Unsupported("Can not multiply dictionary.");
+            }
+
+            // Multiply a boolean
+            if (either(DataType.BOOLEAN, t1, t2)) {
+                return new Unsupported("Can not multiply a boolean.");
+            }
 
-        // multiply a string.
-        if (dv1.dataType() == DataType.STRING) {
-            if (dv2.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.LONG) {
-                StringBuilder sb = new StringBuilder();
-                for (int i = (int)dv2.asLong(); i > 0; i--) {
-                    sb.append(dv1.asString());
+            // multiply a string.
+            if (t1 == DataType.STRING) {
+                if (t2 == DataType.DOUBLE || t2 == DataType.LONG) {
+                    return REPEAT_FIRST;
+                } else {
+                    return new Unsupported("Can not multiply a string by a non numeric value.");
                 }
-                return DataValueFactory.stringValue(sb.toString());
-            } else {
-                throw new UnsupportedOperationException("Can not multiply a string by a non numeric value.");
             }
-        }
 
-        if (dv2.dataType() == DataType.STRING) {
-            if (dv1.dataType() == DataType.DOUBLE || dv1.dataType() == DataType.LONG) {
-                StringBuilder sb = new StringBuilder();
-                for (int i = (int)dv1.asLong(); i > 0; i--) {
-                    sb.append(dv2.asString());
+            if (t2 == DataType.STRING) {
+                if (t1 == DataType.DOUBLE || t1 == DataType.LONG) {
+                    return REPEAT_SECOND;
+                } else {
+                    return new Unsupported("Can not multiply a string by a non numeric value.");
                 }
-                return DataValueFactory.stringValue(sb.toString());
-            } else {
-                throw new UnsupportedOperationException("Can not multiply a string by a non numeric value.");
             }
+
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? MULTIPLY_DOUBLES : MULTIPLY_LONGS;
         }
+    });
 
+    /** The operation table for division. */
+    private static final Operation[][] DIVIDE = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            final Operation unsupported = unsupportedDivision(t1, t2);
+            if (unsupported != null) {
+                return unsupported;
+            }
 
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
-            return DataValueFactory.doubleValue(dv1.asDouble() * dv2.asDouble());
-        } else {
-            return DataValueFactory.longValue(dv1.asLong() * dv2.asLong());
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? DIVIDE_DOUBLES : DIVIDE_LONGS;
         }
+    });
 
+    /** The operation table for remainders. */
+    private static final Operation[][] REMAINDER = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            final Operation unsupported = unsupportedDivision(t1, t2);
+            if (unsupported != null) {
+                return unsupported;
+            }
 
-    }
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? REMAINDER_DOUBLES : REMAINDER_LONGS;
+        }
+    });
+
+    /** The operation table for exponentiation. */
+    private static final Operation[][] POWER = buildTable(new Selector() {
+        @Override
+        public Operation select(DataType t1, DataType t2) {
+            final Operation unsupported = unsupportedDivision(t1, t2);
+            if (unsupported != null) {
+                return unsupported;
+            }
+
+            // Only numeric types left.
+            return either(DataType.DOUBLE, t1, t2) ? POWER_DOUBLES : POWER_LONGS;
+        }
+    });
 
 
     /**
-     * REturns the result of dividing one DataValue by another.
+     * Builds the operation table for an operation. Any pair of types that includes a
+     * {@link DataType#RESULT} will unwrap the result before the operation is dispatched.
      *
-     * @param v1 The DataValues to divide.
-     * @param v2 The DataValue to divide by.
+     * @param selector The {@link Selector} used to pick the operation for each pair of types.
      *
-     * @return the result.
-     *
-     * throws UnsupportedOperationException if the values can not be divided.
+     * @return the operation table.
      */
-    public static DataValue divide(DataValue v1, DataValue v2) {
-
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
-
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
+    private static Operation[][] buildTable(Selector selector) {
+        final DataType[] types = DataType.values();
+        final Operation[][] table = new Operation[types.length][types.length];
+        final Operation unwrap = new UnwrapResult(table);
+
+        for (DataType t1 : types) {
+            for (DataType t2 : types) {
+                if (t1 == DataType.RESULT || t2 == DataType.RESULT) {
+                    table[t1.ordinal()][t2.ordinal()] = unwrap;
+                } else {
+                    table[t1.ordinal()][t2.ordinal()] = selector.select(t1, t2);
+                }
+            }
         }
 
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
-        }
+        return table;
+    }
 
+    /**
+     * Returns the unsupported {@link Operation} for division like operations (division, remainder
+     * and exponentiation) between two types.
+     *
+     * @param t1 The type of the first operand.
+     * @param t2 The type of the second operand.
+     *
+     * @return the {@link Operation} or {@code null} if the types are numeric.
+     */
+    private static Operation unsupportedDivision(DataType t1, DataType t2) {
         // division two lists or to a list.
-        if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            throw new UnsupportedOperationException("Can not perform division with a list.");
+        if (either(DataType.LIST, t1, t2)) {
+            return new Unsupported("Can not perform division with a list.");
         }
 
         // division of or by a null
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform sdivision with a null.");
+        if (either(DataType.NULL, t1, t2)) {
+            return new Unsupported("Can not perform division with a null.");
         }
 
         // Division of or by a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not perform division with a dictionary.");
+        if (either(DataType.DICTIONARY, t1, t2)) {
+            return new Unsupported("Can not perform division with a dictionary.");
         }
 
         // Division with a boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not perform division with a boolean.");
+        if (either(DataType.BOOLEAN, t1, t2)) {
+            return new Unsupported("Can not perform division with a boolean.");
         }
 
         // Division with a string.
-        if (dv1.dataType() == DataType.STRING || dv2.dataType() == DataType.STRING) {
-            throw new UnsupportedOperationException("Can not perform division with a String.");
+        if (either(DataType.STRING, t1, t2)) {
+            return new Unsupported("Can not perform division with a String.");
         }
 
+        return null;
+    }
 
+    /**
+     * Checks if either of the types is the specified type.
+     *
+     * @param type The type to check for.
+     * @param t1 The first type.
+     * @param t2 The second type.
+     *
+     * @return {@code true} if either type is the specified type.
+     */
+    private static boolean either(DataType type, DataType t1, DataType t2) {
+        return t1 == type || t2 == type;
+    }
 
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
-            return DataValueFactory.doubleValue(dv1.asDouble() / dv2.asDouble());
-        } else {
-            return DataValueFactory.longValue(dv1.asLong() / dv2.asLong());
-        }
-
+    /**
+     * Performs the {@link Operation} in the table for the types of the two values.
+     *
+     * @param table The operation table.
+     * @param dv1 The first operand.
+     * @param dv2 The second operand.
+     *
+     * @return the result.
+     */
+    private static DataValue dispatch(Operation[][] table, DataValue dv1, DataValue dv2) {
+        return table[dv1.dataType().ordinal()][dv2.dataType().ordinal()].apply(dv1, dv2);
     }
 
     /**
-     * Returns the remainder when dividing one DataValue by another.
+     * Returns a string DataValue containing the string repeated a number of times.
      *
-     * @param v1 The DataValues to divide.
-     * @param v2 The DataValue to divide by.
+     * @param str The string to repeat.
+     * @param times The number of times to repeat it.
      *
      * @return the result.
      *
-     * throws UnsupportedOperationException if the values can not be divided.
+     * @throws StringTooLongException if the result would be longer than {@link #maxStringLength}.
      */
-    public static DataValue remainder(DataValue v1, DataValue v2) {
-
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
-
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
-        }
-
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
-        }
-
-        // division two lists or to a list.
-        if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            throw new UnsupportedOperationException("Can not perform division with a list.");
-        }
+    private static DataValue repeat(String str, long times) {
+        return DataValueFactory.stringValue(repeat(str, times, maxStringLength));
+    }
 
-        // division of or by a null
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform sdivision with a null.");
+    /**
+     * Returns a string repeated a number of times. The result is created in an array of the final
+     * length by copying the part already filled in, doubling it each time, so the string is copied
+     * in a few large pieces rather than once per repetition.
+     *
+     * @param str The string to repeat.
+     * @param times The number of times to repeat it, zero or less gives an empty string.
+     * @param maxLength The maximum length of the result.
+     *
+     * @return the repeated string.
+     *
+     * @throws StringTooLongException if the result would be longer than maxLength.
+     */
+    static String repeat(String str, long times, int maxLength) {
+        final int len = str.length();
+        if (times <= 0 || len == 0) {
+            return "";
+        } else if (times == 1) {
+            return str;
         }
 
-        // Division of or by a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not perform division with a dictionary.");
+        if (times > maxLength / len) {
+            // Report the length without overflowing when times is very large.
+            final long total = times > Long.MAX_VALUE / len ? Long.MAX_VALUE : times * len;
+            throw new StringTooLongException(total, maxLength);
         }
 
-        // Division with a boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not perform division with a boolean.");
+        final int total = (int) times * len;
+        final char[] chars = new char[total];
+        if (len == 1) {
+            Arrays.fill(chars, str.charAt(0));
+        } else {
+            str.getChars(0, len, chars, 0);
+            int filled = len;
+            while (filled < total) {
+                final int copy = Math.min(filled, total - filled);
+                System.arraycopy(chars, 0, chars, filled, copy);
+                filled += copy;
+            }
         }
+        return new String(chars);
+    }
 
-        // Division with a string.
-        if (dv1.dataType() == DataType.STRING || dv2.dataType() == DataType.STRING) {
-            throw new UnsupportedOperationException("Can not perform division with a String.");
-        }
 
+    /**
+     * Returns the result of adding two DataValues.
+     *
+     * @param v1 The first DataValue to add.
+     * @param v2 The second DataValue to add.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be added.
+     */
+    public static DataValue add(DataValue v1, DataValue v2) {
+        return dispatch(ADD, v1, v2);
+    }
 
+    /**
+     * Returns the result of subtracting one DataValue from another.
+     *
+     * @param v1 The DataValues to subtract from.
+     * @param v2 The DataValue to subtract.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be subtracted.
+     */
+    public static DataValue subtract(DataValue v1, DataValue v2) {
+        return dispatch(SUBTRACT, v1, v2);
+    }
 
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
-            return DataValueFactory.doubleValue(dv1.asDouble() % dv2.asDouble());
-        } else {
-            return DataValueFactory.longValue(dv1.asLong() % dv2.asLong());
-        }
+    /**
+     * Returns the result of multiplying two DataValues.
+     *
+     * @param v1 The first DataValue to multiply.
+     * @param v2 The second DataValue to multiply.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be multiplied.
+     */
+    public static DataValue multiply(DataValue v1, DataValue v2) {
+        return dispatch(MULTIPLY, v1, v2);
+    }
 
+    /**
+     * Returns the result of dividing one DataValue by another.
+     *
+     * @param v1 The DataValues to divide.
+     * @param v2 The DataValue to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue divide(DataValue v1, DataValue v2) {
+        return dispatch(DIVIDE, v1, v2);
     }
 
+    /**
+     * Returns the remainder when dividing one DataValue by another.
+     *
+     * @param v1 The DataValues to divide.
+     * @param v2 The DataValue to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue remainder(DataValue v1, DataValue v2) {
+        return dispatch(REMAINDER, v1, v2);
+    }
 
     /**
      * Returns the result of raising to the power of one DataValue by another.
@@ -368,57 +699,224 @@ class DataValueOperations {
      *
      * @return the result.
      *
-     * throws UnsupportedOperationException if the values can not be divided.
+     * throws UnsupportedOperationException if the values can not be raised.
      */
     public static DataValue power(DataValue v1, DataValue v2) {
+        return dispatch(POWER, v1, v2);
+    }
 
-        // Get the real value.
-        DataValue dv1 = v1;
-        DataValue dv2 = v2;
+    /**
+     * Returns the result of adding a number to a DataValue. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to add to.
+     * @param v2 The number to add.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be added.
+     */
+    public static DataValue add(DataValue v1, long v2) {
+        return add(v1, DataValueFactory.longValue(v2));
+    }
 
-        while (dv1.dataType() == DataType.RESULT) {
-            dv1 = dv1.asResult().getValue();
-        }
+    /**
+     * Returns the result of adding a number to a DataValue. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to add to.
+     * @param v2 The number to add.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be added.
+     */
+    public static DataValue add(DataValue v1, double v2) {
+        return add(v1, DataValueFactory.doubleValue(v2));
+    }
 
-        while (dv2.dataType() == DataType.RESULT) {
-            dv2 = dv2.asResult().getValue();
-        }
+    /**
+     * Returns the result of subtracting a number from a DataValue. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to subtract from.
+     * @param v2 The number to subtract.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be subtracted.
+     */
+    public static DataValue subtract(DataValue v1, long v2) {
+        return subtract(v1, DataValueFactory.longValue(v2));
+    }
 
-        // division two lists or to a list.
-        if (dv1.dataType() == DataType.LIST || dv2.dataType() == DataType.LIST) {
-            throw new UnsupportedOperationException("Can not perform division with a list.");
-        }
+    /**
+     * Returns the result of subtracting a number from a DataValue. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to subtract from.
+     * @param v2 The number to subtract.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be subtracted.
+     */
+    public static DataValue subtract(DataValue v1, double v2) {
+        return subtract(v1, DataValueFactory.doubleValue(v2));
+    }
 
-        // division of or by a null
-        if (dv1.dataType() == DataType.NULL || dv2.dataType() == DataType.NULL) {
-            throw new UnsupportedOperationException("Can not perform sdivision with a null.");
-        }
+    /**
+     * Returns the result of multiplying a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to multiply.
+     * @param v2 The number to multiply by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be multiplied.
+     */
+    public static DataValue multiply(DataValue v1, long v2) {
+        return multiply(v1, DataValueFactory.longValue(v2));
+    }
 
-        // Division of or by a dictionary
-        if (dv1.dataType() == DataType.DICTIONARY || dv2.dataType() == DataType.DICTIONARY) {
-            throw new UnsupportedOperationException("Can not perform division with a dictionary.");
-        }
+    /**
+     * Returns the result of multiplying a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to multiply.
+     * @param v2 The number to multiply by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be multiplied.
+     */
+    public static DataValue multiply(DataValue v1, double v2) {
+        return multiply(v1, DataValueFactory.doubleValue(v2));
+    }
 
-        // Division with a boolean
-        if (dv1.dataType() == DataType.BOOLEAN || dv2.dataType() == DataType.BOOLEAN) {
-            throw new UnsupportedOperationException("Can not perform division with a boolean.");
-        }
+    /**
+     * Returns the result of dividing a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to divide.
+     * @param v2 The number to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue divide(DataValue v1, long v2) {
+        return divide(v1, DataValueFactory.longValue(v2));
+    }
 
-        // Division with a string.
-        if (dv1.dataType() == DataType.STRING || dv2.dataType() == DataType.STRING) {
-            throw new UnsupportedOperationException("Can not perform division with a String.");
-        }
+    /**
+     * Returns the result of dividing a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to divide.
+     * @param v2 The number to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue divide(DataValue v1, double v2) {
+        return divide(v1, DataValueFactory.doubleValue(v2));
+    }
 
+    /**
+     * Returns the result of the remainder of dividing a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to divide.
+     * @param v2 The number to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue remainder(DataValue v1, long v2) {
+        return remainder(v1, DataValueFactory.longValue(v2));
+    }
 
+    /**
+     * Returns the result of the remainder of dividing a DataValue by a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to divide.
+     * @param v2 The number to divide by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be divided.
+     */
+    public static DataValue remainder(DataValue v1, double v2) {
+        return remainder(v1, DataValueFactory.doubleValue(v2));
+    }
 
-        // Only numeric types left.
-        if (dv1.dataType() == DataType.DOUBLE || dv2.dataType() == DataType.DOUBLE) {
-            return DataValueFactory.doubleValue(Math.pow(dv1.asDouble(), dv2.asDouble()));
+    /**
+     * Returns the result of raising a DataValue to the power of a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to raise.
+     * @param v2 The number to raise by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be raised.
+     */
+    public static DataValue power(DataValue v1, long v2) {
+        return power(v1, DataValueFactory.longValue(v2));
+    }
+
+    /**
+     * Returns the result of raising a DataValue to the power of a number. This is used by the non numeric DataValues, the
+     * numeric DataValues perform the operation directly.
+     *
+     * @param v1 The DataValue to raise.
+     * @param v2 The number to raise by.
+     *
+     * @return the result.
+     *
+     * throws UnsupportedOperationException if the values can not be raised.
+     */
+    public static DataValue power(DataValue v1, double v2) {
+        return power(v1, DataValueFactory.doubleValue(v2));
+    }
+
+    /**
+     * Compares the numeric value of a DataValue with a number.
+     *
+     * @param v1 The DataValue to compare.
+     * @param v2 The number to compare to.
+     *
+     * @return a negative number, zero or a positive number if the value is less than,
+     *         equal to, or greater than the number.
+     *
+     * @throws NumberFormatException if the value can not be converted to a number.
+     */
+    public static int compare(DataValue v1, long v2) {
+        if (v1.dataType() == DataType.LONG) {
+            return Long.compare(v1.asLong(), v2);
         } else {
-            return DataValueFactory.longValue((long)Math.pow(dv1.asLong(), dv2.asLong()));
+            return Double.compare(v1.asDouble(), v2);
         }
-
     }
 
+    /**
+     * Compares the numeric value of a DataValue with a number.
+     *
+     * @param v1 The DataValue to compare.
+     * @param v2 The number to compare to.
+     *
+     * @return a negative number, zero or a positive number if the value is less than,
+     *         equal to, or greater than the number.
+     *
+     * @throws NumberFormatException if the value can not be converted to a number.
+     */
+    public static int compare(DataValue v1, double v2) {
+        return Double.compare(v1.asDouble(), v2);
+    }
 
 }
@@ -0,0 +1,501 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import net.rptools.lib.result.Result;
+import net.rptools.lib.result.RollExpression;
+
+/**
+ * Writes {@link DataValue}s in a compact binary form that keeps their types,
+ * to be read back by {@link DataValueInput}. Values are written directly to
+ * the destination as the tree of values is walked, through a small buffer.
+ * 
+ * Each value starts with a one byte tag giving its type, followed by
+ * <ul>
+ *   <li>{@link #TAG_NULL}, {@link #TAG_FALSE}, {@link #TAG_TRUE}: nothing.</li>
+ *   <li>{@link #TAG_LONG}: the value as a zig-zag encoded variable length
+ *       integer, so small positive and negative values take one byte.</li>
+ *   <li>{@link #TAG_DOUBLE}: the 8 bytes of the IEEE 754 value, most
+ *       significant first.</li>
+ *   <li>{@link #TAG_STRING}: the length of the UTF-8 encoding as a variable
+ *       length integer, followed by the UTF-8 bytes.</li>
+ *   <li>{@link #TAG_LIST}: the number of values then each value.</li>
+ *   <li>{@link #TAG_LONG_LIST}, {@link #TAG_DOUBLE_LIST}: the number of values
+ *       then each value without a tag, for lists held as primitive arrays.</li>
+ *   <li>{@link #TAG_DICTIONARY}: the number of entries then for each entry
+ *       the key (as a string without the tag) and the value, in order.</li>
+ *   <li>{@link #TAG_RESULT}: the value, the detailed result, the number of
+ *       individual values then each value, and finally a flags byte for the
+ *       roll expression which is followed by the roll string if there is a
+ *       roll expression.</li>
+ *   <li>{@link #TAG_LABELED}: the label name (as a string without the tag),
+ *       the label index (zig-zag encoded) and the labeled value.</li>
+ * </ul>
+ * 
+ */
+public final class DataValueOutput implements Flushable {
+
+	/** Tag for {@link DataType#NULL} values. */
+	static final int TAG_NULL = 0;
+	/** Tag for a false {@link DataType#BOOLEAN} value. */
+	static final int TAG_FALSE = 1;
+	/** Tag for a true {@link DataType#BOOLEAN} value. */
+	static final int TAG_TRUE = 2;
+	/** Tag for {@link DataType#LONG} values. */
+	static final int TAG_LONG = 3;
+	/** Tag for {@link DataType#DOUBLE} values. */
+	static final int TAG_DOUBLE = 4;
+	/** Tag for {@link DataType#STRING} values. */
+	static final int TAG_STRING = 5;
+	/** Tag for {@link DataType#LIST} values. */
+	static final int TAG_LIST = 6;
+	/** Tag for {@link DataType#LIST} values held as an array of longs. */
+	static final int TAG_LONG_LIST = 7;
+	/** Tag for {@link DataType#LIST} values held as an array of doubles. */
+	static final int TAG_DOUBLE_LIST = 8;
+	/** Tag for {@link DataType#DICTIONARY} values. */
+	static final int TAG_DICTIONARY = 9;
+	/** Tag for {@link DataType#RESULT} values. */
+	static final int TAG_RESULT = 10;
+	/** Tag for values with a {@link DataLabel}. */
+	static final int TAG_LABELED = 11;
+
+	/** Roll expression flag, set if there is a roll expression. */
+	static final int ROLL_PRESENT = 1;
+	/** Roll expression flag, set if the roll expression is verbose. */
+	static final int ROLL_VERBOSE = 2;
+	/** Roll expression flag, set if the roll expression is summed. */
+	static final int ROLL_SUM = 4;
+
+	/** The size of the buffer. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The largest number of bytes a single primitive value takes. */
+	private static final int MAX_PRIMITIVE_LENGTH = 10;
+
+	/** The stream being written to, {@code null} if writing to a buffer. */
+	private final OutputStream out;
+
+	/** The buffer being written to, {@code null} if writing to a stream. */
+	private final ByteBuffer target;
+
+	/** Bytes waiting to be written. */
+	private final byte[] buf = new byte[BUFFER_SIZE];
+
+	/** The number of bytes waiting to be written. */
+	private int pos;
+
+	/** How deeply nested the value being written is. */
+	private int depth;
+
+	/**
+	 * Creates a new DataValueOutput that writes to a stream. Values are
+	 * buffered, {@link #flush()} must be called to make sure they have been
+	 * written to the stream.
+	 * 
+	 * @param os The stream to write to.
+	 */
+	public DataValueOutput(OutputStream os) {
+		out = os;
+		target = null;
+	}
+
+	/**
+	 * Creates a new DataValueOutput that writes to a buffer. Each value is
+	 * in the buffer when {@link #write(DataValue)} returns.
+	 * 
+	 * @param buffer The buffer to write to, starting at its position.
+	 */
+	public DataValueOutput(ByteBuffer buffer) {
+		out = null;
+		target = buffer;
+	}
+
+	/**
+	 * Returns the binary form of a value.
+	 * 
+	 * @param val The value.
+	 * 
+	 * @return the bytes of the binary form.
+	 */
+	public static byte[] toBytes(DataValue val) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataValueOutput output = new DataValueOutput(bytes);
+		try {
+			output.write(val);
+			output.flush();
+		} catch (IOException e) {
+			// ByteArrayOutputStream does not throw IOExceptions.
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes a value.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 * @throws java.nio.BufferOverflowException if the value does not fit in 
+	 *         the buffer being written to, part of the value may have been
+	 *         written.
+	 * @throws IllegalArgumentException if lists, dictionaries, results and
+	 *         labels are nested more than {@value DataValueInput#MAX_DEPTH}
+	 *         deep, which {@link DataValueInput} can not read, part of the
+	 *         value may have been written.
+	 */
+	public void write(DataValue val) throws IOException {
+		depth = 0;
+		writeValue(val);
+		if (target != null) {
+			flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (target != null) {
+			target.put(buf, 0, pos);
+		} else {
+			out.write(buf, 0, pos);
+			out.flush();
+		}
+		pos = 0;
+	}
+
+	/**
+	 * Makes sure there is room for the specified number of bytes in the buffer,
+	 * writing out the bytes already there if there is not.
+	 * 
+	 * @param len The number of bytes, no more than the size of the buffer.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void ensure(int len) throws IOException {
+		if (pos + len > buf.length) {
+			drain();
+		}
+	}
+
+	/**
+	 * Writes out the bytes in the buffer without flushing the stream.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void drain() throws IOException {
+		if (target != null) {
+			target.put(buf, 0, pos);
+		} else {
+			out.write(buf, 0, pos);
+		}
+		pos = 0;
+	}
+
+	/**
+	 * Writes a value and its tag.
+	 * 
+	 * @param val The value to write.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeValue(DataValue val) throws IOException {
+		if (val instanceof LabeledDataValue) {
+			final DataLabel label = val.getLabel();
+			enter();
+			writeTag(TAG_LABELED);
+			writeString(label.getName());
+			writeLong(label.getIndex());
+			writeValue(((LabeledDataValue) val).getValue());
+			depth--;
+			return;
+		}
+
+		switch (val.dataType()) {
+			case NULL:
+				writeTag(TAG_NULL);
+				break;
+			case BOOLEAN:
+				writeTag(val.asBoolean() ? TAG_TRUE : TAG_FALSE);
+				break;
+			case LONG:
+				writeTag(TAG_LONG);
+				writeLong(val.asLong());
+				break;
+			case DOUBLE:
+				writeTag(TAG_DOUBLE);
+				writeDouble(val.asDouble());
+				break;
+			case STRING:
+				writeTag(TAG_STRING);
+				writeString(val.asString());
+				break;
+			case LIST:
+				writeList(val.asList());
+				break;
+			case DICTIONARY:
+				final Map<String, DataValue> dict = val.asDictionary();
+				enter();
+				writeTag(TAG_DICTIONARY);
+				writeLength(dict.size());
+				for (Map.Entry<String, DataValue> entry : dict.entrySet()) {
+					writeString(entry.getKey());
+					writeValue(entry.getValue());
+				}
+				depth--;
+				break;
+			case RESULT:
+				writeResult(val.asResult());
+				break;
+			default:
+				throw new IllegalArgumentException("Can not write a value of type " + val.dataType());
+		}
+	}
+
+	/**
+	 * Writes a list value and its tag, using the compact forms for lists held
+	 * in primitive arrays.
+	 * 
+	 * @param lst The values in the list.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeList(List<DataValue> lst) throws IOException {
+		final int size = lst.size();
+		if (lst instanceof LongArrayList) {
+			final LongArrayList longs = (LongArrayList) lst;
+			writeTag(TAG_LONG_LIST);
+			writeLength(size);
+			for (int i = 0; i < size; i++) {
+				writeLong(longs.getLong(i));
+			}
+		} else if (lst instanceof DoubleArrayList) {
+			final DoubleArrayList doubles = (DoubleArrayList) lst;
+			writeTag(TAG_DOUBLE_LIST);
+			writeLength(size);
+			for (int i = 0; i < size; i++) {
+				writeDouble(doubles.getDouble(i));
+			}
+		} else {
+			enter();
+			writeTag(TAG_LIST);
+			writeLength(size);
+			for (DataValue dv : lst) {
+				writeValue(dv);
+			}
+			depth--;
+		}
+	}
+
+	/**
+	 * Records that a nested value is being written.
+	 * 
+	 * @throws IllegalArgumentException if the values are nested too deeply.
+	 */
+	private void enter() {
+		if (++depth > DataValueInput.MAX_DEPTH) {
+			throw new IllegalArgumentException("DataValues are nested more than " + DataValueInput.MAX_DEPTH + " deep.");
+		}
+	}
+
+	/**
+	 * Writes a result value and its tag.
+	 * 
+	 * @param result The result.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeResult(Result result) throws IOException {
+		enter();
+		writeTag(TAG_RESULT);
+		writeValue(result.getValue());
+		writeValue(result.getDetailedResult());
+		final List<DataValue> values = result.getValues();
+		writeLength(values.size());
+		for (DataValue dv : values) {
+			writeValue(dv);
+		}
+
+		if (result.hasRollExpression()) {
+			final RollExpression rexpr = result.getRollExpression();
+			int flags = ROLL_PRESENT;
+			if (rexpr.isVerbose()) {
+				flags |= ROLL_VERBOSE;
+			}
+			if (rexpr.isSum()) {
+				flags |= ROLL_SUM;
+			}
+			writeTag(flags);
+			writeString(rexpr.getRollString());
+		} else {
+			writeTag(0);
+		}
+		depth--;
+	}
+
+	/**
+	 * Writes a tag or flags byte.
+	 * 
+	 * @param tag The tag.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeTag(int tag) throws IOException {
+		ensure(1);
+		buf[pos++] = (byte) tag;
+	}
+
+	/**
+	 * Writes a length as a variable length integer, 7 bits per byte with the
+	 * top bit set on all but the last byte.
+	 * 
+	 * @param len The length, which must not be negative.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeLength(int len) throws IOException {
+		writeVarLong(len & 0xffffffffL);
+	}
+
+	/**
+	 * Writes a long zig-zag encoded, so that numbers close to 0 of either sign
+	 * take few bytes, as a variable length integer.
+	 * 
+	 * @param val The value.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeLong(long val) throws IOException {
+		writeVarLong((val << 1) ^ (val >> 63));
+	}
+
+	/**
+	 * Writes the bits of a long as a variable length integer.
+	 * 
+	 * @param val The value, treated as unsigned.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeVarLong(long val) throws IOException {
+		ensure(MAX_PRIMITIVE_LENGTH);
+		while ((val & ~0x7fL) != 0) {
+			buf[pos++] = (byte) ((val & 0x7f) | 0x80);
+			val >>>= 7;
+		}
+		buf[pos++] = (byte) val;
+	}
+
+	/**
+	 * Writes the 8 bytes of a double.
+	 * 
+	 * @param val The value.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeDouble(double val) throws IOException {
+		ensure(8);
+		final long bits = Double.doubleToRawLongBits(val);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buf[pos++] = (byte) (bits >>> shift);
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by the UTF-8 bytes. The
+	 * string is encoded straight in to the buffer. As with 
+	 * {@link String#getBytes(java.nio.charset.Charset)} unpaired surrogates
+	 * are written as '?'.
+	 * 
+	 * @param str The string.
+	 * 
+	 * @throws IOException if an error occurs writing to the stream.
+	 */
+	private void writeString(String str) throws IOException {
+		final int len = str.length();
+		writeLength(utf8Length(str));
+		int i = 0;
+		while (i < len) {
+			// Copy as many ASCII characters as fit in the buffer without further checks.
+			final int end = Math.min(len, i + buf.length - pos);
+			for (char c; i < end && (c = str.charAt(i)) < 0x80; i++) {
+				buf[pos++] = (byte) c;
+			}
+			if (i == len) {
+				break;
+			}
+
+			ensure(4);
+			final char c = str.charAt(i);
+			if (c < 0x80) {
+				buf[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				buf[pos++] = (byte) (0xc0 | (c >> 6));
+				buf[pos++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+					final int cp = Character.toCodePoint(c, str.charAt(++i));
+					buf[pos++] = (byte) (0xf0 | (cp >> 18));
+					buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+					buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+					buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+				} else {
+					buf[pos++] = (byte) '?';
+				}
+			} else {
+				buf[pos++] = (byte) (0xe0 | (c >> 12));
+				buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buf[pos++] = (byte) (0x80 | (c & 0x3f));
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in the UTF-8 encoding of a string.
+	 * 
+	 * @param str The string.
+	 * 
+	 * @return the number of bytes.
+	 */
+	static int utf8Length(String str) {
+		final int len = str.length();
+		int bytes = len;
+		for (int i = 0; i < len; i++) {
+			final char c = str.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					bytes += 1;
+				} else if (Character.isSurrogate(c)) {
+					if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+						// 4 bytes for the two chars.
+						bytes += 2;
+						i++;
+					}
+				} else {
+					bytes += 2;
+				}
+			}
+		}
+		return bytes;
+	}
+}
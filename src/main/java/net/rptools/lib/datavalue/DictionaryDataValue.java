@@ -18,6 +18,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 import net.rptools.lib.result.ResultBuilder;
@@ -31,6 +32,12 @@ final class DictionaryDataValue implements DataValue {
 	
 	/** The name to DataValue map. */
 	private final Map<String, DataValue> values;
+
+	/** Cached hash code of the dictionary, 0 until first calculated. */
+	private int hash;
+
+	/** Cached String representation of the dictionary, {@code null} until first needed. */
+	private String string;
 	
 	/**
 	 * Creates a DataValue with the name to DataValue mapping specified.
@@ -38,13 +45,55 @@ final class DictionaryDataValue implements DataValue {
 	 * @param vals The {@link Map} containing the name/DataType relationships.
 	 */
 	DictionaryDataValue(Map<String, DataValue> vals) {
-		Map<String, DataValue> newMap = new LinkedHashMap<String, DataValue>();
-		newMap.putAll(vals);
-		values = Collections.unmodifiableMap(newMap);
+		values = Collections.unmodifiableMap(new LinkedHashMap<String, DataValue>(vals));
+	}
+
+	/**
+	 * Creates a DataValue that uses the specified map as its values without
+	 * copying it.
+	 * 
+	 * @param vals The name/DataType relationships.
+	 */
+	private DictionaryDataValue(PersistentOrderedMap vals) {
+		values = vals;
+	}
+
+	/**
+	 * Creates a DataValue that takes ownership of the map built by a {@link Builder}.
+	 * 
+	 * @param builder The {@link Builder} holding the name/DataType relationships.
+	 */
+	private DictionaryDataValue(Builder builder) {
+		values = Collections.unmodifiableMap(builder.values);
+	}
+
+	/**
+	 * Returns the values of this dictionary as a {@link PersistentOrderedMap} 
+	 * so that a new dictionary can be created from them without copying all 
+	 * of the values.
+	 * 
+	 * @return the values.
+	 */
+	private PersistentOrderedMap persistentValues() {
+		return PersistentOrderedMap.of(values);
 	}
 	
 	@Override
 	public String asString() {
+		String str = string;
+		if (str == null) {
+			str = buildString();
+			string = str;
+		}
+		return str;
+	}
+
+	/**
+	 * Builds the String representation of the values in this dictionary.
+	 * 
+	 * @return the String representation of the dictionary.
+	 */
+	private String buildString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("{ ");
 		boolean first = true;
@@ -107,12 +156,112 @@ final class DictionaryDataValue implements DataValue {
 	public DataValue power(DataValue exp) {
         return DataValueOperations.power(this, exp);
 	}
+
+	@Override
+	public DataValue add(long val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return DataValueOperations.compare(this, val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return DataValueOperations.compare(this, val);
+	}
 	
 	@Override
 	public DataValue negate() {
 		throw new UnsupportedOperationException("Mathematical operations not supported on dictionaries.");
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		return new DictionaryDataValue(persistentValues().with(key, val));
+	}
+
+	@Override
+	public DataValue without(String key) {
+		return new DictionaryDataValue(persistentValues().without(key));
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		return new DictionaryDataValue(persistentValues().withAll(dict.asDictionary()));
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		throw new UnsupportedOperationException("Can not perform list operations on a dictionary.");
+	}
+
+	@Override
+	public DataValue reverse() {
+		throw new UnsupportedOperationException("Can not perform list operations on a dictionary.");
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		throw new UnsupportedOperationException("Can not perform list operations on a dictionary.");
+	}
+
 
 
 	@Override
@@ -135,10 +284,14 @@ final class DictionaryDataValue implements DataValue {
 	
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((values == null) ? 0 : values.hashCode());
-		return result;
+		int h = hash;
+		if (h == 0) {
+			final int prime = 31;
+			h = 1;
+			h = prime * h + ((values == null) ? 0 : values.hashCode());
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
@@ -216,4 +369,68 @@ final class DictionaryDataValue implements DataValue {
     }
 
 
+	/**
+	 * Builder used to create a DictionaryDataValue without copying the values.
+	 * The map that the values are added to is handed over to the 
+	 * DictionaryDataValue when {@link #build()} is called, so a Builder can only
+	 * be used to create a single DictionaryDataValue.
+	 */
+	static final class Builder {
+
+		/** The name to DataValue map. */
+		private Map<String, DataValue> values = new LinkedHashMap<>();
+
+		/**
+		 * Checks that the Builder has not already been used to create a dictionary.
+		 * 
+		 * @throws IllegalStateException if {@link #build()} has been called.
+		 */
+		private void checkNotBuilt() {
+			if (values == null) {
+				throw new IllegalStateException("DictionaryDataValue has already been built.");
+			}
+		}
+
+		/**
+		 * Maps a name to a value, replacing any existing value for the name.
+		 * 
+		 * @param key The name.
+		 * @param val The value.
+		 * 
+		 * @return {@code this} so that methods can be chained.
+		 */
+		Builder put(String key, DataValue val) {
+			checkNotBuilt();
+			values.put(key, val);
+			return this;
+		}
+
+		/**
+		 * Adds all of the name to value mappings in the specified map.
+		 * 
+		 * @param vals The mappings to add.
+		 * 
+		 * @return {@code this} so that methods can be chained.
+		 */
+		Builder putAll(Map<String, ? extends DataValue> vals) {
+			checkNotBuilt();
+			values.putAll(vals);
+			return this;
+		}
+
+		/**
+		 * Creates the DictionaryDataValue from the mappings that have been added.
+		 * 
+		 * @return the DictionaryDataValue.
+		 * 
+		 * @throws IllegalStateException if this has already been called.
+		 */
+		DictionaryDataValue build() {
+			checkNotBuilt();
+			final DictionaryDataValue dict = new DictionaryDataValue(this);
+			values = null;
+			return dict;
+		}
+	}
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable {@link java.util.List} of {@link DataType#DOUBLE} DataValues that
+ * stores the values in a double array. The DataValues are only created when they are
+ * retrieved from the list. This is used as the storage for {@link ListDataValue}s
+ * that only contain floating point values.
+ *
+ */
+final class DoubleArrayList extends AbstractList<DataValue> implements RandomAccess {
+
+	/** The values in the list. */
+	private final double[] values;
+
+	/**
+	 * Creates a new DoubleArrayList. The array is not copied so it must not be
+	 * modified after the list is created.
+	 *
+	 * @param vals The values in the list.
+	 */
+	DoubleArrayList(double[] vals) {
+		values = vals;
+	}
+
+	@Override
+	public DataValue get(int index) {
+		return DataValueFactory.doubleValue(values[index]);
+	}
+
+	/**
+	 * Returns the value at the specified position in the list without creating
+	 * a DataValue for it.
+	 *
+	 * @param index The index of the value to return.
+	 *
+	 * @return the value.
+	 */
+	double getDouble(int index) {
+		return values[index];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (o instanceof DoubleDataValue) {
+			final double d = ((DoubleDataValue) o).asDouble();
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == d) {
+					return i;
+				}
+			}
+			return -1;
+		} else {
+			return super.indexOf(o);
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+}
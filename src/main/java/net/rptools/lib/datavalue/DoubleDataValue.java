@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 import net.rptools.lib.result.ResultBuilder;
@@ -28,6 +29,66 @@ import net.rptools.lib.result.ResultBuilder;
  */
 final class DoubleDataValue implements DataValue {
 
+	/** The lowest whole number held in the cache. */
+	private static final int CACHE_LOW = -128;
+
+	/** The highest whole number held in the cache. */
+	private static final int CACHE_HIGH = 1024;
+
+	/** The preallocated DataValues for whole numbers in the cached range. */
+	private static final DoubleDataValue[] wholeCache = new DoubleDataValue[CACHE_HIGH - CACHE_LOW + 1];
+
+	/** Preallocated DataValue for 0.5. */
+	private static final DoubleDataValue HALF = new DoubleDataValue(0.5);
+
+	/** Preallocated DataValue for -0.5. */
+	private static final DoubleDataValue NEGATIVE_HALF = new DoubleDataValue(-0.5);
+
+	/** Preallocated DataValue for 0.25. */
+	private static final DoubleDataValue QUARTER = new DoubleDataValue(0.25);
+
+	/** Preallocated DataValue for 0.75. */
+	private static final DoubleDataValue THREE_QUARTERS = new DoubleDataValue(0.75);
+
+	/** The bit pattern of -0.0, which must not be returned from the cache as 0.0. */
+	private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
+	static {
+		for (int i = 0; i < wholeCache.length; i++) {
+			wholeCache[i] = new DoubleDataValue(CACHE_LOW + i);
+		}
+	}
+
+	/**
+	 * Returns a DoubleDataValue for the specified value. Commonly used values 
+	 * (whole numbers in a small range and simple fractions) are returned from
+	 * a cache rather than being allocated.
+	 * 
+	 * @param val The value to return a DoubleDataValue for.
+	 * 
+	 * @return the DoubleDataValue.
+	 */
+	static DoubleDataValue getDoubleDataValue(double val) {
+		if (val >= CACHE_LOW && val <= CACHE_HIGH) {
+			final int whole = (int) val;
+			if (whole == val) {
+				if (whole != 0 || Double.doubleToRawLongBits(val) != NEGATIVE_ZERO_BITS) {
+					return wholeCache[whole - CACHE_LOW];
+				}
+			} else if (val == 0.5) {
+				return HALF;
+			} else if (val == -0.5) {
+				return NEGATIVE_HALF;
+			} else if (val == 0.25) {
+				return QUARTER;
+			} else if (val == 0.75) {
+				return THREE_QUARTERS;
+			}
+		}
+
+		return new DoubleDataValue(val);
+	}
+
 	/** The number that this DataValue represents. */
 	private final double value;
 	
@@ -91,12 +152,112 @@ final class DoubleDataValue implements DataValue {
 	public DataValue power(DataValue exp) {
         return DataValueOperations.power(this, exp);
 	}	
+
+	@Override
+	public DataValue add(long val) {
+		return DataValueFactory.doubleValue(value + val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return DataValueFactory.doubleValue(value + val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return DataValueFactory.doubleValue(value - val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return DataValueFactory.doubleValue(value - val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return DataValueFactory.doubleValue(value * val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return DataValueFactory.doubleValue(value * val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return DataValueFactory.doubleValue(value / val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return DataValueFactory.doubleValue(value / val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return DataValueFactory.doubleValue(value % val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return DataValueFactory.doubleValue(value % val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return DataValueFactory.doubleValue(Math.pow(value, val));
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return DataValueFactory.doubleValue(Math.pow(value, val));
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return Double.compare(value, val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return Double.compare(value, val);
+	}
 	
 	@Override
 	public DataValue negate() {
 		return DataValueFactory.doubleValue(-value);
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue without(String key) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue reverse() {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
 
 
 	@Override
@@ -134,7 +295,7 @@ final class DoubleDataValue implements DataValue {
                 }
             }
         }
-		return true;
+		return false;
 	}
 
 	@Override
@@ -142,7 +303,8 @@ final class DoubleDataValue implements DataValue {
 		final int prime = 31;
 		int result = 1;
 		long temp;
-		temp = Double.doubleToLongBits(value);
+		// 0.0 and -0.0 are equal so must have the same hash code.
+		temp = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		return result;
 	}
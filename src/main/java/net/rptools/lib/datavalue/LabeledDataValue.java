@@ -16,6 +16,7 @@ package net.rptools.lib.datavalue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 
@@ -38,6 +39,12 @@ final class LabeledDataValue implements DataValue {
 	
 	/** The value to decorate with the label. */
 	private final DataValue value;
+
+	/** Cached hash code of the label and value, 0 until first calculated. */
+	private int hash;
+
+	/** Cached String representation of the value, {@code null} until first needed. */
+	private String string;
 	
 	
 	/**
@@ -51,9 +58,23 @@ final class LabeledDataValue implements DataValue {
 		label = l;
 	}
 	
+	/**
+	 * Returns the value that the label is attached to.
+	 * 
+	 * @return the value without the label.
+	 */
+	DataValue getValue() {
+		return value;
+	}
+	
 	@Override
 	public String asString() {
-		return value.asString();
+		String str = string;
+		if (str == null) {
+			str = value.asString();
+			string = str;
+		}
+		return str;
 	}
 
 	@Override
@@ -104,6 +125,76 @@ final class LabeledDataValue implements DataValue {
 		return value.power(exp); // Note we don't wrap this in a LabeledDataType
 	}
 
+	@Override
+	public DataValue add(long val) {
+		return value.add(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return value.add(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return value.subtract(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return value.subtract(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return value.multiply(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return value.multiply(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return value.divide(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return value.divide(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return value.remainder(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return value.remainder(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return value.power(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return value.power(val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return value.compareTo(val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return value.compareTo(val);
+	}
+
 	@Override
 	public boolean hasLabel() {
 		return true;
@@ -124,6 +215,36 @@ final class LabeledDataValue implements DataValue {
 		return value.negate(); // Note we don't wrap this in a LabeledDataType
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		return value.with(key, val); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue without(String key) {
+		return value.without(key); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		return value.merge(dict); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		return value.slice(from, to); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue reverse() {
+		return value.reverse(); // Note we don't wrap this in a LabeledDataType
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		return value.map(fn); // Note we don't wrap this in a LabeledDataType
+	}
+
 	@Override
 	public String toString() {
 		return dataType().toString() + ": " + asString() + "{Label: " + label.getName() + "," + label.getIndex() + "}";
@@ -131,11 +252,15 @@ final class LabeledDataValue implements DataValue {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((label == null) ? 0 : label.hashCode());
-		result = prime * result + ((value == null) ? 0 : value.hashCode());
-		return result;
+		int h = hash;
+		if (h == 0) {
+			final int prime = 31;
+			h = 1;
+			h = prime * h + ((label == null) ? 0 : label.hashCode());
+			h = prime * h + ((value == null) ? 0 : value.hashCode());
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 import net.rptools.lib.result.ResultBuilder;
@@ -32,9 +33,22 @@ import net.rptools.lib.result.ResultBuilder;
  */
 final class ListDataValue implements DataValue {
 
+	/** The class of the unmodifiable lists that hold the values of a ListDataValue. */
+	private static final Class<?> UNMODIFIABLE_LIST = Collections.unmodifiableList(new ArrayList<DataValue>()).getClass();
+
 	/** The list of DataValues */
 	private final List<DataValue> value;
 
+	/** 
+	 * Cached hash code of the list, 0 until first calculated. The list is 
+	 * immutable so threads racing to calculate it will store the same value,
+	 * the same approach {@link String#hashCode()} takes.
+	 */
+	private int hash;
+
+	/** Cached String representation of the list, {@code null} until first needed. */
+	private String string;
+
 	/**
 	 * Creates a new ListDataType containing the specified values.
 	 * 
@@ -46,8 +60,115 @@ final class ListDataValue implements DataValue {
 		value = Collections.unmodifiableList(lst);
 	}
 
+	/**
+	 * Creates a new ListDataValue that uses the specified list as its values 
+	 * without copying it. The list must not be modified after this is called.
+	 * 
+	 * @param lst The unmodifiable list of values.
+	 */
+	private ListDataValue(List<DataValue> lst) {
+		value = lst;
+	}
+
+	/**
+	 * Creates a new ListDataValue containing {@link DataType#LONG} values. The 
+	 * values are stored in the array which is not copied, so it must not be
+	 * modified after this is called.
+	 * 
+	 * @param vals The values for the list.
+	 * 
+	 * @return the new ListDataValue.
+	 */
+	static ListDataValue fromLongArray(long[] vals) {
+		return new ListDataValue(new LongArrayList(vals));
+	}
+
+	/**
+	 * Creates a new ListDataValue containing {@link DataType#DOUBLE} values. The 
+	 * values are stored in the array which is not copied, so it must not be
+	 * modified after this is called.
+	 * 
+	 * @param vals The values for the list.
+	 * 
+	 * @return the new ListDataValue.
+	 */
+	static ListDataValue fromDoubleArray(double[] vals) {
+		return new ListDataValue(new DoubleArrayList(vals));
+	}
+
+	/**
+	 * Creates a new ListDataValue containing the values of the first list followed
+	 * by the values of the second. 
+	 * 
+	 * If the first list is stored in a {@link PersistentVector} the second list
+	 * is appended to it, so that the values of the first list are shared between
+	 * both ListDataValues and building a list by repeated addition does not copy
+	 * it each time. If either list is itself a concatenation both are copied in 
+	 * to a PersistentVector so that views of views do not build up. Otherwise 
+	 * the new list is a view of both lists and nothing is copied.
+	 * 
+	 * @param lst1 The first list of values.
+	 * @param lst2 The second list of values.
+	 * 
+	 * @return the new ListDataValue.
+	 */
+	static ListDataValue concat(List<DataValue> lst1, List<DataValue> lst2) {
+		if (lst2.isEmpty()) {
+			return new ListDataValue(unmodifiable(lst1));
+		} else if (lst1.isEmpty()) {
+			return new ListDataValue(unmodifiable(lst2));
+		}
+
+		final PersistentVector<DataValue> vec;
+		if (lst1 instanceof PersistentVector) {
+			vec = (PersistentVector<DataValue>) lst1;
+		} else if (ListViews.isConcat(lst1) || ListViews.isConcat(lst2)) {
+			vec = PersistentVector.<DataValue>empty().appendAll(lst1);
+		} else {
+			return new ListDataValue(ListViews.concat(unmodifiable(lst1), unmodifiable(lst2)));
+		}
+
+		if (lst2.size() == 1) {
+			return new ListDataValue(vec.append(lst2.get(0)));
+		} else {
+			return new ListDataValue(vec.appendAll(lst2));
+		}
+	}
+
+	/**
+	 * Returns the list if it is already one of the unmodifiable lists used to
+	 * store the values of a ListDataValue, otherwise an unmodifiable view of it.
+	 * Lists returned by {@link DataValue#asList()} for values other than lists
+	 * are new modifiable lists, so they can not be used as they are.
+	 * 
+	 * @param lst The list.
+	 * 
+	 * @return the unmodifiable list.
+	 */
+	private static List<DataValue> unmodifiable(List<DataValue> lst) {
+		if (lst instanceof PersistentVector || lst instanceof LongArrayList || lst instanceof DoubleArrayList 
+				|| ListViews.isView(lst) || lst.getClass() == UNMODIFIABLE_LIST) {
+			return lst;
+		}
+		return Collections.unmodifiableList(lst);
+	}
+
 	@Override
 	public String asString() {
+		String str = string;
+		if (str == null) {
+			str = buildString();
+			string = str;
+		}
+		return str;
+	}
+
+	/**
+	 * Builds the String representation of the values in this list.
+	 * 
+	 * @return the String representation of the list.
+	 */
+	private String buildString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("[ ");
 		boolean first = true;
@@ -108,11 +229,113 @@ final class ListDataValue implements DataValue {
         return DataValueOperations.power(this, exp);
 	}
 
+	@Override
+	public DataValue add(long val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return DataValueOperations.compare(this, val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return DataValueOperations.compare(this, val);
+	}
+
 	@Override
 	public DataValue negate() {
 		throw new UnsupportedOperationException("Can not convert list to a numeric value");
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a list.");
+	}
+
+	@Override
+	public DataValue without(String key) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a list.");
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a list.");
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		final List<DataValue> lst = ListViews.slice(value, from, to);
+		return lst == value ? this : new ListDataValue(lst);
+	}
+
+	@Override
+	public DataValue reverse() {
+		final List<DataValue> lst = ListViews.reverse(value);
+		return lst == value ? this : new ListDataValue(lst);
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		return new ListDataValue(ListViews.map(value, fn));
+	}
+
 	@Override
 	public DataType dataType() {
 		return DataType.LIST;
@@ -158,11 +381,15 @@ final class ListDataValue implements DataValue {
 
 	@Override
 	public int hashCode() {
-		int hash = 31;
-		for (DataValue dv : value) {
-			hash = hash + 31 * dv.hashCode();
+		int h = hash;
+		if (h == 0) {
+			h = 31;
+			for (DataValue dv : value) {
+				h = h + 31 * dv.hashCode();
+			}
+			hash = h;
 		}
-		return hash;
+		return h;
 	}
 
 	@Override
@@ -234,4 +461,84 @@ final class ListDataValue implements DataValue {
         return DataValueFactory.booleanValue(asBoolean());
     }
 
+
+	/**
+	 * Builder used to create a ListDataValue without copying the values. The
+	 * list that the values are added to is handed over to the ListDataValue
+	 * when {@link #build()} is called, so a Builder can only be used to create
+	 * a single ListDataValue.
+	 */
+	static final class Builder {
+
+		/** The values for the list. */
+		private List<DataValue> values;
+
+		/**
+		 * Creates a new Builder.
+		 */
+		Builder() {
+			values = new ArrayList<>();
+		}
+
+		/**
+		 * Creates a new Builder with space for the specified number of values.
+		 * 
+		 * @param capacity The expected number of values.
+		 */
+		Builder(int capacity) {
+			values = new ArrayList<>(capacity);
+		}
+
+		/**
+		 * Checks that the Builder has not already been used to create a list.
+		 * 
+		 * @throws IllegalStateException if {@link #build()} has been called.
+		 */
+		private void checkNotBuilt() {
+			if (values == null) {
+				throw new IllegalStateException("ListDataValue has already been built.");
+			}
+		}
+
+		/**
+		 * Adds a value to the end of the list.
+		 * 
+		 * @param val The value to add.
+		 * 
+		 * @return {@code this} so that methods can be chained.
+		 */
+		Builder add(DataValue val) {
+			checkNotBuilt();
+			values.add(val);
+			return this;
+		}
+
+		/**
+		 * Adds values to the end of the list.
+		 * 
+		 * @param vals The values to add.
+		 * 
+		 * @return {@code this} so that methods can be chained.
+		 */
+		Builder addAll(Collection<? extends DataValue> vals) {
+			checkNotBuilt();
+			values.addAll(vals);
+			return this;
+		}
+
+		/**
+		 * Creates the ListDataValue from the values that have been added.
+		 * 
+		 * @return the ListDataValue.
+		 * 
+		 * @throws IllegalStateException if this has already been called.
+		 */
+		ListDataValue build() {
+			checkNotBuilt();
+			final List<DataValue> lst = values;
+			values = null;
+			return new ListDataValue(Collections.unmodifiableList(lst));
+		}
+	}
+
 }
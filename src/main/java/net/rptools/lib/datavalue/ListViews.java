@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
+
+/**
+ * Unmodifiable views of lists used as the storage for {@link ListDataValue}s
+ * created by slicing, reversing, concatenating or mapping other lists. The
+ * views share the values of the lists they are created from instead of
+ * copying them, and the lists they are created from are never modified as 
+ * ListDataValues are immutable. 
+ * 
+ * All of the lists used by ListDataValues support fast random access, so the
+ * views do as well.
+ *
+ */
+final class ListViews {
+
+	/**
+	 * Private constructor as this class only has static methods.
+	 */
+	private ListViews() {
+	}
+
+	/**
+	 * Returns a view of part of a list.
+	 * 
+	 * @param lst The list.
+	 * @param from The index of the first value in the view.
+	 * @param to The index after the last value in the view.
+	 * 
+	 * @return the view.
+	 * 
+	 * @throws IndexOutOfBoundsException if {@code from} or {@code to} is outside
+	 *         the list, or {@code from} is greater than {@code to}.
+	 */
+	static List<DataValue> slice(List<DataValue> lst, int from, int to) {
+		final int size = lst.size();
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("From: " + from + ", To: " + to + ", Size: " + size);
+		}
+
+		if (from == 0 && to == size) {
+			return lst;
+		} else if (lst instanceof Slice) {
+			// Slice the original list rather than creating a view of a view.
+			final Slice slice = (Slice) lst;
+			return new Slice(slice.base, slice.offset + from, to - from);
+		} else if (lst instanceof Reversed) {
+			final List<DataValue> base = ((Reversed) lst).base;
+			return reverse(slice(base, size - to, size - from));
+		}
+		return new Slice(lst, from, to - from);
+	}
+
+	/**
+	 * Returns a view of a list in reverse order.
+	 * 
+	 * @param lst The list.
+	 * 
+	 * @return the view.
+	 */
+	static List<DataValue> reverse(List<DataValue> lst) {
+		if (lst.size() < 2) {
+			return lst;
+		} else if (lst instanceof Reversed) {
+			return ((Reversed) lst).base;
+		}
+		return new Reversed(lst);
+	}
+
+	/**
+	 * Returns a view of the values of one list followed by the values of another.
+	 * 
+	 * @param lst1 The first list.
+	 * @param lst2 The second list.
+	 * 
+	 * @return the view.
+	 */
+	static List<DataValue> concat(List<DataValue> lst1, List<DataValue> lst2) {
+		return new Concat(lst1, lst2);
+	}
+
+	/**
+	 * Returns {@code true} if the list is a view of two concatenated lists.
+	 * 
+	 * @param lst The list to check.
+	 * 
+	 * @return {@code true} if the list was created by {@link #concat(List, List)}.
+	 */
+	static boolean isConcat(List<DataValue> lst) {
+		return lst instanceof Concat;
+	}
+
+	/**
+	 * Returns {@code true} if the list is one of the views created by this
+	 * class.
+	 * 
+	 * @param lst The list to check.
+	 * 
+	 * @return {@code true} if the list is a view.
+	 */
+	static boolean isView(List<DataValue> lst) {
+		return lst instanceof Slice || lst instanceof Reversed || lst instanceof Concat || lst instanceof Mapped;
+	}
+
+	/**
+	 * Returns a view of a list with a function applied to each value. The 
+	 * function is applied to a value the first time it is needed and the
+	 * result is kept, so the function should not have side effects.
+	 * 
+	 * @param lst The list.
+	 * @param fn The function to apply.
+	 * 
+	 * @return the view.
+	 */
+	static List<DataValue> map(List<DataValue> lst, UnaryOperator<DataValue> fn) {
+		return new Mapped(lst, fn);
+	}
+
+	/**
+	 * A view of part of a list.
+	 */
+	private static final class Slice extends AbstractList<DataValue> implements RandomAccess {
+
+		/** The list the values are in. */
+		private final List<DataValue> base;
+
+		/** The index in {@link #base} of the first value. */
+		private final int offset;
+
+		/** The number of values. */
+		private final int size;
+
+		/**
+		 * Creates a new Slice.
+		 * 
+		 * @param lst The list the values are in.
+		 * @param off The index of the first value.
+		 * @param sz The number of values.
+		 */
+		Slice(List<DataValue> lst, int off, int sz) {
+			base = lst;
+			offset = off;
+			size = sz;
+		}
+
+		@Override
+		public DataValue get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return base.get(offset + index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * A view of a list in reverse order.
+	 */
+	private static final class Reversed extends AbstractList<DataValue> implements RandomAccess {
+
+		/** The list being reversed. */
+		private final List<DataValue> base;
+
+		/**
+		 * Creates a new Reversed.
+		 * 
+		 * @param lst The list being reversed.
+		 */
+		Reversed(List<DataValue> lst) {
+			base = lst;
+		}
+
+		@Override
+		public DataValue get(int index) {
+			final int size = base.size();
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return base.get(size - 1 - index);
+		}
+
+		@Override
+		public int size() {
+			return base.size();
+		}
+	}
+
+	/**
+	 * A view of one list followed by another.
+	 */
+	private static final class Concat extends AbstractList<DataValue> implements RandomAccess {
+
+		/** The first list. */
+		private final List<DataValue> first;
+
+		/** The second list. */
+		private final List<DataValue> second;
+
+		/** The size of the first list. */
+		private final int firstSize;
+
+		/**
+		 * Creates a new Concat.
+		 * 
+		 * @param lst1 The first list.
+		 * @param lst2 The second list.
+		 */
+		Concat(List<DataValue> lst1, List<DataValue> lst2) {
+			first = lst1;
+			second = lst2;
+			firstSize = lst1.size();
+		}
+
+		@Override
+		public DataValue get(int index) {
+			if (index < firstSize) {
+				if (index < 0) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+				}
+				return first.get(index);
+			}
+			return second.get(index - firstSize);
+		}
+
+		@Override
+		public int size() {
+			return firstSize + second.size();
+		}
+	}
+
+	/**
+	 * A view of a list with a function applied to each value.
+	 */
+	private static final class Mapped extends AbstractList<DataValue> implements RandomAccess {
+
+		/** The list being mapped. */
+		private final List<DataValue> base;
+
+		/** The function to apply. */
+		private final UnaryOperator<DataValue> function;
+
+		/** 
+		 * The results of the function, {@code null} until first needed. Threads
+		 * racing to apply the function store equal values so the array is not
+		 * synchronized.
+		 */
+		private final DataValue[] values;
+
+		/**
+		 * Creates a new Mapped.
+		 * 
+		 * @param lst The list being mapped.
+		 * @param fn The function to apply.
+		 */
+		Mapped(List<DataValue> lst, UnaryOperator<DataValue> fn) {
+			base = lst;
+			function = fn;
+			values = new DataValue[lst.size()];
+		}
+
+		@Override
+		public DataValue get(int index) {
+			if (index < 0 || index >= values.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + values.length);
+			}
+			DataValue val = values[index];
+			if (val == null) {
+				val = function.apply(base.get(index));
+				if (val == null) {
+					throw new NullPointerException("List map function returned null.");
+				}
+				values[index] = val;
+			}
+			return val;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable {@link java.util.List} of {@link DataType#LONG} DataValues that
+ * stores the values in a long array. The DataValues are only created when they are
+ * retrieved from the list. This is used as the storage for {@link ListDataValue}s
+ * that only contain integer values.
+ *
+ */
+final class LongArrayList extends AbstractList<DataValue> implements RandomAccess {
+
+	/** The values in the list. */
+	private final long[] values;
+
+	/**
+	 * Creates a new LongArrayList. The array is not copied so it must not be
+	 * modified after the list is created.
+	 *
+	 * @param vals The values in the list.
+	 */
+	LongArrayList(long[] vals) {
+		values = vals;
+	}
+
+	@Override
+	public DataValue get(int index) {
+		return DataValueFactory.longValue(values[index]);
+	}
+
+	/**
+	 * Returns the value at the specified position in the list without creating
+	 * a DataValue for it.
+	 *
+	 * @param index The index of the value to return.
+	 *
+	 * @return the value.
+	 */
+	long getLong(int index) {
+		return values[index];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (o instanceof LongDataValue) {
+			final long l = ((LongDataValue) o).asLong();
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == l) {
+					return i;
+				}
+			}
+			return -1;
+		} else {
+			return super.indexOf(o);
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+}
@@ -17,6 +17,7 @@ package net.rptools.lib.datavalue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 import net.rptools.lib.result.ResultBuilder;
@@ -27,6 +28,85 @@ import net.rptools.lib.result.ResultBuilder;
  */
 final class LongDataValue implements DataValue {
 	
+	/** 
+	 * System property used to set the lowest value held in the LongDataValue
+	 * cache.
+	 */
+	static final String CACHE_LOW_PROPERTY = "net.rptools.lib.datavalue.LongDataValue.cacheLow";
+
+	/** 
+	 * System property used to set the highest value held in the LongDataValue
+	 * cache.
+	 */
+	static final String CACHE_HIGH_PROPERTY = "net.rptools.lib.datavalue.LongDataValue.cacheHigh";
+
+	/** The default lowest value held in the cache. */
+	private static final long DEFAULT_CACHE_LOW = -1024;
+
+	/** The default highest value held in the cache. */
+	private static final long DEFAULT_CACHE_HIGH = 65536;
+
+	/** The lowest value held in the cache. */
+	private static final long cacheLow;
+
+	/** The highest value held in the cache. */
+	private static final long cacheHigh;
+
+	/** 
+	 * The preallocated LongDataValues for the values between {@link #cacheLow} 
+	 * and {@link #cacheHigh} inclusive.
+	 */
+	private static final LongDataValue[] cache;
+
+	static {
+		final long[] range = cacheRange(Long.getLong(CACHE_LOW_PROPERTY, DEFAULT_CACHE_LOW), 
+				Long.getLong(CACHE_HIGH_PROPERTY, DEFAULT_CACHE_HIGH));
+		cacheLow = range[0];
+		cacheHigh = range[1];
+		cache = new LongDataValue[(int) (cacheHigh - cacheLow + 1)];
+		for (int i = 0; i < cache.length; i++) {
+			cache[i] = new LongDataValue(cacheLow + i);
+		}
+	}
+
+	/**
+	 * Works out the range of values held in the cache from the configured 
+	 * range. A high value below the low value disables the cache, and a range
+	 * too large to be held in a single array is replaced by the default range.
+	 * 
+	 * @param low The configured lowest value.
+	 * @param high The configured highest value.
+	 * 
+	 * @return the lowest and highest values held in the cache, the highest is
+	 *         one less than the lowest if the cache is disabled.
+	 */
+	static long[] cacheRange(long low, long high) {
+		if (high < low) {
+			return new long[] { 0, -1 };
+		}
+		final long size = high - low;
+		if (size < 0 || size >= Integer.MAX_VALUE - 8) {
+			return new long[] { DEFAULT_CACHE_LOW, DEFAULT_CACHE_HIGH };
+		}
+		return new long[] { low, high };
+	}
+
+	/**
+	 * Returns a LongDataValue for the specified value. Values that fall within
+	 * the cached range are returned from the cache rather than being allocated. 
+	 * 
+	 * @param val The value to return a LongDataValue for.
+	 * 
+	 * @return the LongDataValue.
+	 */
+	static LongDataValue getLongDataValue(long val) {
+		if (val >= cacheLow && val <= cacheHigh) {
+			return cache[(int) (val - cacheLow)];
+		} else {
+			return new LongDataValue(val);
+		}
+	}
+
 	/** The numeric value of this LongDataValue. */
 	private final long value;
 	
@@ -91,12 +171,112 @@ final class LongDataValue implements DataValue {
 	public DataValue power(DataValue exp) {
         return DataValueOperations.power(this, exp);
 	}	
+
+	@Override
+	public DataValue add(long val) {
+		return DataValueFactory.longValue(value + val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return DataValueFactory.doubleValue(value + val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return DataValueFactory.longValue(value - val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return DataValueFactory.doubleValue(value - val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return DataValueFactory.longValue(value * val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return DataValueFactory.doubleValue(value * val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return DataValueFactory.longValue(value / val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return DataValueFactory.doubleValue(value / val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return DataValueFactory.longValue(value % val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return DataValueFactory.doubleValue(value % val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return DataValueFactory.longValue((long)Math.pow(value, val));
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return DataValueFactory.doubleValue(Math.pow(value, val));
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return Long.compare(value, val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return Double.compare(value, val);
+	}
 	
 	@Override
 	public DataValue negate() {
 		return DataValueFactory.longValue(-value);
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue without(String key) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue reverse() {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		throw new UnsupportedOperationException("Can not perform list operations on a numeric value.");
+	}
+
 
 
 	@Override
@@ -149,7 +329,10 @@ final class LongDataValue implements DataValue {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + (int) (value ^ (value >>> 32));
+		// Equal to a DoubleDataValue holding the same number, so hash the value
+		// the same way DoubleDataValue does.
+		final long temp = Double.doubleToLongBits(value);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		return result;
 	}
 	
@@ -0,0 +1,616 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable {@link Map} of names to DataValues that iterates in insertion
+ * order, like a {@link java.util.LinkedHashMap}, but where adding, replacing or
+ * removing a mapping creates a new map that shares all but the changed path with
+ * the original. This is used as the storage for {@link DictionaryDataValue}s that
+ * are updated incrementally.
+ *
+ * The mappings are held in a hash array mapped trie for lookup and in a
+ * {@link PersistentVector} for the iteration order. Removing a mapping leaves an
+ * empty slot in the vector, the vector is compacted once more than half of its
+ * slots are empty.
+ *
+ */
+final class PersistentOrderedMap extends AbstractMap<String, DataValue> {
+
+	/** The number of bits of the hash used at each level of the trie. */
+	private static final int BITS = 5;
+
+	/** Mask for the bits of the hash used at each level of the trie. */
+	private static final int MASK = (1 << BITS) - 1;
+
+	/** The minimum number of empty slots in the order vector before it is compacted. */
+	private static final int MIN_COMPACT = 32;
+
+	/** The empty map. */
+	static final PersistentOrderedMap EMPTY = new PersistentOrderedMap(null, PersistentVector.<Entry>empty(), 0);
+
+	/** The root node of the trie, {@code null} if the map is empty. */
+	private final Node root;
+
+	/** The entries in insertion order, removed entries leave a {@code null}. */
+	private final PersistentVector<Entry> order;
+
+	/** The number of mappings in the map. */
+	private final int size;
+
+	/** The entry set view of the map. */
+	private transient Set<Map.Entry<String, DataValue>> entrySet;
+
+	/**
+	 * Creates a new PersistentOrderedMap.
+	 *
+	 * @param rt The root node of the trie.
+	 * @param ord The entries in insertion order.
+	 * @param sz The number of mappings.
+	 */
+	private PersistentOrderedMap(Node rt, PersistentVector<Entry> ord, int sz) {
+		root = rt;
+		order = ord;
+		size = sz;
+	}
+
+	/**
+	 * Returns a PersistentOrderedMap containing the mappings in the specified map,
+	 * in the iteration order of that map.
+	 *
+	 * @param map The mappings.
+	 *
+	 * @return the PersistentOrderedMap.
+	 */
+	static PersistentOrderedMap of(Map<String, ? extends DataValue> map) {
+		if (map instanceof PersistentOrderedMap) {
+			return (PersistentOrderedMap) map;
+		} else {
+			return EMPTY.withAll(map);
+		}
+	}
+
+	/**
+	 * Returns the entry for the specified key.
+	 *
+	 * @param key The key to look up.
+	 *
+	 * @return the entry or {@code null} if there is no mapping for the key.
+	 */
+	private Entry find(Object key) {
+		if (root == null || key instanceof String == false) {
+			return null;
+		}
+		return root.find(0, key.hashCode(), (String) key);
+	}
+
+	@Override
+	public DataValue get(Object key) {
+		Entry e = find(key);
+		return e == null ? null : e.value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a new map with the specified mapping added. If there is already a
+	 * mapping for the key it is replaced but keeps its position in the iteration
+	 * order, otherwise the mapping is added to the end of the iteration order.
+	 *
+	 * @param key The key.
+	 * @param val The value for the key.
+	 *
+	 * @return the new map.
+	 *
+	 * @throws NullPointerException if key is {@code null}.
+	 */
+	PersistentOrderedMap with(String key, DataValue val) {
+		final int hash = key.hashCode();
+		final Entry existing = root == null ? null : root.find(0, hash, key);
+
+		if (existing != null) {
+			if (existing.value == val) {
+				return this;
+			}
+			Entry e = new Entry(key, val, existing.index);
+			return new PersistentOrderedMap(root.with(0, hash, e), order.replace(e.index, e), size);
+		} else {
+			Entry e = new Entry(key, val, order.size());
+			Node rt = root == null ? BitmapNode.EMPTY.with(0, hash, e) : root.with(0, hash, e);
+			return new PersistentOrderedMap(rt, order.append(e), size + 1);
+		}
+	}
+
+	/**
+	 * Returns a new map with the mappings in the specified map added, as if by
+	 * calling {@link #with(String, DataValue)} for each mapping in turn.
+	 *
+	 * @param map The mappings to add.
+	 *
+	 * @return the new map.
+	 */
+	PersistentOrderedMap withAll(Map<String, ? extends DataValue> map) {
+		PersistentOrderedMap result = this;
+		for (Map.Entry<String, ? extends DataValue> e : map.entrySet()) {
+			result = result.with(e.getKey(), e.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new map without the mapping for the specified key.
+	 *
+	 * @param key The key to remove.
+	 *
+	 * @return the new map, or this map if there is no mapping for the key.
+	 */
+	PersistentOrderedMap without(String key) {
+		final Entry existing = find(key);
+		if (existing == null) {
+			return this;
+		}
+
+		if (size == 1) {
+			return EMPTY;
+		}
+
+		final Node rt = root.without(0, key.hashCode(), key);
+		final PersistentVector<Entry> ord = order.replace(existing.index, null);
+		final int empty = ord.size() - (size - 1);
+		if (empty > MIN_COMPACT && empty > size - 1) {
+			return compact(ord);
+		} else {
+			return new PersistentOrderedMap(rt, ord, size - 1);
+		}
+	}
+
+	/**
+	 * Creates a new map from the non empty slots of an order vector.
+	 *
+	 * @param ord The order vector.
+	 *
+	 * @return the new map.
+	 */
+	private static PersistentOrderedMap compact(PersistentVector<Entry> ord) {
+		PersistentOrderedMap result = EMPTY;
+		for (Entry e : ord) {
+			if (e != null) {
+				result = result.with(e.key, e.value);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Set<Map.Entry<String, DataValue>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<String, DataValue>>() {
+				@Override
+				public Iterator<Map.Entry<String, DataValue>> iterator() {
+					return new EntryIterator(order.iterator());
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (o instanceof Map.Entry == false) {
+						return false;
+					}
+					Map.Entry<?, ?> me = (Map.Entry<?, ?>) o;
+					Entry e = find(me.getKey());
+					return e != null && e.equals(me);
+				}
+			};
+		}
+		return entrySet;
+	}
+
+
+	/**
+	 * Iterator over the entries in the order vector that skips the empty slots.
+	 */
+	private static final class EntryIterator implements Iterator<Map.Entry<String, DataValue>> {
+		/** The iterator over the order vector. */
+		private final Iterator<Entry> iter;
+
+		/** The next entry to return. */
+		private Entry next;
+
+		/**
+		 * Creates a new EntryIterator.
+		 *
+		 * @param it The iterator over the order vector.
+		 */
+		EntryIterator(Iterator<Entry> it) {
+			iter = it;
+			advance();
+		}
+
+		/**
+		 * Moves to the next non empty slot.
+		 */
+		private void advance() {
+			next = null;
+			while (next == null && iter.hasNext()) {
+				next = iter.next();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<String, DataValue> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Entry e = next;
+			advance();
+			return e;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * A mapping in the map.
+	 */
+	private static final class Entry implements Map.Entry<String, DataValue> {
+		/** The key. */
+		private final String key;
+
+		/** The value. */
+		private final DataValue value;
+
+		/** The index of the entry in the order vector. */
+		private final int index;
+
+		/**
+		 * Creates a new Entry.
+		 *
+		 * @param k The key.
+		 * @param v The value.
+		 * @param idx The index of the entry in the order vector.
+		 */
+		Entry(String k, DataValue v, int idx) {
+			key = k;
+			value = v;
+			index = idx;
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public DataValue getValue() {
+			return value;
+		}
+
+		@Override
+		public DataValue setValue(DataValue v) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Map.Entry == false) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) obj;
+			return key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+
+	/**
+	 * A node in the hash array mapped trie.
+	 */
+	private interface Node {
+		/**
+		 * Returns the entry for the key.
+		 *
+		 * @param shift The shift of the hash for this level.
+		 * @param hash The hash of the key.
+		 * @param key The key.
+		 *
+		 * @return the entry or {@code null} if there is no entry for the key.
+		 */
+		Entry find(int shift, int hash, String key);
+
+		/**
+		 * Returns a copy of the node with the entry added or replaced.
+		 *
+		 * @param shift The shift of the hash for this level.
+		 * @param hash The hash of the key.
+		 * @param e The entry.
+		 *
+		 * @return the new node.
+		 */
+		Node with(int shift, int hash, Entry e);
+
+		/**
+		 * Returns a copy of the node with the entry for the key removed.
+		 *
+		 * @param shift The shift of the hash for this level.
+		 * @param hash The hash of the key.
+		 * @param key The key.
+		 *
+		 * @return the new node, {@code null} if the node would be empty.
+		 */
+		Node without(int shift, int hash, String key);
+	}
+
+
+	/**
+	 * Node that holds up to 32 entries or child nodes, a bitmap records which of the
+	 * 32 possible slots are present.
+	 */
+	private static final class BitmapNode implements Node {
+		/** The empty node. */
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		/** The slots that are present. */
+		private final int bitmap;
+
+		/** The entries and child nodes for the slots that are present. */
+		private final Object[] array;
+
+		/**
+		 * Creates a new BitmapNode.
+		 *
+		 * @param bm The slots that are present.
+		 * @param arr The entries and child nodes.
+		 */
+		BitmapNode(int bm, Object[] arr) {
+			bitmap = bm;
+			array = arr;
+		}
+
+		/**
+		 * Returns the index in the array for a bit.
+		 *
+		 * @param bit The bit for the slot.
+		 *
+		 * @return the index.
+		 */
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		public Entry find(int shift, int hash, String key) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+
+			final Object o = array[index(bit)];
+			if (o instanceof Entry) {
+				Entry e = (Entry) o;
+				return key.equals(e.key) ? e : null;
+			} else {
+				return ((Node) o).find(shift + BITS, hash, key);
+			}
+		}
+
+		@Override
+		public Node with(int shift, int hash, Entry e) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			final int idx = index(bit);
+
+			if ((bitmap & bit) == 0) {
+				Object[] arr = new Object[array.length + 1];
+				System.arraycopy(array, 0, arr, 0, idx);
+				arr[idx] = e;
+				System.arraycopy(array, idx, arr, idx + 1, array.length - idx);
+				return new BitmapNode(bitmap | bit, arr);
+			}
+
+			final Object o = array[idx];
+			final Object replacement;
+			if (o instanceof Entry) {
+				Entry existing = (Entry) o;
+				if (existing.key.equals(e.key)) {
+					replacement = e;
+				} else {
+					replacement = createNode(shift + BITS, existing, hash, e);
+				}
+			} else {
+				replacement = ((Node) o).with(shift + BITS, hash, e);
+			}
+
+			Object[] arr = array.clone();
+			arr[idx] = replacement;
+			return new BitmapNode(bitmap, arr);
+		}
+
+		@Override
+		public Node without(int shift, int hash, String key) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+
+			final int idx = index(bit);
+			final Object o = array[idx];
+			if (o instanceof Entry) {
+				if (((Entry) o).key.equals(key) == false) {
+					return this;
+				}
+				if (array.length == 1) {
+					return null;
+				}
+				Object[] arr = new Object[array.length - 1];
+				System.arraycopy(array, 0, arr, 0, idx);
+				System.arraycopy(array, idx + 1, arr, idx, array.length - idx - 1);
+				return new BitmapNode(bitmap & ~bit, arr);
+			}
+
+			final Node child = ((Node) o).without(shift + BITS, hash, key);
+			if (child == o) {
+				return this;
+			}
+			if (child == null) {
+				if (array.length == 1) {
+					return null;
+				}
+				Object[] arr = new Object[array.length - 1];
+				System.arraycopy(array, 0, arr, 0, idx);
+				System.arraycopy(array, idx + 1, arr, idx, array.length - idx - 1);
+				return new BitmapNode(bitmap & ~bit, arr);
+			}
+
+			Object[] arr = array.clone();
+			arr[idx] = child;
+			return new BitmapNode(bitmap, arr);
+		}
+
+		/**
+		 * Creates a node holding two entries whose hashes match up to the specified level.
+		 *
+		 * @param shift The shift of the hash for the new node.
+		 * @param e1 The first entry.
+		 * @param hash2 The hash of the key of the second entry.
+		 * @param e2 The second entry.
+		 *
+		 * @return the new node.
+		 */
+		private static Node createNode(int shift, Entry e1, int hash2, Entry e2) {
+			final int hash1 = e1.key.hashCode();
+			if (hash1 == hash2) {
+				return new CollisionNode(hash1, new Entry[] { e1, e2 });
+			}
+			return EMPTY.with(shift, hash1, e1).with(shift, hash2, e2);
+		}
+	}
+
+
+	/**
+	 * Node that holds entries whose keys have the same hash.
+	 */
+	private static final class CollisionNode implements Node {
+		/** The hash of the keys. */
+		private final int hash;
+
+		/** The entries. */
+		private final Entry[] entries;
+
+		/**
+		 * Creates a new CollisionNode.
+		 *
+		 * @param h The hash of the keys.
+		 * @param ents The entries.
+		 */
+		CollisionNode(int h, Entry[] ents) {
+			hash = h;
+			entries = ents;
+		}
+
+		/**
+		 * Returns the index of the entry for the key.
+		 *
+		 * @param key The key.
+		 *
+		 * @return the index or -1 if there is no entry for the key.
+		 */
+		private int indexOf(String key) {
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].key.equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Entry find(int shift, int h, String key) {
+			final int idx = indexOf(key);
+			return idx < 0 ? null : entries[idx];
+		}
+
+		@Override
+		public Node with(int shift, int h, Entry e) {
+			if (h != hash) {
+				// Nest this node in a bitmap node so that the new entry can be added beside it.
+				final Node node = new BitmapNode(1 << ((hash >>> shift) & MASK), new Object[] { this });
+				return node.with(shift, h, e);
+			}
+
+			final int idx = indexOf(e.key);
+			final Entry[] ents;
+			if (idx < 0) {
+				ents = Arrays.copyOf(entries, entries.length + 1);
+				ents[entries.length] = e;
+			} else {
+				ents = entries.clone();
+				ents[idx] = e;
+			}
+			return new CollisionNode(hash, ents);
+		}
+
+		@Override
+		public Node without(int shift, int h, String key) {
+			final int idx = indexOf(key);
+			if (idx < 0) {
+				return this;
+			}
+			if (entries.length == 1) {
+				return null;
+			}
+			Entry[] ents = new Entry[entries.length - 1];
+			System.arraycopy(entries, 0, ents, 0, idx);
+			System.arraycopy(entries, idx + 1, ents, idx, entries.length - idx - 1);
+			return new CollisionNode(hash, ents);
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable {@link java.util.List} stored in a 32 way trie so that appending
+ * or replacing values creates a new list that shares all but the changed path
+ * of the trie with the original. This is used as the storage for
+ * {@link ListDataValue}s built by concatenation so that building a list by
+ * repeatedly adding to it does not copy the whole list for each addition.
+ *
+ * The last (up to) 32 values are held in a separate tail array, so most appends
+ * only copy the tail.
+ *
+ * @param <E> The type of the values in the list.
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+	/** The number of bits of the index used at each level of the trie. */
+	private static final int BITS = 5;
+
+	/** The number of children in each node of the trie. */
+	private static final int WIDTH = 1 << BITS;
+
+	/** Mask for the bits of the index used at each level of the trie. */
+	private static final int MASK = WIDTH - 1;
+
+	/** The empty vector. */
+	private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+	/** The number of values in the vector. */
+	private final int count;
+
+	/** The shift of the index for the root level of the trie. */
+	private final int shift;
+
+	/**
+	 * The root of the trie. Interior nodes hold arrays of child nodes, leaf
+	 * nodes hold arrays of the values.
+	 */
+	private final Object[] root;
+
+	/** The values at the end of the vector that are not yet in the trie. */
+	private final Object[] tail;
+
+	/**
+	 * Creates a new PersistentVector.
+	 *
+	 * @param cnt The number of values in the vector.
+	 * @param shft The shift of the index for the root level.
+	 * @param rt The root of the trie.
+	 * @param tl The tail values.
+	 */
+	private PersistentVector(int cnt, int shft, Object[] rt, Object[] tl) {
+		count = cnt;
+		shift = shft;
+		root = rt;
+		tail = tl;
+	}
+
+	/**
+	 * Returns the empty vector.
+	 *
+	 * @param <E> The type of the values in the vector.
+	 *
+	 * @return the empty vector.
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PersistentVector<E> empty() {
+		return (PersistentVector<E>) EMPTY;
+	}
+
+	/**
+	 * Returns the index of the first value held in the tail.
+	 *
+	 * @return the index of the first value in the tail.
+	 */
+	private int tailOffset() {
+		return tailOffset(count);
+	}
+
+	/**
+	 * Returns the index of the first value held in the tail for a vector
+	 * of the specified size.
+	 *
+	 * @param cnt The size of the vector.
+	 *
+	 * @return the index of the first value in the tail.
+	 */
+	private static int tailOffset(int cnt) {
+		if (cnt < WIDTH) {
+			return 0;
+		} else {
+			return ((cnt - 1) >>> BITS) << BITS;
+		}
+	}
+
+	/**
+	 * Returns the leaf array that holds the value at the specified index.
+	 *
+	 * @param index The index of the value.
+	 *
+	 * @return the array holding the value.
+	 */
+	private Object[] arrayFor(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+
+		if (index >= tailOffset()) {
+			return tail;
+		}
+
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		return (E) arrayFor(index)[index & MASK];
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns a new vector with the value appended to the end of this vector.
+	 *
+	 * @param val The value to append.
+	 *
+	 * @return the new vector.
+	 */
+	PersistentVector<E> append(E val) {
+		if (count - tailOffset() < WIDTH) {
+			Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+			newTail[tail.length] = val;
+			return new PersistentVector<>(count + 1, shift, root, newTail);
+		}
+
+		Object[] newRoot;
+		int newShift = shift;
+		if ((count >>> BITS) > (1 << shift)) {
+			newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			newRoot[1] = newPath(shift, tail);
+			newShift += BITS;
+		} else {
+			newRoot = pushTail(count, shift, root, tail);
+		}
+
+		return new PersistentVector<>(count + 1, newShift, newRoot, new Object[] { val });
+	}
+
+	/**
+	 * Returns a new vector with the values appended to the end of this vector.
+	 *
+	 * @param vals The values to append.
+	 *
+	 * @return the new vector.
+	 */
+	PersistentVector<E> appendAll(Collection<? extends E> vals) {
+		if (vals.isEmpty()) {
+			return this;
+		}
+
+		int cnt = count;
+		int shft = shift;
+		Object[] rt = root;
+		Object[] tl = Arrays.copyOf(tail, WIDTH);
+		int tailLength = tail.length;
+
+		Iterator<? extends E> iter = vals.iterator();
+		while (iter.hasNext()) {
+			if (tailLength == WIDTH) {
+				// The tail is full so push it in to the trie.
+				if ((cnt >>> BITS) > (1 << shft)) {
+					Object[] newRoot = new Object[WIDTH];
+					newRoot[0] = rt;
+					newRoot[1] = newPath(shft, tl);
+					rt = newRoot;
+					shft += BITS;
+				} else {
+					rt = pushTail(cnt, shft, rt, tl);
+				}
+				tl = new Object[WIDTH];
+				tailLength = 0;
+			}
+
+			tl[tailLength++] = iter.next();
+			cnt++;
+		}
+
+		if (tailLength < WIDTH) {
+			tl = Arrays.copyOf(tl, tailLength);
+		}
+
+		return new PersistentVector<>(cnt, shft, rt, tl);
+	}
+
+	/**
+	 * Returns a new vector with the value at the specified index replaced.
+	 *
+	 * @param index The index of the value to replace.
+	 * @param val The new value.
+	 *
+	 * @return the new vector.
+	 */
+	PersistentVector<E> replace(int index, E val) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+
+		if (index >= tailOffset()) {
+			Object[] newTail = tail.clone();
+			newTail[index & MASK] = val;
+			return new PersistentVector<>(count, shift, root, newTail);
+		}
+
+		return new PersistentVector<>(count, shift, replace(shift, root, index, val), tail);
+	}
+
+	/**
+	 * Returns a copy of the path to the leaf holding the specified index with
+	 * the value at that index replaced.
+	 *
+	 * @param level The shift for the level of the node.
+	 * @param node The node at this level.
+	 * @param index The index of the value to replace.
+	 * @param val The new value.
+	 *
+	 * @return the copy of the node.
+	 */
+	private static Object[] replace(int level, Object[] node, int index, Object val) {
+		Object[] ret = node.clone();
+		if (level == 0) {
+			ret[index & MASK] = val;
+		} else {
+			int subIndex = (index >>> level) & MASK;
+			ret[subIndex] = replace(level - BITS, (Object[]) node[subIndex], index, val);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a copy of the path to the last leaf of the trie with a full tail
+	 * added as the new last leaf.
+	 *
+	 * @param cnt The number of values in the vector including the tail.
+	 * @param level The shift for the level of the node.
+	 * @param parent The node at this level.
+	 * @param tailNode The tail to add.
+	 *
+	 * @return the copy of the node.
+	 */
+	private static Object[] pushTail(int cnt, int level, Object[] parent, Object[] tailNode) {
+		int subIndex = ((cnt - 1) >>> level) & MASK;
+		Object[] ret = parent.clone();
+		Object[] nodeToInsert;
+		if (level == BITS) {
+			nodeToInsert = tailNode;
+		} else {
+			Object[] child = (Object[]) parent[subIndex];
+			if (child != null) {
+				nodeToInsert = pushTail(cnt, level - BITS, child, tailNode);
+			} else {
+				nodeToInsert = newPath(level - BITS, tailNode);
+			}
+		}
+		ret[subIndex] = nodeToInsert;
+		return ret;
+	}
+
+	/**
+	 * Creates a new path from the specified level down to a leaf.
+	 *
+	 * @param level The shift for the top level of the path.
+	 * @param node The leaf at the end of the path.
+	 *
+	 * @return the top node of the path.
+	 */
+	private static Object[] newPath(int level, Object[] node) {
+		if (level == 0) {
+			return node;
+		}
+		Object[] ret = new Object[WIDTH];
+		ret[0] = newPath(level - BITS, node);
+		return ret;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			/** The index of the next value. */
+			private int index = 0;
+
+			/** The leaf array for the current index. */
+			private Object[] array = count > 0 ? arrayFor(0) : null;
+
+			@Override
+			public boolean hasNext() {
+				return index < count;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (index >= count) {
+					throw new NoSuchElementException();
+				}
+				if (index > 0 && (index & MASK) == 0) {
+					array = arrayFor(index);
+				}
+				return (E) array[index++ & MASK];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -16,6 +16,7 @@ package net.rptools.lib.datavalue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 
@@ -34,6 +35,12 @@ final class ResultDataValue implements DataValue {
 	
 	/** The result to be used in calculations. */
 	private final DataValue value;
+
+	/** Cached hash code of the result, 0 until first calculated. */
+	private int hash;
+
+	/** Cached String representation of the value, {@code null} until first needed. */
+	private String string;
 	
 	/**
 	 * Creates a new ResultDataValue object. 
@@ -57,7 +64,12 @@ final class ResultDataValue implements DataValue {
 	
 	@Override
 	public String asString() {
-		return value.asString();
+		String str = string;
+		if (str == null) {
+			str = value.asString();
+			string = str;
+		}
+		return str;
 	}
 
 	@Override
@@ -108,6 +120,76 @@ final class ResultDataValue implements DataValue {
 		return value.power(exp);
 	}
 
+	@Override
+	public DataValue add(long val) {
+		return value.add(val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return value.add(val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return value.subtract(val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return value.subtract(val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return value.multiply(val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return value.multiply(val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return value.divide(val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return value.divide(val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return value.remainder(val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return value.remainder(val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return value.power(val);
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return value.power(val);
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return value.compareTo(val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return value.compareTo(val);
+	}
+
 	@Override
 	public boolean hasLabel() {
 		return value.hasLabel();
@@ -128,6 +210,36 @@ final class ResultDataValue implements DataValue {
 		return value.negate();
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		return result.getValue().with(key, val);
+	}
+
+	@Override
+	public DataValue without(String key) {
+		return result.getValue().without(key);
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		return result.getValue().merge(dict);
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		return result.getValue().slice(from, to);
+	}
+
+	@Override
+	public DataValue reverse() {
+		return result.getValue().reverse();
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		return result.getValue().map(fn);
+	}
+
 	@Override
 	public String toString() {
 		return "Data Value " + result.toString();
@@ -158,11 +270,14 @@ final class ResultDataValue implements DataValue {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((this.result == null) ? 0 : this.result.hashCode());
-		return result;
+		int h = hash;
+		if (h == 0) {
+			final int prime = 31;
+			h = 1;
+			h = prime * h + ((this.result == null) ? 0 : this.result.hashCode());
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
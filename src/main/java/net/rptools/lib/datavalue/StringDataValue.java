@@ -17,6 +17,7 @@ package net.rptools.lib.datavalue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import net.rptools.lib.result.Result;
 import net.rptools.lib.result.ResultBuilder;
@@ -91,12 +92,112 @@ final class StringDataValue implements DataValue {
 	public DataValue power(DataValue exp) {
         return DataValueOperations.power(this, exp);
 	}	
+
+	@Override
+	public DataValue add(long val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue add(double val) {
+		return DataValueOperations.add(this, val);
+	}
+
+	@Override
+	public DataValue subtract(long val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue subtract(double val) {
+		return DataValueOperations.subtract(this, val);
+	}
+
+	@Override
+	public DataValue multiply(long val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue multiply(double val) {
+		return DataValueOperations.multiply(this, val);
+	}
+
+	@Override
+	public DataValue divide(long val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue divide(double val) {
+		return DataValueOperations.divide(this, val);
+	}
+
+	@Override
+	public DataValue remainder(long val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue remainder(double val) {
+		return DataValueOperations.remainder(this, val);
+	}
+
+	@Override
+	public DataValue power(long val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public DataValue power(double val) {
+		return DataValueOperations.power(this, val);
+	}
+
+	@Override
+	public int compareTo(long val) {
+		return DataValueOperations.compare(this, val);
+	}
+
+	@Override
+	public int compareTo(double val) {
+		return DataValueOperations.compare(this, val);
+	}
 	
 	@Override
 	public DataValue negate() {
 		throw new UnsupportedOperationException("Can not convert string to a numeric value");
 	}
 
+	@Override
+	public DataValue with(String key, DataValue val) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a string.");
+	}
+
+	@Override
+	public DataValue without(String key) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a string.");
+	}
+
+	@Override
+	public DataValue merge(DataValue dict) {
+		throw new UnsupportedOperationException("Can not perform dictionary operations on a string.");
+	}
+
+	@Override
+	public DataValue slice(int from, int to) {
+		throw new UnsupportedOperationException("Can not perform list operations on a string.");
+	}
+
+	@Override
+	public DataValue reverse() {
+		throw new UnsupportedOperationException("Can not perform list operations on a string.");
+	}
+
+	@Override
+	public DataValue map(UnaryOperator<DataValue> fn) {
+		throw new UnsupportedOperationException("Can not perform list operations on a string.");
+	}
+
 
 
 	@Override
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.datavalue;
+
+/**
+ * Thrown when an operation would create a string longer than the maximum
+ * length allowed for string values.
+ *
+ */
+public class StringTooLongException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The length of the string the operation would have created. */
+	private final long length;
+
+	/** The maximum length allowed. */
+	private final long maxLength;
+
+	/**
+	 * Creates a new StringTooLongException.
+	 * 
+	 * @param len The length of the string the operation would have created.
+	 * @param max The maximum length allowed.
+	 */
+	public StringTooLongException(long len, long max) {
+		super("String of " + len + " characters is longer than the maximum of " + max + ".");
+		length = len;
+		maxLength = max;
+	}
+
+	/**
+	 * Returns the length of the string the operation would have created.
+	 * 
+	 * @return the length.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the maximum length allowed.
+	 * 
+	 * @return the maximum length.
+	 */
+	public long getMaxLength() {
+		return maxLength;
+	}
+}
@@ -0,0 +1,483 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+/**
+ * The exact probability of each total of a {@link DiceProgram}, for example to
+ * show the chance of beating a target number before rolling.
+ * 
+ * The distribution of each group of dice is worked out and then the groups are
+ * convolved together.
+ * <ul>
+ *   <li>For a group where all dice are kept, the distribution of one die is 
+ *       convolved with itself by repeated squaring.</li>
+ *   <li>For a group that keeps the highest or lowest dice, the faces are 
+ *       processed from the highest down. For each number of dice already 
+ *       seen the number showing the current face has a binomial 
+ *       distribution. Once enough dice have been seen the kept total is 
+ *       known. The work grows with the cube of the number of dice kept, so a
+ *       group can keep at most a few hundred dice.</li>
+ * </ul>
+ * Convolutions of long distributions use a fast Fourier transform, so the 
+ * probabilities can be out by around 1e-15 and very unlikely totals can have
+ * a probability of 0.
+ * 
+ * A DiceDistribution is immutable.
+ *
+ */
+public final class DiceDistribution {
+
+	/** 
+	 * System property used to set the largest number of possible totals of a 
+	 * distribution.
+	 */
+	static final String MAX_OUTCOMES_PROPERTY = "net.rptools.lib.result.DiceDistribution.maxOutcomes";
+
+	/** The default largest number of possible totals of a distribution. */
+	private static final int DEFAULT_MAX_OUTCOMES = 1 << 20;
+
+	/** The largest number of possible totals of a distribution. */
+	private static final int MAX_OUTCOMES = Integer.getInteger(MAX_OUTCOMES_PROPERTY, DEFAULT_MAX_OUTCOMES);
+
+	/** 
+	 * The largest amount of work for the distribution of a group that keeps 
+	 * the highest or lowest dice, roughly the number of multiplications.
+	 */
+	private static final double MAX_KEEP_WORK = 2e9;
+
+	/** 
+	 * The smallest product of the lengths of two distributions for which they
+	 * are convolved using a fast Fourier transform.
+	 */
+	private static final long FFT_THRESHOLD = 1 << 14;
+
+	/** The smallest total. */
+	private final long minimum;
+
+	/** The probability of each total, starting at the minimum. */
+	private final double[] probabilities;
+
+	/**
+	 * Creates a new DiceDistribution.
+	 * 
+	 * @param min The smallest total.
+	 * @param probs The probability of each total, starting at the minimum.
+	 */
+	private DiceDistribution(long min, double[] probs) {
+		minimum = min;
+		probabilities = probs;
+	}
+
+	/**
+	 * Works out the distribution of the totals of a roll expression.
+	 * 
+	 * @param rexpr The roll expression.
+	 * 
+	 * @return the distribution.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid or the
+	 *         distribution is too large to work out.
+	 */
+	public static DiceDistribution of(RollExpression rexpr) {
+		return of(rexpr.getProgram());
+	}
+
+	/**
+	 * Works out the distribution of the totals of a dice program.
+	 * 
+	 * @param program The dice program.
+	 * 
+	 * @return the distribution.
+	 * 
+	 * @throws IllegalArgumentException if the distribution is too large to 
+	 *         work out.
+	 */
+	public static DiceDistribution of(DiceProgram program) {
+		final long outcomes = program.getMaximum() - program.getMinimum() + 1;
+		if (outcomes <= 0 || outcomes > MAX_OUTCOMES) {
+			throw new IllegalArgumentException("Roll " + program + " has more than " + MAX_OUTCOMES + " possible totals.");
+		}
+
+		double[] probs = { 1.0 };
+		for (int g = 0; g < program.getGroupCount(); g++) {
+			final int count = program.getDiceCount(g);
+			final int sides = program.getSides(g);
+			double[] group;
+			if (program.getKeep(g) == DiceProgram.Keep.ALL) {
+				group = sumOfDice(count, sides);
+			} else {
+				final int keepCount = program.getKeepCount(g);
+				if ((double) sides * sides * keepCount * keepCount * keepCount / 6 > MAX_KEEP_WORK) {
+					throw new IllegalArgumentException("Roll " + program + " keeps too many dice to work out the distribution.");
+				}
+				group = keptSumOfDice(count, sides, keepCount);
+				if (program.getKeep(g) == DiceProgram.Keep.LOWEST) {
+					// The lowest dice of a roll are the highest dice counted 
+					// from the other end of the dice.
+					reverse(group);
+				}
+			}
+			if (program.isNegative(g)) {
+				reverse(group);
+			}
+			probs = convolve(probs, group);
+		}
+
+		return new DiceDistribution(program.getMinimum(), probs);
+	}
+
+	/**
+	 * Returns the smallest possible total.
+	 * 
+	 * @return the smallest total.
+	 */
+	public long getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Returns the largest possible total.
+	 * 
+	 * @return the largest total.
+	 */
+	public long getMaximum() {
+		return minimum + probabilities.length - 1;
+	}
+
+	/**
+	 * Returns the probability of a total.
+	 * 
+	 * @param total The total.
+	 * 
+	 * @return the probability.
+	 */
+	public double probability(long total) {
+		if (total < minimum || total > getMaximum()) {
+			return 0.0;
+		}
+		return probabilities[(int) (total - minimum)];
+	}
+
+	/**
+	 * Returns the probability of a total that is at least a value, for 
+	 * example the chance to meet or beat a target number.
+	 * 
+	 * @param total The lowest total counted.
+	 * 
+	 * @return the probability.
+	 */
+	public double probabilityAtLeast(long total) {
+		double sum = 0;
+		for (int i = probabilities.length - 1; i >= 0 && minimum + i >= total; i--) {
+			sum += probabilities[i];
+		}
+		return Math.min(1.0, sum);
+	}
+
+	/**
+	 * Returns the probability of a total that is at most a value.
+	 * 
+	 * @param total The highest total counted.
+	 * 
+	 * @return the probability.
+	 */
+	public double probabilityAtMost(long total) {
+		double sum = 0;
+		for (int i = 0; i < probabilities.length && minimum + i <= total; i++) {
+			sum += probabilities[i];
+		}
+		return Math.min(1.0, sum);
+	}
+
+	/**
+	 * Returns the mean of the totals.
+	 * 
+	 * @return the mean.
+	 */
+	public double getMean() {
+		double mean = 0;
+		for (int i = 0; i < probabilities.length; i++) {
+			mean += probabilities[i] * i;
+		}
+		return minimum + mean;
+	}
+
+	/**
+	 * Returns the variance of the totals.
+	 * 
+	 * @return the variance.
+	 */
+	public double getVariance() {
+		final double mean = getMean() - minimum;
+		double variance = 0;
+		for (int i = 0; i < probabilities.length; i++) {
+			variance += probabilities[i] * (i - mean) * (i - mean);
+		}
+		return variance;
+	}
+
+	/**
+	 * Returns the distribution as a {@link net.rptools.lib.datavalue.DataType#DICTIONARY}
+	 * with the keys <code>minimum</code>, <code>maximum</code> and 
+	 * <code>probabilities</code>, the list of the probability of each total 
+	 * from the minimum to the maximum. The list is stored as a double array.
+	 * 
+	 * @return the distribution as a DataValue.
+	 */
+	public DataValue toDataValue() {
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		vals.put("minimum", DataValueFactory.longValue(getMinimum()));
+		vals.put("maximum", DataValueFactory.longValue(getMaximum()));
+		vals.put("probabilities", DataValueFactory.doubleListValue(probabilities));
+		return DataValueFactory.dictionaryValue(vals);
+	}
+
+	/**
+	 * Returns the distribution of the sum of dice, from the smallest sum.
+	 * 
+	 * @param count The number of dice.
+	 * @param sides The number of sides of the dice.
+	 * 
+	 * @return the probability of each sum.
+	 */
+	static double[] sumOfDice(int count, int sides) {
+		double[] die = new double[sides];
+		Arrays.fill(die, 1.0 / sides);
+		double[] result = { 1.0 };
+		for (int n = count; n > 0; n >>>= 1) {
+			if ((n & 1) != 0) {
+				result = convolve(result, die);
+			}
+			if (n > 1) {
+				die = convolve(die, die);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the distribution of the sum of the highest dice, from the 
+	 * smallest sum.
+	 * 
+	 * @param count The number of dice.
+	 * @param sides The number of sides of the dice.
+	 * @param keepCount The number of dice kept.
+	 * 
+	 * @return the probability of each sum.
+	 */
+	static double[] keptSumOfDice(int count, int sides, int keepCount) {
+		final double[] logFactorial = new double[count + 1];
+		for (int i = 2; i <= count; i++) {
+			logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+		}
+
+		// seen[m] is the distribution of the sum of the dice higher than the
+		// current face when there are m of them, which are all kept.
+		double[][] seen = new double[keepCount][];
+		seen[0] = new double[] { 1.0 };
+		final double[] done = new double[keepCount * sides + 1];
+		for (int face = sides; face >= 1; face--) {
+			// The dice not yet seen are equally likely to be any face up to
+			// this one.
+			final double logP = -Math.log(face);
+			final double logQ = Math.log1p(-1.0 / face);
+			final double[][] next = new double[keepCount][];
+			for (int m = 0; m < keepCount; m++) {
+				final double[] sums = seen[m];
+				if (sums == null) {
+					continue;
+				}
+				final int remaining = count - m;
+				double partial = 0;
+				for (int c = 0; m + c < keepCount; c++) {
+					final double pc = Math.exp(logFactorial[remaining] - logFactorial[c] - logFactorial[remaining - c] 
+							+ c * logP + (remaining - c) * logQ);
+					if (pc == 0) {
+						continue;
+					}
+					partial += pc;
+					if (next[m + c] == null) {
+						next[m + c] = new double[(m + c) * sides + 1];
+					}
+					addScaled(sums, pc, next[m + c], c * face);
+				}
+				// The rest of the kept dice show this face.
+				final double rest = 1.0 - partial;
+				if (rest > 0) {
+					addScaled(sums, rest, done, (keepCount - m) * face);
+				}
+			}
+			seen = next;
+		}
+
+		final double[] result = new double[keepCount * (sides - 1) + 1];
+		System.arraycopy(done, keepCount, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Adds the scaled values of one array to another.
+	 * 
+	 * @param from The values to add.
+	 * @param scale The amount to scale them by.
+	 * @param to The array to add to.
+	 * @param offset The index in the array to add the first value to.
+	 */
+	private static void addScaled(double[] from, double scale, double[] to, int offset) {
+		for (int i = 0; i < from.length; i++) {
+			to[offset + i] += from[i] * scale;
+		}
+	}
+
+	/**
+	 * Reverses an array in place.
+	 * 
+	 * @param vals The array.
+	 */
+	private static void reverse(double[] vals) {
+		for (int i = 0, j = vals.length - 1; i < j; i++, j--) {
+			final double t = vals[i];
+			vals[i] = vals[j];
+			vals[j] = t;
+		}
+	}
+
+	/**
+	 * Returns the convolution of two distributions, the distribution of the
+	 * sum of independent values from each.
+	 * 
+	 * @param a The first distribution.
+	 * @param b The second distribution.
+	 * 
+	 * @return the convolution.
+	 */
+	static double[] convolve(double[] a, double[] b) {
+		if ((long) a.length * b.length < FFT_THRESHOLD || Math.min(a.length, b.length) < 32) {
+			final double[] result = new double[a.length + b.length - 1];
+			for (int i = 0; i < a.length; i++) {
+				addScaled(b, a[i], result, i);
+			}
+			return result;
+		}
+		return convolveFft(a, b);
+	}
+
+	/**
+	 * Returns the convolution of two distributions using a fast Fourier 
+	 * transform. Negative values from rounding errors are set to 0.
+	 * 
+	 * @param a The first distribution.
+	 * @param b The second distribution.
+	 * 
+	 * @return the convolution.
+	 */
+	private static double[] convolveFft(double[] a, double[] b) {
+		final int length = a.length + b.length - 1;
+		final int n = Integer.highestOneBit(length - 1) << 1;
+
+		// Both real inputs are transformed together as the real and imaginary
+		// parts of one complex array.
+		final double[] re = new double[n];
+		final double[] im = new double[n];
+		System.arraycopy(a, 0, re, 0, a.length);
+		System.arraycopy(b, 0, im, 0, b.length);
+		fft(re, im, false);
+
+		// The product of the transforms of a and b is
+		// (Z[k]^2 - conj(Z[n-k])^2) / 4i where Z is the combined transform.
+		final double[] pre = new double[n];
+		final double[] pim = new double[n];
+		for (int k = 0; k < n; k++) {
+			final int nk = (n - k) & (n - 1);
+			final double zr = re[k];
+			final double zi = im[k];
+			final double wr = re[nk];
+			final double wi = -im[nk];
+			final double sr = zr * zr - zi * zi - (wr * wr - wi * wi);
+			final double si = 2 * zr * zi - 2 * wr * wi;
+			pre[k] = si / 4;
+			pim[k] = -sr / 4;
+		}
+		fft(pre, pim, true);
+
+		final double[] result = new double[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = Math.max(0.0, pre[i] / n);
+		}
+		return result;
+	}
+
+	/**
+	 * Performs an in place radix 2 fast Fourier transform.
+	 * 
+	 * @param re The real parts, the length must be a power of 2.
+	 * @param im The imaginary parts.
+	 * @param inverse If the inverse transform is performed, without dividing 
+	 *                by the length.
+	 */
+	private static void fft(double[] re, double[] im, boolean inverse) {
+		final int n = re.length;
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >>> 1;
+			for (; (j & bit) != 0; bit >>>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double t = re[i];
+				re[i] = re[j];
+				re[j] = t;
+				t = im[i];
+				im[i] = im[j];
+				im[j] = t;
+			}
+		}
+
+		final double[] cos = new double[n / 2];
+		final double[] sin = new double[n / 2];
+		final double sign = inverse ? 1 : -1;
+		for (int i = 0; i < n / 2; i++) {
+			final double angle = 2 * Math.PI * i / n;
+			cos[i] = Math.cos(angle);
+			sin[i] = sign * Math.sin(angle);
+		}
+
+		for (int len = 2; len <= n; len <<= 1) {
+			final int half = len >>> 1;
+			final int step = n / len;
+			for (int i = 0; i < n; i += len) {
+				for (int j = 0; j < half; j++) {
+					final double wr = cos[j * step];
+					final double wi = sin[j * step];
+					final int u = i + j;
+					final int v = u + half;
+					final double xr = re[v] * wr - im[v] * wi;
+					final double xi = re[v] * wi + im[v] * wr;
+					re[v] = re[u] - xr;
+					im[v] = im[u] - xi;
+					re[u] += xr;
+					im[u] += xi;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,495 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Arrays;
+
+/**
+ * The parsed form of a roll string, ready to be rolled without parsing the
+ * string again. A DiceProgram is immutable so the same program can be shared
+ * by every roll of the same roll string.
+ * 
+ * A roll string is a sum of terms, each added or subtracted, where a term is
+ * either a whole number or a group of dice:
+ * <ul>
+ *   <li>{@code NdS} rolls N dice with S sides, {@code dS} rolls one die and
+ *       {@code d%} is the same as {@code d100}.</li>
+ *   <li>A group can be followed by one of {@code khK} (or {@code kK}) to keep
+ *       the highest K dice, {@code klK} to keep the lowest K dice, 
+ *       {@code dhK} to drop the highest K dice or {@code dlK} to drop the 
+ *       lowest K dice.</li>
+ * </ul>
+ * For example {@code 4d6kh3+2} or {@code d20 - 1}. Letters may be in either 
+ * case and spaces are allowed between terms.
+ * 
+ * The program is held as parallel arrays with one entry for each group of
+ * dice, in the order they appear in the roll string, and a single constant
+ * that is the sum of the whole number terms. Dropping dice is held as keeping 
+ * the rest, so {@code 4d6dl1} is the same program as {@code 4d6kh3}.
+ *
+ */
+public final class DiceProgram {
+
+	/** The dice of a group that are added to the total. */
+	public enum Keep {
+		/** All of the dice are kept. */
+		ALL,
+		/** The highest dice are kept. */
+		HIGHEST,
+		/** The lowest dice are kept. */
+		LOWEST
+	}
+
+	/** The largest number of dice in a single group. */
+	public static final int MAX_DICE = 1000000;
+
+	/** The roll string the program was parsed from. */
+	private final String rollString;
+
+	/** The number of dice in each group. */
+	private final int[] counts;
+
+	/** The number of sides of the dice in each group. */
+	private final int[] sides;
+
+	/** The dice of each group that are kept. */
+	private final Keep[] keeps;
+
+	/** The number of dice of each group that are kept. */
+	private final int[] keepCounts;
+
+	/** Is each group subtracted rather than added. */
+	private final boolean[] negatives;
+
+	/** The sum of the whole number terms. */
+	private final long constant;
+
+	/**
+	 * Creates a new DiceProgram. The arrays are not copied.
+	 * 
+	 * @param str The roll string.
+	 * @param cnts The number of dice in each group.
+	 * @param sds The number of sides of the dice in each group.
+	 * @param kps The dice of each group that are kept.
+	 * @param kpCnts The number of dice of each group that are kept.
+	 * @param negs Is each group subtracted.
+	 * @param cnst The sum of the whole number terms.
+	 */
+	private DiceProgram(String str, int[] cnts, int[] sds, Keep[] kps, int[] kpCnts, boolean[] negs, long cnst) {
+		rollString = str;
+		counts = cnts;
+		sides = sds;
+		keeps = kps;
+		keepCounts = kpCnts;
+		negatives = negs;
+		constant = cnst;
+	}
+
+	/**
+	 * Returns the program for a roll string, from the shared cache of programs
+	 * if the roll string has been compiled before.
+	 * 
+	 * @param rollStr The roll string.
+	 * 
+	 * @return the program.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public static DiceProgram compile(String rollStr) {
+		return DiceProgramCache.SHARED.get(rollStr);
+	}
+
+	/**
+	 * Parses a roll string, without using the cache.
+	 * 
+	 * @param rollStr The roll string.
+	 * 
+	 * @return the program.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public static DiceProgram parse(String rollStr) {
+		return new Parser(rollStr).parse();
+	}
+
+	/**
+	 * Returns the roll string the program was parsed from.
+	 * 
+	 * @return the roll string.
+	 */
+	public String getRollString() {
+		return rollString;
+	}
+
+	/**
+	 * Returns the number of groups of dice.
+	 * 
+	 * @return the number of groups.
+	 */
+	public int getGroupCount() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the number of dice rolled for a group.
+	 * 
+	 * @param group The index of the group.
+	 * 
+	 * @return the number of dice.
+	 */
+	public int getDiceCount(int group) {
+		return counts[group];
+	}
+
+	/**
+	 * Returns the number of sides of the dice of a group.
+	 * 
+	 * @param group The index of the group.
+	 * 
+	 * @return the number of sides.
+	 */
+	public int getSides(int group) {
+		return sides[group];
+	}
+
+	/**
+	 * Returns which dice of a group are kept.
+	 * 
+	 * @param group The index of the group.
+	 * 
+	 * @return which dice are kept.
+	 */
+	public Keep getKeep(int group) {
+		return keeps[group];
+	}
+
+	/**
+	 * Returns the number of dice of a group that are kept.
+	 * 
+	 * @param group The index of the group.
+	 * 
+	 * @return the number of dice kept, the same as the number rolled if all
+	 *         are kept.
+	 */
+	public int getKeepCount(int group) {
+		return keepCounts[group];
+	}
+
+	/**
+	 * Checks if the kept dice of a group are subtracted from the total.
+	 * 
+	 * @param group The index of the group.
+	 * 
+	 * @return {@code true} if the group is subtracted.
+	 */
+	public boolean isNegative(int group) {
+		return negatives[group];
+	}
+
+	/**
+	 * Returns the sum of the whole number terms.
+	 * 
+	 * @return the constant added to the dice.
+	 */
+	public long getConstant() {
+		return constant;
+	}
+
+	/**
+	 * Returns the lowest total the program can roll.
+	 * 
+	 * @return the lowest total.
+	 */
+	public long getMinimum() {
+		long min = constant;
+		for (int i = 0; i < counts.length; i++) {
+			min += negatives[i] ? -(long) keepCounts[i] * sides[i] : keepCounts[i];
+		}
+		return min;
+	}
+
+	/**
+	 * Returns the highest total the program can roll.
+	 * 
+	 * @return the highest total.
+	 */
+	public long getMaximum() {
+		long max = constant;
+		for (int i = 0; i < counts.length; i++) {
+			max += negatives[i] ? -(long) keepCounts[i] : (long) keepCounts[i] * sides[i];
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the program in a standard form, for example {@code 4d6kh3+2}.
+	 * 
+	 * @return the program as a roll string.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < counts.length; i++) {
+			if (negatives[i]) {
+				sb.append('-');
+			} else if (i > 0) {
+				sb.append('+');
+			}
+			sb.append(counts[i]).append('d').append(sides[i]);
+			if (keeps[i] == Keep.HIGHEST) {
+				sb.append("kh").append(keepCounts[i]);
+			} else if (keeps[i] == Keep.LOWEST) {
+				sb.append("kl").append(keepCounts[i]);
+			}
+		}
+		if (constant != 0 || counts.length == 0) {
+			if (constant >= 0 && counts.length > 0) {
+				sb.append('+');
+			}
+			sb.append(constant);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parses a roll string in to a DiceProgram.
+	 */
+	private static final class Parser {
+
+		/** The roll string. */
+		private final String str;
+
+		/** The position of the next character. */
+		private int pos;
+
+		/** The number of groups parsed. */
+		private int groups;
+
+		/** The number of dice in each group. */
+		private int[] counts = new int[4];
+
+		/** The number of sides of the dice in each group. */
+		private int[] sides = new int[4];
+
+		/** The dice of each group that are kept. */
+		private Keep[] keeps = new Keep[4];
+
+		/** The number of dice of each group that are kept. */
+		private int[] keepCounts = new int[4];
+
+		/** Is each group subtracted. */
+		private boolean[] negatives = new boolean[4];
+
+		/** The sum of the whole number terms. */
+		private long constant;
+
+		/**
+		 * Creates a new Parser.
+		 * 
+		 * @param rollStr The roll string to parse.
+		 */
+		Parser(String rollStr) {
+			if (rollStr == null) {
+				throw new IllegalArgumentException("Roll string can not be null.");
+			}
+			str = rollStr;
+		}
+
+		/**
+		 * Creates an exception for an invalid roll string.
+		 * 
+		 * @param msg The description of the problem.
+		 * 
+		 * @return the exception.
+		 */
+		private IllegalArgumentException error(String msg) {
+			return new IllegalArgumentException(msg + " at position " + pos + " of roll string \"" + str + "\".");
+		}
+
+		/**
+		 * Parses the roll string.
+		 * 
+		 * @return the program.
+		 */
+		DiceProgram parse() {
+			boolean negative = false;
+			skipSpaces();
+			if (pos < str.length() && (str.charAt(pos) == '-' || str.charAt(pos) == '+')) {
+				negative = str.charAt(pos++) == '-';
+				skipSpaces();
+			}
+
+			while (true) {
+				term(negative);
+				skipSpaces();
+				if (pos == str.length()) {
+					break;
+				}
+				final char c = str.charAt(pos);
+				if (c != '+' && c != '-') {
+					throw error("Expected '+' or '-'");
+				}
+				negative = c == '-';
+				pos++;
+				skipSpaces();
+			}
+
+			return new DiceProgram(str, Arrays.copyOf(counts, groups), Arrays.copyOf(sides, groups),
+					Arrays.copyOf(keeps, groups), Arrays.copyOf(keepCounts, groups),
+					Arrays.copyOf(negatives, groups), constant);
+		}
+
+		/**
+		 * Skips any spaces.
+		 */
+		private void skipSpaces() {
+			while (pos < str.length() && Character.isWhitespace(str.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		/**
+		 * Checks if the next character is the specified letter, in either case.
+		 * 
+		 * @param letter The lower case letter.
+		 * 
+		 * @return {@code true} if it is.
+		 */
+		private boolean isLetter(char letter) {
+			return pos < str.length() && Character.toLowerCase(str.charAt(pos)) == letter;
+		}
+
+		/**
+		 * Checks if the next character is a digit.
+		 * 
+		 * @return {@code true} if it is.
+		 */
+		private boolean isDigit() {
+			return pos < str.length() && str.charAt(pos) >= '0' && str.charAt(pos) <= '9';
+		}
+
+		/**
+		 * Parses a term, either a whole number or a group of dice.
+		 * 
+		 * @param negative Is the term subtracted.
+		 */
+		private void term(boolean negative) {
+			long count = 1;
+			final boolean hasCount = isDigit();
+			if (hasCount) {
+				count = number();
+			}
+
+			if (isLetter('d') == false) {
+				if (hasCount == false) {
+					throw error(pos == str.length() ? "Unexpected end" : "Expected a number or dice");
+				}
+				try {
+					constant = Math.addExact(constant, negative ? -count : count);
+				} catch (ArithmeticException e) {
+					throw error("Number too large");
+				}
+				return;
+			}
+			pos++;
+
+			if (count < 1 || count > MAX_DICE) {
+				throw error("Number of dice must be between 1 and " + MAX_DICE);
+			}
+			long sds;
+			if (pos < str.length() && str.charAt(pos) == '%') {
+				pos++;
+				sds = 100;
+			} else {
+				sds = number();
+				if (sds < 1 || sds > Integer.MAX_VALUE) {
+					throw error("Number of sides must be between 1 and " + Integer.MAX_VALUE);
+				}
+			}
+
+			Keep keep = Keep.ALL;
+			long keepCount = count;
+			if (isLetter('k')) {
+				pos++;
+				keep = Keep.HIGHEST;
+				if (isLetter('h')) {
+					pos++;
+				} else if (isLetter('l')) {
+					pos++;
+					keep = Keep.LOWEST;
+				}
+				keepCount = number();
+				if (keepCount < 1 || keepCount > count) {
+					throw error("Number of dice kept must be between 1 and " + count);
+				}
+			} else if (isLetter('d')) {
+				pos++;
+				if (isLetter('h')) {
+					keep = Keep.LOWEST;
+				} else if (isLetter('l')) {
+					keep = Keep.HIGHEST;
+				} else {
+					throw error("Expected 'h' or 'l'");
+				}
+				pos++;
+				final long drop = number();
+				if (drop < 0 || drop >= count) {
+					throw error("Number of dice dropped must be between 0 and " + (count - 1));
+				}
+				keepCount = count - drop;
+			}
+			if (keepCount == count) {
+				keep = Keep.ALL;
+			}
+
+			if (groups == counts.length) {
+				final int len = groups * 2;
+				counts = Arrays.copyOf(counts, len);
+				sides = Arrays.copyOf(sides, len);
+				keeps = Arrays.copyOf(keeps, len);
+				keepCounts = Arrays.copyOf(keepCounts, len);
+				negatives = Arrays.copyOf(negatives, len);
+			}
+			counts[groups] = (int) count;
+			sides[groups] = (int) sds;
+			keeps[groups] = keep;
+			keepCounts[groups] = (int) keepCount;
+			negatives[groups] = negative;
+			groups++;
+		}
+
+		/**
+		 * Parses a whole number.
+		 * 
+		 * @return the number.
+		 */
+		private long number() {
+			final int start = pos;
+			long val = 0;
+			while (isDigit()) {
+				final int digit = str.charAt(pos) - '0';
+				if (val > (Long.MAX_VALUE - digit) / 10) {
+					throw error("Number too large");
+				}
+				val = val * 10 + digit;
+				pos++;
+			}
+			if (pos == start) {
+				throw error("Expected a number");
+			}
+			return val;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of {@link DiceProgram}s keyed by roll string, so that the
+ * same roll strings rolled again and again are only parsed once. 
+ * 
+ * The cache is split into segments, each with its own lock and a share of the
+ * maximum number of programs, so threads rolling different roll strings
+ * rarely wait for each other. Each segment evicts its least recently used
+ * program when it is full.
+ *
+ */
+final class DiceProgramCache {
+
+	/** 
+	 * System property used to set the maximum number of programs held in the
+	 * shared cache.
+	 */
+	static final String SIZE_PROPERTY = "net.rptools.lib.result.DiceProgramCache.size";
+
+	/** The default maximum number of programs held in the shared cache. */
+	private static final int DEFAULT_SIZE = 1024;
+
+	/** The number of segments. */
+	private static final int SEGMENTS = 16;
+
+	/** The cache used by {@link DiceProgram#compile(String)}. */
+	static final DiceProgramCache SHARED = new DiceProgramCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+
+	/** The segments holding the programs. */
+	private final Segment[] segments;
+
+	/** The number of requests that found a program. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The number of requests that had to parse the roll string. */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a new DiceProgramCache.
+	 * 
+	 * @param maxSize The maximum number of programs to hold, 0 disables the 
+	 *        cache.
+	 */
+	DiceProgramCache(int maxSize) {
+		segments = new Segment[SEGMENTS];
+		// Round up so that the cache holds at least maxSize programs.
+		final int perSegment = maxSize <= 0 ? 0 : (maxSize + SEGMENTS - 1) / SEGMENTS;
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	/**
+	 * Returns the program for a roll string, parsing it if it is not in the
+	 * cache.
+	 * 
+	 * @param rollStr The roll string.
+	 * 
+	 * @return the program.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	DiceProgram get(String rollStr) {
+		if (rollStr == null) {
+			throw new IllegalArgumentException("Roll string can not be null.");
+		}
+		final int h = rollStr.hashCode();
+		final Segment segment = segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+		DiceProgram program = segment.get(rollStr);
+		if (program != null) {
+			hits.increment();
+			return program;
+		}
+
+		// Parse outside of the lock, two threads may both parse the same roll
+		// string but they create identical programs.
+		misses.increment();
+		program = DiceProgram.parse(rollStr);
+		segment.put(rollStr, program);
+		return program;
+	}
+
+	/**
+	 * Returns the number of programs in the cache.
+	 * 
+	 * @return the number of programs.
+	 */
+	int count() {
+		int count = 0;
+		for (Segment segment : segments) {
+			count += segment.count();
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all of the programs from the cache.
+	 */
+	void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of requests that found a program in the cache.
+	 * 
+	 * @return the number of hits.
+	 */
+	long hitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that had to parse the roll string.
+	 * 
+	 * @return the number of misses.
+	 */
+	long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * A segment of the cache, holding programs in least recently used order.
+	 */
+	private static final class Segment {
+
+		/** The programs, in access order. */
+		private final LinkedHashMap<String, DiceProgram> programs;
+
+		/**
+		 * Creates a new Segment.
+		 * 
+		 * @param maxSize The maximum number of programs in the segment.
+		 */
+		Segment(final int maxSize) {
+			programs = new LinkedHashMap<String, DiceProgram>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, DiceProgram> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+
+		/**
+		 * Returns the program for a roll string.
+		 * 
+		 * @param rollStr The roll string.
+		 * 
+		 * @return the program, or {@code null} if it is not in the segment.
+		 */
+		synchronized DiceProgram get(String rollStr) {
+			return programs.get(rollStr);
+		}
+
+		/**
+		 * Adds a program, evicting the least recently used program if the
+		 * segment is full.
+		 * 
+		 * @param rollStr The roll string.
+		 * @param program The program.
+		 */
+		synchronized void put(String rollStr, DiceProgram program) {
+			programs.put(rollStr, program);
+		}
+
+		/**
+		 * Returns the number of programs in the segment.
+		 * 
+		 * @return the number of programs.
+		 */
+		synchronized int count() {
+			return programs.size();
+		}
+
+		/**
+		 * Removes all of the programs.
+		 */
+		synchronized void clear() {
+			programs.clear();
+		}
+	}
+}
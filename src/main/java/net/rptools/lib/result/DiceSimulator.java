@@ -0,0 +1,384 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many trials of a roll, or of any other {@link Trial}, across the
+ * threads of a {@link ForkJoinPool} and collects the totals in a 
+ * {@link RollHistogram}. This is for rolls whose distribution can not be 
+ * worked out exactly by {@link DiceDistribution}, for example dice that are
+ * rerolled or explode, or that depend on other rolls.
+ * 
+ * The trials are divided into chunks of {@value #CHUNK_SIZE} trials, each 
+ * with its own {@link SplittableRandom}. The seed of the generator for a 
+ * chunk is worked out from the seed of the simulation and the index of the 
+ * chunk when the chunk is run, so no state is kept for chunks that have not
+ * run yet. Each thread of 
+ * the pool takes chunks until none are left and counts the totals in its own
+ * histogram, and the histograms are added together at the end. The count of
+ * each total does not depend on which thread ran a chunk, so the result for a
+ * seed is always the same no matter how many threads the pool has.
+ * 
+ * Nothing is allocated for each trial. Rolling a {@link DiceProgram} reuses 
+ * the arrays each thread needs to work out the kept dice.
+ * 
+ * At most {@value #MAX_TRIALS} trials can be run by one simulation.
+ * 
+ * A DiceSimulator can be used by any number of threads at the same time.
+ *
+ */
+public final class DiceSimulator {
+
+	/**
+	 * A single trial of a simulation. A Trial is used by every thread of the
+	 * simulation at the same time, so it must not change any state other than
+	 * the random number generator it is given.
+	 */
+	public interface Trial {
+		/**
+		 * Runs the trial.
+		 * 
+		 * @param random The random number generator for the trial, which must 
+		 *               be the only source of random numbers.
+		 * 
+		 * @return the total.
+		 */
+		long run(RandomGenerator random);
+	}
+
+	/** 
+	 * The number of trials in each chunk. This must not change as it decides
+	 * how the random numbers are split and so the result for a seed.
+	 */
+	static final int CHUNK_SIZE = 1 << 16;
+
+	/** The largest number of trials of a simulation. */
+	public static final long MAX_TRIALS = 1L << 48;
+
+	/** 
+	 * The increment between the seeds of the chunks, the same odd constant 
+	 * {@link SplittableRandom} uses.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/** The largest number of possible totals a histogram can count. */
+	static final int MAX_OUTCOMES = 1 << 20;
+
+	/** 
+	 * The largest number of sides for which the kept dice are found by 
+	 * counting how many of each side were rolled rather than by sorting.
+	 */
+	private static final int MAX_COUNTED_SIDES = 1024;
+
+	/** The pool the trials are run in. */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a new DiceSimulator that uses the common pool.
+	 */
+	public DiceSimulator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a new DiceSimulator.
+	 * 
+	 * @param fjPool The pool to run the trials in.
+	 */
+	public DiceSimulator(ForkJoinPool fjPool) {
+		pool = fjPool;
+	}
+
+	/**
+	 * Rolls a roll expression many times.
+	 * 
+	 * @param rexpr The roll expression.
+	 * @param trials The number of times to roll.
+	 * @param seed The seed.
+	 * 
+	 * @return the histogram of the totals.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid or has
+	 *         too many possible totals.
+	 */
+	public RollHistogram simulate(RollExpression rexpr, long trials, long seed) {
+		return simulate(rexpr.getProgram(), trials, seed);
+	}
+
+	/**
+	 * Rolls a dice program many times.
+	 * 
+	 * @param program The dice program.
+	 * @param trials The number of times to roll.
+	 * @param seed The seed.
+	 * 
+	 * @return the histogram of the totals.
+	 * 
+	 * @throws IllegalArgumentException if the program has too many possible 
+	 *         totals.
+	 */
+	public RollHistogram simulate(final DiceProgram program, long trials, long seed) {
+		return run(new TrialFactory() {
+			@Override
+			public Trial create() {
+				return new ProgramTrial(program);
+			}
+		}, program.getMinimum(), program.getMaximum(), trials, seed);
+	}
+
+	/**
+	 * Runs a trial many times.
+	 * 
+	 * @param trial The trial.
+	 * @param minimum The smallest total the trial can return.
+	 * @param maximum The largest total the trial can return.
+	 * @param trials The number of times to run the trial.
+	 * @param seed The seed.
+	 * 
+	 * @return the histogram of the totals.
+	 * 
+	 * @throws IllegalArgumentException if there are too many possible totals, 
+	 *         or the trial returns a total outside of the minimum and maximum.
+	 */
+	public RollHistogram simulate(final Trial trial, long minimum, long maximum, long trials, long seed) {
+		return run(new TrialFactory() {
+			@Override
+			public Trial create() {
+				return trial;
+			}
+		}, minimum, maximum, trials, seed);
+	}
+
+	/**
+	 * Runs the trials.
+	 * 
+	 * @param factory Creates the trial for each thread.
+	 * @param minimum The smallest total.
+	 * @param maximum The largest total.
+	 * @param trials The number of trials.
+	 * @param seed The seed.
+	 * 
+	 * @return the histogram of the totals.
+	 */
+	private RollHistogram run(final TrialFactory factory, final long minimum, long maximum, final long trials, long seed) {
+		final long outcomes = maximum - minimum + 1;
+		if (outcomes <= 0 || outcomes > MAX_OUTCOMES) {
+			throw new IllegalArgumentException("Simulation has more than " + MAX_OUTCOMES + " possible totals.");
+		}
+		if (trials < 1 || trials > MAX_TRIALS) {
+			throw new IllegalArgumentException("Number of trials must be between 1 and " + MAX_TRIALS);
+		}
+		final long chunkCount = (trials + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final long seedBase = new SplittableRandom(seed).nextLong();
+
+		final AtomicLong nextChunk = new AtomicLong();
+		final int workers = (int) Math.min(pool.getParallelism(), chunkCount);
+		long[] counts = pool.invoke(new RecursiveTask<long[]>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected long[] compute() {
+				List<Worker> tasks = new ArrayList<>(workers);
+				for (int i = 0; i < workers; i++) {
+					tasks.add(new Worker(factory.create(), minimum, (int) outcomes, trials, seedBase, nextChunk));
+				}
+				invokeAll(tasks);
+
+				final long[] total = tasks.get(0).join();
+				for (int i = 1; i < tasks.size(); i++) {
+					final long[] hist = tasks.get(i).join();
+					for (int t = 0; t < total.length; t++) {
+						total[t] += hist[t];
+					}
+				}
+				return total;
+			}
+		});
+		return new RollHistogram(minimum, counts);
+	}
+
+	/**
+	 * Creates the trial used by each thread.
+	 */
+	private interface TrialFactory {
+		/**
+		 * Creates a trial.
+		 * 
+		 * @return the trial.
+		 */
+		Trial create();
+	}
+
+	/**
+	 * Runs chunks of trials until there are none left, counting the totals.
+	 */
+	private static final class Worker extends RecursiveTask<long[]> {
+
+		/** Serial version UID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The trial. */
+		private final Trial trial;
+
+		/** The smallest total. */
+		private final long minimum;
+
+		/** The number of possible totals. */
+		private final int outcomes;
+
+		/** The total number of trials. */
+		private final long trials;
+
+		/** The value the seed of each chunk is worked out from. */
+		private final long seedBase;
+
+		/** The index of the next chunk to run. */
+		private final AtomicLong nextChunk;
+
+		/**
+		 * Creates a new Worker.
+		 * 
+		 * @param t The trial.
+		 * @param min The smallest total.
+		 * @param outs The number of possible totals.
+		 * @param count The total number of trials.
+		 * @param base The value the seed of each chunk is worked out from.
+		 * @param next The index of the next chunk to run.
+		 */
+		Worker(Trial t, long min, int outs, long count, long base, AtomicLong next) {
+			trial = t;
+			minimum = min;
+			outcomes = outs;
+			trials = count;
+			seedBase = base;
+			nextChunk = next;
+		}
+
+		@Override
+		protected long[] compute() {
+			final long[] counts = new long[outcomes];
+			for (long first = nextChunk.getAndIncrement() * CHUNK_SIZE; first < trials; first = nextChunk.getAndIncrement() * CHUNK_SIZE) {
+				final SplittableRandom random = new SplittableRandom(chunkSeed(seedBase, first / CHUNK_SIZE));
+				final RandomGenerator generator = new RandomGenerator() {
+					@Override
+					public int nextInt(int bound) {
+						return random.nextInt(bound);
+					}
+				};
+				final long end = Math.min(trials, first + CHUNK_SIZE);
+				for (long i = first; i < end; i++) {
+					final long total = trial.run(generator);
+					final long index = total - minimum;
+					if (index < 0 || index >= outcomes) {
+						throw new IllegalArgumentException("Trial total " + total + " is not between " + minimum + " and " 
+								+ (minimum + outcomes - 1));
+					}
+					counts[(int) index]++;
+				}
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Returns the seed of the generator for a chunk. This is the same as the
+	 * value that would be returned by the call to 
+	 * {@link SplittableRandom#nextLong()} for the chunk on a generator created
+	 * with the base seed, so the seeds of the chunks are as well mixed as a 
+	 * sequence of random numbers.
+	 * 
+	 * @param base The value the seeds are worked out from.
+	 * @param chunk The index of the chunk.
+	 * 
+	 * @return the seed.
+	 */
+	static long chunkSeed(long base, long chunk) {
+		long z = base + (chunk + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Rolls a dice program, reusing the arrays used to find the kept dice. It
+	 * must only be used by one thread.
+	 */
+	private static final class ProgramTrial implements Trial {
+
+		/** The program. */
+		private final DiceProgram program;
+
+		/** 
+		 * For each group the array for the count of each side rolled, or for
+		 * the rolls, or null if all the dice are kept.
+		 */
+		private final int[][] scratch;
+
+		/**
+		 * Creates a new ProgramTrial.
+		 * 
+		 * @param prog The program.
+		 */
+		ProgramTrial(DiceProgram prog) {
+			program = prog;
+			scratch = new int[program.getGroupCount()][];
+			for (int g = 0; g < scratch.length; g++) {
+				if (program.getKeep(g) != DiceProgram.Keep.ALL) {
+					final int sides = program.getSides(g);
+					scratch[g] = new int[sides <= MAX_COUNTED_SIDES ? sides + 1 : program.getDiceCount(g)];
+				}
+			}
+		}
+
+		@Override
+		public long run(RandomGenerator random) {
+			long total = program.getConstant();
+			for (int g = 0; g < scratch.length; g++) {
+				final int count = program.getDiceCount(g);
+				final int sides = program.getSides(g);
+				long sum;
+				if (scratch[g] == null) {
+					sum = count;
+					for (int i = 0; i < count; i++) {
+						sum += random.nextInt(sides);
+					}
+				} else if (sides <= MAX_COUNTED_SIDES) {
+					final int[] counts = scratch[g];
+					Arrays.fill(counts, 0);
+					for (int i = 0; i < count; i++) {
+						counts[random.nextInt(sides) + 1]++;
+					}
+					sum = RollEvaluator.keptSumOfCounts(counts, program.getKeep(g), program.getKeepCount(g));
+				} else {
+					final int[] rolls = scratch[g];
+					for (int i = 0; i < count; i++) {
+						rolls[i] = random.nextInt(sides) + 1;
+					}
+					sum = RollEvaluator.keptSumOfRolls(rolls, program.getKeep(g), program.getKeepCount(g));
+				}
+				total += program.isNegative(g) ? -sum : sum;
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+/**
+ * Rolls the dice of {@link RollExpression}s with large numbers of dice, such
+ * as {@code 1000000d6}, by splitting each group of dice into chunks of
+ * {@value #CHUNK_SIZE} dice that are rolled in a {@link ForkJoinPool}.
+ * 
+ * Each chunk is rolled with its own {@link SplittableRandom}, created by
+ * {@link SplittableRandom#split()} as the group is divided, and the chunks do
+ * not depend on the number of threads, so rolling with the same seed always 
+ * gives the same result no matter how many threads the pool has.
+ * 
+ * The dice are never stored as {@link DataValue}s. For dice with up to 
+ * {@value #MAX_COUNTED_SIDES} sides each chunk counts how many times each side
+ * was rolled and the counts are added together as the chunks are joined. The
+ * Result created for a roll expression has
+ * <ul>
+ *   <li>the total of the kept dice as its value, whether or not the roll 
+ *       expression is summed.</li>
+ *   <li>one individual value for each group of dice, in the order of the 
+ *       roll string, that is the list of the number of times each side was 
+ *       rolled, starting with 1. For dice with more than 
+ *       {@value #MAX_COUNTED_SIDES} sides it is the total of the kept dice of 
+ *       the group instead.</li>
+ * </ul>
+ * If there are no dice the individual values are just the total.
+ * 
+ * A ParallelRollEvaluator can be used by any number of threads at the same 
+ * time.
+ *
+ */
+public final class ParallelRollEvaluator {
+
+	/** 
+	 * The number of dice rolled by each task. This must not change as it 
+	 * decides how the random numbers are split and so the result for a seed.
+	 */
+	static final int CHUNK_SIZE = 1 << 14;
+
+	/** 
+	 * The largest number of sides for which the number of times each side was
+	 * rolled is counted.
+	 */
+	static final int MAX_COUNTED_SIDES = 1 << 14;
+
+	/** The pool the dice are rolled in. */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a new ParallelRollEvaluator that uses the common pool.
+	 */
+	public ParallelRollEvaluator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a new ParallelRollEvaluator.
+	 * 
+	 * @param fjPool The pool to roll the dice in.
+	 */
+	public ParallelRollEvaluator(ForkJoinPool fjPool) {
+		pool = fjPool;
+	}
+
+	/**
+	 * Rolls the dice for a roll expression with a random seed.
+	 * 
+	 * @param rexpr The roll expression.
+	 * 
+	 * @return the result of the roll.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public Result evaluate(RollExpression rexpr) {
+		return evaluate(rexpr, new SplittableRandom());
+	}
+
+	/**
+	 * Rolls the dice for a roll expression. The result is always the same for
+	 * the same roll expression and seed.
+	 * 
+	 * @param rexpr The roll expression.
+	 * @param seed The seed.
+	 * 
+	 * @return the result of the roll.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public Result evaluate(RollExpression rexpr, long seed) {
+		return evaluate(rexpr, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Rolls the dice for a roll expression.
+	 * 
+	 * @param rexpr The roll expression.
+	 * @param random The random number generator, which is split for each 
+	 *               group of dice.
+	 * 
+	 * @return the result of the roll.
+	 */
+	private Result evaluate(RollExpression rexpr, SplittableRandom random) {
+		final DiceProgram program = rexpr.getProgram();
+		final List<DataValue> individual = new ArrayList<>(program.getGroupCount());
+		long total = program.getConstant();
+		for (int g = 0; g < program.getGroupCount(); g++) {
+			final int count = program.getDiceCount(g);
+			final int sides = program.getSides(g);
+			final DiceProgram.Keep keep = program.getKeep(g);
+			final int keepCount = program.getKeepCount(g);
+			final long sum;
+			if (sides <= MAX_COUNTED_SIDES) {
+				final long[] counts = roll(new RollTask(random.split(), 0, count, sides, true, null));
+				if (keep == DiceProgram.Keep.ALL) {
+					sum = sumOfCounts(counts);
+				} else {
+					final int[] intCounts = new int[counts.length];
+					for (int side = 1; side <= sides; side++) {
+						intCounts[side] = (int) counts[side];
+					}
+					sum = RollEvaluator.keptSumOfCounts(intCounts, keep, keepCount);
+				}
+				individual.add(DataValueFactory.longListValue(Arrays.copyOfRange(counts, 1, sides + 1)));
+			} else if (keep == DiceProgram.Keep.ALL) {
+				sum = roll(new RollTask(random.split(), 0, count, sides, false, null))[0];
+				individual.add(DataValueFactory.longValue(sum));
+			} else {
+				final int[] rolls = new int[count];
+				roll(new RollTask(random.split(), 0, count, sides, false, rolls));
+				sum = RollEvaluator.keptSumOfRolls(rolls, keep, keepCount);
+				individual.add(DataValueFactory.longValue(sum));
+			}
+			total += program.isNegative(g) ? -sum : sum;
+		}
+
+		ResultBuilder builder = new ResultBuilder().setLongValue(total).setRollExpression(rexpr);
+		if (individual.isEmpty() == false) {
+			builder.setIndividualValues(individual);
+		}
+		return builder.toResult();
+	}
+
+	/**
+	 * Runs a roll task, in the pool if it has more than one chunk.
+	 * 
+	 * @param task The task.
+	 * 
+	 * @return the result of the task.
+	 */
+	private long[] roll(RollTask task) {
+		if (task.to - task.from <= CHUNK_SIZE) {
+			return task.compute();
+		}
+		return pool.invoke(task);
+	}
+
+	/**
+	 * Returns the sum of all the dice from the count of each side rolled.
+	 * 
+	 * @param counts The count of each side, indexed by the side.
+	 * 
+	 * @return the sum.
+	 */
+	private static long sumOfCounts(long[] counts) {
+		long sum = 0;
+		for (int side = 1; side < counts.length; side++) {
+			sum += counts[side] * side;
+		}
+		return sum;
+	}
+
+	/**
+	 * Rolls a range of the dice of a group. Ranges of more than one chunk are
+	 * split in two at a chunk boundary, with the second half rolled with a 
+	 * generator split from the generator of the range.
+	 * 
+	 * The result is either the count of each side rolled, indexed by the side,
+	 * or a single element array with the sum of the dice. The results of the
+	 * two halves are added together.
+	 */
+	private static final class RollTask extends RecursiveTask<long[]> {
+
+		/** Serial version UID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The random number generator for the range. */
+		private final SplittableRandom random;
+
+		/** The index of the first die of the range. */
+		private final int from;
+
+		/** The index after the last die of the range. */
+		private final int to;
+
+		/** The number of sides of the dice. */
+		private final int sides;
+
+		/** If the number of times each side is rolled is counted. */
+		private final boolean counted;
+
+		/** The array to store the rolls in, or null if they are not stored. */
+		private final int[] rolls;
+
+		/**
+		 * Creates a new RollTask.
+		 * 
+		 * @param rand The random number generator for the range.
+		 * @param start The index of the first die.
+		 * @param end The index after the last die.
+		 * @param sds The number of sides of the dice.
+		 * @param count If the number of times each side is rolled is counted.
+		 * @param store The array to store the rolls in, or null.
+		 */
+		RollTask(SplittableRandom rand, int start, int end, int sds, boolean count, int[] store) {
+			random = rand;
+			from = start;
+			to = end;
+			sides = sds;
+			counted = count;
+			rolls = store;
+		}
+
+		@Override
+		protected long[] compute() {
+			final int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			if (chunks <= 1) {
+				return rollChunk();
+			}
+
+			final int mid = from + (chunks / 2) * CHUNK_SIZE;
+			final RollTask second = new RollTask(random.split(), mid, to, sides, counted, rolls);
+			second.fork();
+			final long[] result = new RollTask(random, from, mid, sides, counted, rolls).compute();
+			final long[] secondResult = second.join();
+			for (int i = 0; i < result.length; i++) {
+				result[i] += secondResult[i];
+			}
+			return result;
+		}
+
+		/**
+		 * Rolls the dice of a single chunk.
+		 * 
+		 * @return the count of each side or the sum.
+		 */
+		private long[] rollChunk() {
+			if (counted) {
+				final long[] counts = new long[sides + 1];
+				for (int i = from; i < to; i++) {
+					counts[random.nextInt(sides) + 1]++;
+				}
+				return counts;
+			}
+
+			long sum = 0;
+			for (int i = from; i < to; i++) {
+				final int roll = random.nextInt(sides) + 1;
+				sum += roll;
+				if (rolls != null) {
+					rolls[i] = roll;
+				}
+			}
+			return new long[] { sum };
+		}
+	}
+}
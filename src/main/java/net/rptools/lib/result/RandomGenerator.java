@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.SplittableRandom;
+
+/**
+ * The source of random numbers used to roll dice. 
+ * 
+ * The generator returned by {@link #threadLocal()} is used unless another is
+ * given, so that threads rolling at the same time do not contend for a shared
+ * {@link java.util.Random}.
+ *
+ */
+public interface RandomGenerator {
+
+	/**
+	 * Returns a random number from 0 up to, but not including, the bound. All
+	 * numbers in the range should be equally likely.
+	 * 
+	 * @param bound The upper bound, greater than 0.
+	 * 
+	 * @return the random number.
+	 */
+	int nextInt(int bound);
+
+	/**
+	 * Returns the generator that uses a separate {@link SplittableRandom} for 
+	 * each thread. It is safe to use from any thread.
+	 * 
+	 * @return the generator.
+	 */
+	static RandomGenerator threadLocal() {
+		return ThreadLocalRandomGenerator.INSTANCE;
+	}
+
+	/**
+	 * Returns a new generator that produces the same numbers each time it is 
+	 * created with the same seed. It must only be used by one thread at a time.
+	 * 
+	 * @param seed The seed.
+	 * 
+	 * @return the generator.
+	 */
+	static RandomGenerator seeded(long seed) {
+		final SplittableRandom random = new SplittableRandom(seed);
+		return new RandomGenerator() {
+			@Override
+			public int nextInt(int bound) {
+				return random.nextInt(bound);
+			}
+		};
+	}
+}
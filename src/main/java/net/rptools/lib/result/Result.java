@@ -70,7 +70,7 @@ public class Result {
 	/**
 	 * Returns the individual values associated with the result.
 	 * 
-	 * @return the individual values.
+	 * @return the individual values, which can not be modified.
 	 */
 	public List<DataValue> getValues() {
 		return values;
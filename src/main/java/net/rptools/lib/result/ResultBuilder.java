@@ -16,6 +16,7 @@ package net.rptools.lib.result;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -175,7 +176,9 @@ public class ResultBuilder {
 			values.add(value);
 		}
 		
-		return new Result(value, detailedResult, values, rollExpression);
+		// The Result gets its own copy so that reusing this builder can not
+		// change it.
+		return new Result(value, detailedResult, Collections.unmodifiableList(new ArrayList<>(values)), rollExpression);
 	}
 
 
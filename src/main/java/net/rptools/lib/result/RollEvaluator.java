@@ -0,0 +1,352 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+/**
+ * Rolls the dice of {@link RollExpression}s and creates the {@link Result}s.
+ * 
+ * The dice are rolled with the {@link DiceProgram} of the roll expression, so
+ * each roll string is only parsed once, and rolls are kept in primitive arrays
+ * until the result is created. When the roll expression is not verbose only
+ * the total is calculated, the individual dice are not stored at all unless
+ * some must be dropped, and then only the number of each side rolled is kept
+ * for dice with up to {@value #MAX_COUNTED_SIDES} sides.
+ * 
+ * The Result created for a roll expression that is
+ * <ul>
+ *   <li>not verbose has the total as its value.</li>
+ *   <li>verbose and summed has the total as its value, every die rolled as its
+ *       individual values and a description of the roll as its detailed 
+ *       result, for example {@code "4d6kh3[5, 3, (1), 6]+2 = 16"} where the
+ *       dropped dice are in parentheses.</li>
+ *   <li>verbose and not summed is the same as verbose and summed but with the
+ *       list of the kept dice as its value.</li>
+ * </ul>
+ * 
+ * A RollEvaluator can be used by any number of threads at the same time if
+ * its {@link RandomGenerator} can.
+ *
+ */
+public final class RollEvaluator {
+
+	/** 
+	 * The largest number of sides for which the total of the dice kept is found
+	 * by counting how many of each side were rolled rather than by sorting.
+	 */
+	private static final int MAX_COUNTED_SIDES = 1024;
+
+	/** The source of random numbers. */
+	private final RandomGenerator random;
+
+	/**
+	 * Creates a new RollEvaluator that uses {@link RandomGenerator#threadLocal()}.
+	 */
+	public RollEvaluator() {
+		this(RandomGenerator.threadLocal());
+	}
+
+	/**
+	 * Creates a new RollEvaluator.
+	 * 
+	 * @param rng The source of random numbers.
+	 */
+	public RollEvaluator(RandomGenerator rng) {
+		random = rng;
+	}
+
+	/**
+	 * Rolls the dice for a roll expression.
+	 * 
+	 * @param rexpr The roll expression.
+	 * 
+	 * @return the result of the roll.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public Result evaluate(RollExpression rexpr) {
+		final DiceProgram program = rexpr.getProgram();
+		if (rexpr.isVerbose() == false) {
+			return new ResultBuilder().setLongValue(total(program)).setRollExpression(rexpr).toResult();
+		}
+
+		final int groups = program.getGroupCount();
+		final int[][] rolls = new int[groups][];
+		final boolean[][] kept = new boolean[groups][];
+		long total = program.getConstant();
+		int rolled = 0;
+		int keptCount = 0;
+		for (int g = 0; g < groups; g++) {
+			rolls[g] = roll(program.getDiceCount(g), program.getSides(g));
+			kept[g] = keep(rolls[g], program.getSides(g), program.getKeep(g), program.getKeepCount(g));
+			long sum = 0;
+			for (int i = 0; i < rolls[g].length; i++) {
+				if (kept[g][i]) {
+					sum += rolls[g][i];
+				}
+			}
+			total += program.isNegative(g) ? -sum : sum;
+			rolled += rolls[g].length;
+			keptCount += program.getKeepCount(g);
+		}
+
+		final long[] all = new long[rolled];
+		final long[] keptValues = new long[keptCount];
+		int a = 0;
+		int k = 0;
+		for (int g = 0; g < groups; g++) {
+			for (int i = 0; i < rolls[g].length; i++) {
+				all[a++] = rolls[g][i];
+				if (kept[g][i]) {
+					keptValues[k++] = rolls[g][i];
+				}
+			}
+		}
+
+		ResultBuilder builder = new ResultBuilder();
+		if (rexpr.isSum()) {
+			builder.setLongValue(total);
+		} else {
+			builder.setValue(DataValueFactory.longListValue(keptValues));
+		}
+		final List<DataValue> individual = DataValueFactory.longListValue(all).asList();
+		if (individual.isEmpty() == false) {
+			builder.setIndividualValues(individual);
+		}
+		builder.setDetailedResult(DataValueFactory.stringValue(describe(program, rolls, kept, total)));
+		return builder.setRollExpression(rexpr).toResult();
+	}
+
+	/**
+	 * Rolls the dice of a program and returns the total, without keeping the
+	 * individual dice unless some must be dropped.
+	 * 
+	 * @param program The program to roll.
+	 * 
+	 * @return the total.
+	 */
+	public long total(DiceProgram program) {
+		long total = program.getConstant();
+		for (int g = 0; g < program.getGroupCount(); g++) {
+			final int count = program.getDiceCount(g);
+			final int sides = program.getSides(g);
+			final long sum;
+			if (program.getKeep(g) == DiceProgram.Keep.ALL) {
+				sum = sum(count, sides);
+			} else if (sides <= MAX_COUNTED_SIDES) {
+				sum = keptSumOfCounts(rollCounts(count, sides), program.getKeep(g), program.getKeepCount(g));
+			} else {
+				sum = keptSumOfRolls(roll(count, sides), program.getKeep(g), program.getKeepCount(g));
+			}
+			total += program.isNegative(g) ? -sum : sum;
+		}
+		return total;
+	}
+
+	/**
+	 * Rolls dice and returns their sum.
+	 * 
+	 * @param count The number of dice.
+	 * @param sides The number of sides of the dice.
+	 * 
+	 * @return the sum.
+	 */
+	private long sum(int count, int sides) {
+		long sum = count;
+		for (int i = 0; i < count; i++) {
+			sum += random.nextInt(sides);
+		}
+		return sum;
+	}
+
+	/**
+	 * Rolls dice.
+	 * 
+	 * @param count The number of dice.
+	 * @param sides The number of sides of the dice.
+	 * 
+	 * @return the rolls.
+	 */
+	private int[] roll(int count, int sides) {
+		final int[] rolls = new int[count];
+		for (int i = 0; i < count; i++) {
+			rolls[i] = random.nextInt(sides) + 1;
+		}
+		return rolls;
+	}
+
+	/**
+	 * Rolls dice and counts how many of each side were rolled.
+	 * 
+	 * @param count The number of dice.
+	 * @param sides The number of sides of the dice.
+	 * 
+	 * @return the count of each side, indexed by the side.
+	 */
+	private int[] rollCounts(int count, int sides) {
+		final int[] counts = new int[sides + 1];
+		for (int i = 0; i < count; i++) {
+			counts[random.nextInt(sides) + 1]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the sum of the dice that are kept, from the count of each side 
+	 * rolled.
+	 * 
+	 * @param counts The count of each side, indexed by the side.
+	 * @param keep Which dice are kept, either the highest or the lowest.
+	 * @param keepCount The number of dice kept.
+	 * 
+	 * @return the sum of the kept dice.
+	 */
+	static long keptSumOfCounts(int[] counts, DiceProgram.Keep keep, int keepCount) {
+		final int sides = counts.length - 1;
+		long sum = 0;
+		int left = keepCount;
+		if (keep == DiceProgram.Keep.HIGHEST) {
+			for (int side = sides; left > 0; side--) {
+				final int n = Math.min(left, counts[side]);
+				sum += (long) n * side;
+				left -= n;
+			}
+		} else {
+			for (int side = 1; left > 0; side++) {
+				final int n = Math.min(left, counts[side]);
+				sum += (long) n * side;
+				left -= n;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the sum of the dice that are kept by sorting the rolls.
+	 * 
+	 * @param rolls The rolls, which are sorted.
+	 * @param keep Which dice are kept, either the highest or the lowest.
+	 * @param keepCount The number of dice kept.
+	 * 
+	 * @return the sum of the kept dice.
+	 */
+	static long keptSumOfRolls(int[] rolls, DiceProgram.Keep keep, int keepCount) {
+		Arrays.sort(rolls);
+		final int from = keep == DiceProgram.Keep.HIGHEST ? rolls.length - keepCount : 0;
+		long sum = 0;
+		for (int i = from; i < from + keepCount; i++) {
+			sum += rolls[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Works out which dice are kept. Where dice with the same value are only 
+	 * partly kept the earliest rolled are kept.
+	 * 
+	 * @param rolls The rolls.
+	 * @param sides The number of sides of the dice.
+	 * @param keep Which dice are kept.
+	 * @param keepCount The number of dice kept.
+	 * 
+	 * @return for each roll if it is kept.
+	 */
+	static boolean[] keep(int[] rolls, int sides, DiceProgram.Keep keep, int keepCount) {
+		final boolean[] kept = new boolean[rolls.length];
+		if (keep == DiceProgram.Keep.ALL) {
+			Arrays.fill(kept, true);
+			return kept;
+		}
+
+		// Find the value of the last die kept, and how many dice with that
+		// value are kept.
+		final int[] sorted = rolls.clone();
+		Arrays.sort(sorted);
+		final boolean highest = keep == DiceProgram.Keep.HIGHEST;
+		final int threshold = highest ? sorted[rolls.length - keepCount] : sorted[keepCount - 1];
+		int atThreshold = keepCount;
+		for (int roll : rolls) {
+			if (highest ? roll > threshold : roll < threshold) {
+				atThreshold--;
+			}
+		}
+
+		for (int i = 0; i < rolls.length; i++) {
+			final int roll = rolls[i];
+			if (roll == threshold) {
+				if (atThreshold > 0) {
+					kept[i] = true;
+					atThreshold--;
+				}
+			} else {
+				kept[i] = highest ? roll > threshold : roll < threshold;
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Describes a roll, for example {@code "4d6kh3[5, 3, (1), 6]+2 = 16"}.
+	 * 
+	 * @param program The program rolled.
+	 * @param rolls The rolls of each group.
+	 * @param kept Which rolls of each group were kept.
+	 * @param total The total of the roll.
+	 * 
+	 * @return the description.
+	 */
+	private static String describe(DiceProgram program, int[][] rolls, boolean[][] kept, long total) {
+		StringBuilder sb = new StringBuilder();
+		for (int g = 0; g < rolls.length; g++) {
+			if (program.isNegative(g)) {
+				sb.append('-');
+			} else if (g > 0) {
+				sb.append('+');
+			}
+			sb.append(program.getDiceCount(g)).append('d').append(program.getSides(g));
+			if (program.getKeep(g) == DiceProgram.Keep.HIGHEST) {
+				sb.append("kh").append(program.getKeepCount(g));
+			} else if (program.getKeep(g) == DiceProgram.Keep.LOWEST) {
+				sb.append("kl").append(program.getKeepCount(g));
+			}
+			sb.append('[');
+			for (int i = 0; i < rolls[g].length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				if (kept[g][i]) {
+					sb.append(rolls[g][i]);
+				} else {
+					sb.append('(').append(rolls[g][i]).append(')');
+				}
+			}
+			sb.append(']');
+		}
+		final long constant = program.getConstant();
+		if (constant != 0 || rolls.length == 0) {
+			if (constant >= 0 && rolls.length > 0) {
+				sb.append('+');
+			}
+			sb.append(constant);
+		}
+		sb.append(" = ").append(total);
+		return sb.toString();
+	}
+}
@@ -37,6 +37,11 @@ public class RollExpression {
 	private final boolean verbose;
 	/** Should the "return value" of a detailed roll be the sum of the rolls. */
 	private final boolean sum;
+	/** 
+	 * The parsed roll string, {@code null} until first needed. Programs are
+	 * immutable so threads racing to set it will store equivalent programs.
+	 */
+	private DiceProgram program;
 	
 
 	/**
@@ -96,6 +101,24 @@ public class RollExpression {
 		return rollString;
 	}
 
+	/**
+	 * Returns the parsed form of the roll string. The roll string is only
+	 * parsed the first time it is used by any RollExpression, after that the
+	 * program is taken from a shared cache.
+	 * 
+	 * @return the program for the roll string.
+	 * 
+	 * @throws IllegalArgumentException if the roll string is not valid.
+	 */
+	public DiceProgram getProgram() {
+		DiceProgram p = program;
+		if (p == null) {
+			p = DiceProgram.compile(rollString);
+			program = p;
+		}
+		return p;
+	}
+
 	/**
 	 * Checks if the user is interested in the verbose details for the rolls.
 	 * 
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+/**
+ * The number of times each total was rolled by a {@link DiceSimulator}, with
+ * summary statistics of the totals. A RollHistogram is immutable.
+ *
+ */
+public final class RollHistogram {
+
+	/** The percentiles included in {@link #toDataValue()}. */
+	private static final int[] SUMMARY_PERCENTILES = { 5, 25, 50, 75, 95 };
+
+	/** The smallest total rolled. */
+	private final long minimum;
+
+	/** The number of times each total was rolled, starting at the minimum. */
+	private final long[] counts;
+
+	/** The number of trials. */
+	private final long trials;
+
+	/**
+	 * Creates a new RollHistogram.
+	 * 
+	 * @param min The total counted by the first count.
+	 * @param cnts The number of times each total was rolled, which must 
+	 *             include at least one trial.
+	 */
+	RollHistogram(long min, long[] cnts) {
+		int first = 0;
+		while (cnts[first] == 0) {
+			first++;
+		}
+		int last = cnts.length - 1;
+		while (cnts[last] == 0) {
+			last--;
+		}
+		long sum = 0;
+		for (int i = first; i <= last; i++) {
+			sum += cnts[i];
+		}
+		minimum = min + first;
+		counts = Arrays.copyOfRange(cnts, first, last + 1);
+		trials = sum;
+	}
+
+	/**
+	 * Returns the number of trials.
+	 * 
+	 * @return the number of trials.
+	 */
+	public long getTrials() {
+		return trials;
+	}
+
+	/**
+	 * Returns the smallest total rolled.
+	 * 
+	 * @return the smallest total.
+	 */
+	public long getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Returns the largest total rolled.
+	 * 
+	 * @return the largest total.
+	 */
+	public long getMaximum() {
+		return minimum + counts.length - 1;
+	}
+
+	/**
+	 * Returns the number of times a total was rolled.
+	 * 
+	 * @param total The total.
+	 * 
+	 * @return the number of times it was rolled.
+	 */
+	public long getCount(long total) {
+		if (total < minimum || total > getMaximum()) {
+			return 0;
+		}
+		return counts[(int) (total - minimum)];
+	}
+
+	/**
+	 * Returns the mean of the totals.
+	 * 
+	 * @return the mean.
+	 */
+	public double getMean() {
+		double sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			sum += (double) counts[i] * i;
+		}
+		return minimum + sum / trials;
+	}
+
+	/**
+	 * Returns the variance of the totals.
+	 * 
+	 * @return the variance.
+	 */
+	public double getVariance() {
+		final double mean = getMean() - minimum;
+		double sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			sum += counts[i] * (i - mean) * (i - mean);
+		}
+		return sum / trials;
+	}
+
+	/**
+	 * Returns the smallest total that at least the specified percentage of 
+	 * the totals are less than or equal to.
+	 * 
+	 * @param percent The percentage, greater than 0 and up to 100.
+	 * 
+	 * @return the percentile.
+	 * 
+	 * @throws IllegalArgumentException if the percentage is not valid.
+	 */
+	public long getPercentile(double percent) {
+		if (!(percent > 0 && percent <= 100)) {
+			throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100.");
+		}
+		final double rank = Math.ceil(percent / 100 * trials);
+		long seen = 0;
+		for (int i = 0; i < counts.length - 1; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return minimum + i;
+			}
+		}
+		return getMaximum();
+	}
+
+	/**
+	 * Returns the histogram as a {@link net.rptools.lib.datavalue.DataType#DICTIONARY}
+	 * with the keys <code>trials</code>, <code>minimum</code>, 
+	 * <code>maximum</code>, <code>mean</code>, <code>variance</code>, 
+	 * <code>percentiles</code>, a dictionary of the 5th, 25th, 50th, 75th and
+	 * 95th percentiles with the keys <code>5</code> and so on, and 
+	 * <code>counts</code>, the list of the number of times each total from 
+	 * the minimum to the maximum was rolled. The list is stored as a long 
+	 * array.
+	 * 
+	 * @return the histogram as a DataValue.
+	 */
+	public DataValue toDataValue() {
+		Map<String, DataValue> percentiles = new LinkedHashMap<>();
+		for (int p : SUMMARY_PERCENTILES) {
+			percentiles.put(Integer.toString(p), DataValueFactory.longValue(getPercentile(p)));
+		}
+
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		vals.put("trials", DataValueFactory.longValue(trials));
+		vals.put("minimum", DataValueFactory.longValue(getMinimum()));
+		vals.put("maximum", DataValueFactory.longValue(getMaximum()));
+		vals.put("mean", DataValueFactory.doubleValue(getMean()));
+		vals.put("variance", DataValueFactory.doubleValue(getVariance()));
+		vals.put("percentiles", DataValueFactory.dictionaryValue(percentiles));
+		vals.put("counts", DataValueFactory.longListValue(counts));
+		return DataValueFactory.dictionaryValue(vals);
+	}
+}
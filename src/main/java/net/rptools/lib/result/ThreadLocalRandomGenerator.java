@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.rptools.lib.result;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@link RandomGenerator} that uses a separate {@link SplittableRandom} for
+ * each thread.
+ *
+ */
+final class ThreadLocalRandomGenerator implements RandomGenerator {
+
+	/** The single instance. */
+	static final ThreadLocalRandomGenerator INSTANCE = new ThreadLocalRandomGenerator();
+
+	/** The generator for each thread, each seeded differently. */
+	private static final ThreadLocal<SplittableRandom> RANDOM = new ThreadLocal<SplittableRandom>() {
+		@Override
+		protected SplittableRandom initialValue() {
+			return new SplittableRandom();
+		}
+	};
+
+	/**
+	 * Private constructor as there is only one instance.
+	 */
+	private ThreadLocalRandomGenerator() {
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		return RANDOM.get().nextInt(bound);
+	}
+}
@@ -1,13 +1,36 @@
 package net.rptools.lib;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class MD5KeyTest {
 	
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+	
 	private static final String[] values = {
 		"This is a test string",
 		"Yet another test string",
@@ -65,4 +88,197 @@ public class MD5KeyTest {
 		}
 	}
 
+	private Path writeFile(byte[] data) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), data);
+		return file.toPath();
+	}
+
+	@Test public void pathMD5Key() throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			MD5Key md5key = MD5Key.fromPath(writeFile(values[i].getBytes()));
+			assertEquals(knownMD5HexValues[i], md5key.toString());
+		}
+	}
+
+	@Test public void largePathMD5Key() throws Exception {
+		byte[] data = new byte[1000000];
+		new Random(1).nextBytes(data);
+		Path path = writeFile(data);
+
+		MD5Key expected = new MD5Key(data);
+		assertEquals(expected, MD5Key.fromPath(path));
+
+		// Hash the file in several mapped regions, including a partial one at the end.
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			MD5Key.update(digest, channel, 300000);
+			assertEquals(expected.toString(), Hex.encodeHexString(digest.digest()));
+		}
+	}
+
+	@Test public void channelMD5Key() throws IOException {
+		Path path = writeFile(values[0].getBytes());
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			channel.position(5);
+			assertEquals(knownMD5HexValues[0], MD5Key.fromChannel(channel).toString());
+			assertEquals(5, channel.position());
+		}
+	}
+
+	@Test public void bufferMD5Key() {
+		for (int i = 0; i < values.length; i++) {
+			byte[] data = values[i].getBytes();
+			ByteBuffer heap = ByteBuffer.wrap(data);
+			assertEquals(knownMD5HexValues[i], MD5Key.fromBuffer(heap).toString());
+			assertEquals(0, heap.position());
+
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 4);
+			direct.putInt(42).put(data).flip();
+			direct.position(4);
+			assertEquals(knownMD5HexValues[i], MD5Key.fromBuffer(direct).toString());
+			assertEquals(4, direct.position());
+		}
+	}
+
+	/** An MD5Key serialized when the id was held as a String. */
+	private static final String SERIALIZED_STRING_KEY =
+		"rO0ABXNyABZuZXQucnB0b29scy5saWIuTUQ1S2V5S6e+Tuq/YBoCAAFMAAJpZHQAEkxqYXZhL2xhbmcvU3RyaW5nO3hwdAAgYzYzOWVmYzFlOTg3NjIyMzM3NDNhNzVlNzc5OGRkOWM=";
+
+	private MD5Key deserialize(byte[] data) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			return (MD5Key) in.readObject();
+		}
+	}
+
+	@Test public void serialization() throws Exception {
+		for (int i = 0; i < values.length; i++) {
+			MD5Key md5key = new MD5Key(values[i].getBytes());
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(md5key);
+			}
+			MD5Key read = deserialize(bytes.toByteArray());
+			assertEquals(md5key, read);
+			assertEquals(knownMD5HexValues[i], read.toString());
+		}
+
+		// Keys serialized by earlier versions must still be readable, and the
+		// current serialized form must be the same.
+		MD5Key md5key = deserialize(Base64.decodeBase64(SERIALIZED_STRING_KEY));
+		assertEquals(new MD5Key(values[0].getBytes()), md5key);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(md5key);
+		}
+		assertEquals(SERIALIZED_STRING_KEY, Base64.encodeBase64String(bytes.toByteArray()));
+	}
+
+	@Test public void fromStringCase() {
+		MD5Key md5key = MD5Key.fromString(knownMD5HexValues[1].toUpperCase());
+		assertEquals(new MD5Key(values[1].getBytes()), md5key);
+		assertEquals(knownMD5HexValues[1], md5key.toString());
+		assertFalse(md5key.equals(MD5Key.fromString(knownMD5HexValues[2])));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void fromStringTooShort() {
+		MD5Key.fromString("c639efc1e98762233743a75e7798dd9");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void fromStringNotHex() {
+		MD5Key.fromString("c639efc1e98762233743a75e7798dd9x");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void fromStringNonAsciiDigit() {
+		// Arabic-Indic digit one in place of the last digit.
+		MD5Key.fromString("c639efc1e98762233743a75e7798dd9\u0661");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void fromStringFullwidthDigit() {
+		MD5Key.fromString("\uff10639efc1e98762233743a75e7798dd91");
+	}
+
+	@Test public void computeAll() throws IOException {
+		Random random = new Random(1);
+		List<Path> paths = new ArrayList<>();
+		List<MD5Key> expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			byte[] data = new byte[random.nextInt(200000)];
+			random.nextBytes(data);
+			paths.add(writeFile(data));
+			expected.add(new MD5Key(data));
+		}
+		paths.add(paths.get(3));
+
+		Map<Path, MD5Key> keys = MD5Key.computeAll(paths, 4);
+		assertEquals(50, keys.size());
+		int i = 0;
+		for (Map.Entry<Path, MD5Key> entry : keys.entrySet()) {
+			assertEquals(paths.get(i), entry.getKey());
+			assertEquals(expected.get(i), entry.getValue());
+			i++;
+		}
+
+		assertEquals(keys, MD5Key.computeAll(paths));
+	}
+
+	@Test(expected=NoSuchFileException.class)
+	public void computeAllMissingFile() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		paths.add(writeFile(values[0].getBytes()));
+		paths.add(folder.getRoot().toPath().resolve("missing"));
+		MD5Key.computeAll(paths, 2);
+	}
+
+	@Test public void hasher() {
+		for (int i = 0; i < values.length; i++) {
+			byte[] data = values[i].getBytes();
+			MD5Key.Hasher hasher = new MD5Key.Hasher();
+			for (int off = 0; off < data.length; off += 5) {
+				hasher.update(data, off, Math.min(5, data.length - off));
+			}
+			assertEquals(data.length, hasher.length());
+			assertEquals(knownMD5HexValues[i], hasher.finish().toString());
+		}
+
+		byte[] data = new byte[100000];
+		new Random(1).nextBytes(data);
+		ByteBuffer direct = ByteBuffer.allocateDirect(4096);
+		MD5Key.Hasher hasher = new MD5Key.Hasher().update(data, 0, 10);
+		for (int off = 10; off < data.length; off += direct.capacity()) {
+			direct.clear();
+			direct.put(data, off, Math.min(direct.capacity(), data.length - off));
+			direct.flip();
+			hasher.update(direct);
+			assertFalse(direct.hasRemaining());
+		}
+		assertEquals(new MD5Key(data), hasher.finish());
+
+		assertEquals(new MD5Key(new byte[0]), new MD5Key.Hasher().finish());
+
+		// Resume from a copy taken part way through.
+		MD5Key.Hasher checkpoint = new MD5Key.Hasher().update(data, 0, 500).copy();
+		assertEquals(500, checkpoint.length());
+		assertEquals(new MD5Key(data), checkpoint.update(data, 500, data.length - 500).finish());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void hasherFinished() {
+		MD5Key.Hasher hasher = new MD5Key.Hasher().update(values[0].getBytes());
+		hasher.finish();
+		hasher.update(values[1].getBytes());
+	}
+
+	@Test public void bytes() throws Exception {
+		for (int i = 0; i < values.length; i++) {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(values[i].getBytes());
+			MD5Key md5key = new MD5Key(values[i].getBytes());
+			assertEquals(Hex.encodeHexString(digest), Hex.encodeHexString(md5key.toBytes()));
+			assertEquals(md5key, MD5Key.fromBytes(digest));
+		}
+	}
 }
@@ -0,0 +1,167 @@
+package net.rptools.lib.asset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.rptools.lib.MD5Key;
+
+import org.junit.Test;
+
+public class AssetCacheTest {
+
+	private static byte[] data(int seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return data;
+	}
+
+	@Test public void putAndGet() {
+		AssetCache cache = new AssetCache(1000);
+		byte[] data = data(1, 100);
+		MD5Key key = cache.put(data);
+		assertEquals(new MD5Key(data), key);
+
+		ByteBuffer buffer = cache.get(key);
+		assertTrue(buffer.isReadOnly());
+		assertTrue(Arrays.equals(data, bytes(buffer)));
+		// Each get returns an independent buffer.
+		assertEquals(100, cache.get(key).remaining());
+
+		assertNull(cache.get(new MD5Key(data(2, 10))));
+		assertEquals(2, cache.hitCount());
+		assertEquals(1, cache.missCount());
+		assertEquals(100, cache.size());
+		assertEquals(1, cache.count());
+
+		// The cache keeps its own copy.
+		data[0]++;
+		assertEquals(new MD5Key(bytes(cache.get(key))), key);
+
+		assertTrue(cache.remove(key));
+		assertFalse(cache.remove(key));
+		assertEquals(0, cache.size());
+	}
+
+	@Test public void leastRecentlyUsedEviction() {
+		AssetCache cache = new AssetCache(300, Integer.MAX_VALUE, 1);
+		MD5Key k1 = cache.put(data(1, 100));
+		MD5Key k2 = cache.put(data(2, 100));
+		MD5Key k3 = cache.put(data(3, 100));
+		cache.get(k1);
+
+		MD5Key k4 = cache.put(data(4, 100));
+		assertTrue(cache.contains(k1));
+		assertFalse(cache.contains(k2));
+		assertTrue(cache.contains(k3));
+		assertTrue(cache.contains(k4));
+		assertEquals(1, cache.evictionCount());
+
+		cache.put(data(5, 250));
+		assertEquals(1, cache.count());
+		assertEquals(250, cache.size());
+		assertEquals(4, cache.evictionCount());
+	}
+
+	@Test public void evictionAcrossSegments() {
+		AssetCache cache = new AssetCache(1000, Integer.MAX_VALUE, 8);
+		for (int i = 0; i < 100; i++) {
+			cache.put(data(i, 90));
+			assertTrue(cache.size() <= 1000);
+		}
+		assertEquals(11, cache.count());
+		assertEquals(89, cache.evictionCount());
+	}
+
+	@Test public void tooLarge() {
+		AssetCache cache = new AssetCache(100);
+		assertFalse(cache.put(new MD5Key(data(1, 101)), data(1, 101)));
+		assertEquals(0, cache.size());
+		assertTrue(cache.put(new MD5Key(data(1, 100)), data(1, 100)));
+	}
+
+	@Test public void offHeap() {
+		AssetCache cache = new AssetCache(10000, 1000, 4);
+		MD5Key small = cache.put(data(1, 999));
+		MD5Key large = cache.put(data(2, 1000));
+		assertFalse(cache.get(small).isDirect());
+		assertTrue(cache.get(large).isDirect());
+		assertEquals(large, new MD5Key(bytes(cache.get(large))));
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2000);
+		buffer.position(500);
+		buffer.limit(1500);
+		MD5Key key = MD5Key.fromBuffer(buffer);
+		cache.put(key, buffer);
+		assertEquals(500, buffer.position());
+		assertEquals(key, MD5Key.fromBuffer(cache.get(key)));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.count());
+	}
+
+	@Test public void concurrentAccess() throws Exception {
+		final AssetCache cache = new AssetCache(50000, 2000, 8);
+		final List<byte[]> assets = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			assets.add(data(i, 100 + i * 20));
+		}
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Random random = new Random(seed);
+						for (int i = 0; i < 5000; i++) {
+							byte[] asset = assets.get(random.nextInt(assets.size()));
+							MD5Key key = new MD5Key(asset);
+							ByteBuffer buffer = cache.get(key);
+							if (buffer == null) {
+								cache.put(key, asset);
+							} else if (buffer.remaining() != asset.length) {
+								throw new AssertionError("Wrong data for key.");
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertNull(failure.get());
+		assertTrue(cache.size() <= 50000);
+		assertEquals(40000, cache.hitCount() + cache.missCount());
+		long total = 0;
+		for (byte[] asset : assets) {
+			ByteBuffer buffer = cache.get(new MD5Key(asset));
+			if (buffer != null) {
+				total += buffer.remaining();
+			}
+		}
+		assertEquals(total, cache.size());
+	}
+}
@@ -0,0 +1,228 @@
+package net.rptools.lib.asset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import net.rptools.lib.MD5Key;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssetStoreTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] data(int seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	@Test public void putAndGet() throws IOException {
+		Path root = folder.getRoot().toPath();
+		try (AssetStore store = new AssetStore(root)) {
+			byte[] data = data(1, 5000);
+			MD5Key key = store.put(data);
+			assertEquals(new MD5Key(data), key);
+			assertTrue(store.contains(key));
+			assertEquals(5000, store.size(key));
+			assertArrayEquals(data, store.get(key));
+
+			String name = key.toString();
+			assertEquals(root.resolve(name.substring(0, 2)).resolve(name), store.pathFor(key));
+			assertTrue(Files.exists(store.pathFor(key)));
+
+			MD5Key missing = new MD5Key(data(2, 10));
+			assertFalse(store.contains(missing));
+			assertEquals(-1, store.size(missing));
+			assertNull(store.get(missing));
+		}
+	}
+
+	@Test public void putStream() throws IOException {
+		try (AssetStore store = new AssetStore(folder.getRoot().toPath())) {
+			byte[] data = data(1, 300000);
+			MD5Key key = store.put(new ByteArrayInputStream(data));
+			assertEquals(new MD5Key(data), key);
+			assertEquals(300000, store.size(key));
+			assertArrayEquals(data, store.get(key));
+
+			// Adding the same data again does not add a new file.
+			assertEquals(key, store.put(new ByteArrayInputStream(data)));
+			assertEquals(key, store.put(data));
+			assertEquals(1, store.count());
+		}
+
+		// No temporary files are left behind.
+		assertEquals(0, folder.getRoot().list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".tmp");
+			}
+		}).length);
+	}
+
+	@Test public void transferTo() throws IOException {
+		try (AssetStore store = new AssetStore(folder.getRoot().toPath())) {
+			byte[] data = data(1, 100000);
+			MD5Key key = store.put(data);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(100000, store.transferTo(key, Channels.newChannel(out)));
+			assertArrayEquals(data, out.toByteArray());
+
+			assertEquals(-1, store.transferTo(new MD5Key(data(2, 10)), Channels.newChannel(out)));
+		}
+	}
+
+	@Test public void reopen() throws IOException {
+		Path root = folder.getRoot().toPath();
+		MD5Key[] keys = new MD5Key[100];
+		try (AssetStore store = new AssetStore(root)) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = store.put(data(i, i * 10));
+			}
+		}
+
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(100, store.count());
+			for (int i = 0; i < keys.length; i++) {
+				assertEquals(i * 10, store.size(keys[i]));
+				assertArrayEquals(data(i, i * 10), store.get(keys[i]));
+			}
+			store.put(data(1000, 20));
+		}
+
+		// A partly written record at the end of the index is ignored.
+		Files.write(root.resolve("index"), new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(101, store.count());
+			store.compactIndex();
+		}
+		assertEquals(8 + 101 * 24, Files.size(root.resolve("index")));
+
+		// Without an index the store is rebuilt from the files.
+		Files.delete(root.resolve("index"));
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(101, store.count());
+			assertArrayEquals(data(5, 50), store.get(keys[5]));
+		}
+	}
+
+	@Test public void putAfterCompact() throws IOException {
+		Path root = folder.getRoot().toPath();
+		MD5Key first;
+		MD5Key second;
+		try (AssetStore store = new AssetStore(root)) {
+			first = store.put(data(1, 100));
+			store.compactIndex();
+			second = store.put(data(2, 100));
+		}
+
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(2, store.count());
+			assertTrue(store.contains(first));
+			assertTrue(store.contains(second));
+			assertArrayEquals(data(2, 100), store.get(second));
+		}
+	}
+
+	@Test public void partialRecord() throws IOException {
+		Path root = folder.getRoot().toPath();
+		MD5Key first;
+		try (AssetStore store = new AssetStore(root)) {
+			first = store.put(data(1, 100));
+		}
+
+		Files.write(root.resolve("index"), new byte[10], StandardOpenOption.APPEND);
+		MD5Key second;
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(1, store.count());
+			second = store.put(data(2, 100));
+		}
+		assertEquals(8 + 2 * 24, Files.size(root.resolve("index")));
+
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(2, store.count());
+			assertTrue(store.contains(first));
+			assertTrue(store.contains(second));
+		}
+	}
+
+	@Test public void corruptData() throws IOException {
+		try (AssetStore store = new AssetStore(folder.getRoot().toPath())) {
+			MD5Key key = store.put(data(1, 1000));
+			Files.write(store.pathFor(key), data(2, 1000));
+			try {
+				store.get(key);
+				throw new AssertionError("Corrupt data was returned.");
+			} catch (IOException e) {
+				// Expected.
+			}
+			assertFalse(store.contains(key));
+			assertFalse(Files.exists(store.pathFor(key)));
+
+			// The data can be added again.
+			assertEquals(key, store.put(data(1, 1000)));
+			Files.write(store.pathFor(key), data(3, 1000));
+			try {
+				store.transferTo(key, Channels.newChannel(new ByteArrayOutputStream()));
+				throw new AssertionError("Corrupt data was sent.");
+			} catch (IOException e) {
+				// Expected.
+			}
+			assertFalse(store.contains(key));
+		}
+	}
+
+	@Test public void removedAfterReopen() throws IOException {
+		Path root = folder.getRoot().toPath();
+		MD5Key key;
+		MD5Key missing;
+		try (AssetStore store = new AssetStore(root)) {
+			key = store.put(data(1, 1000));
+			missing = store.put(data(2, 1000));
+			Files.write(store.pathFor(key), data(3, 1000));
+			try {
+				store.get(key);
+				throw new AssertionError("Corrupt data was returned.");
+			} catch (IOException e) {
+				// Expected.
+			}
+			Files.delete(store.pathFor(missing));
+			assertNull(store.get(missing));
+		}
+
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(0, store.count());
+			assertFalse(store.contains(key));
+			assertFalse(store.contains(missing));
+
+			// The data can be added again.
+			assertEquals(key, store.put(data(1, 1000)));
+			assertTrue(Files.exists(store.pathFor(key)));
+			assertArrayEquals(data(1, 1000), store.get(key));
+		}
+
+		try (AssetStore store = new AssetStore(root)) {
+			assertEquals(1, store.count());
+			assertArrayEquals(data(1, 1000), store.get(key));
+			store.compactIndex();
+		}
+		assertEquals(8 + 24, Files.size(root.resolve("index")));
+	}
+}
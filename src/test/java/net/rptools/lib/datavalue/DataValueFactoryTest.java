@@ -1,6 +1,8 @@
 package net.rptools.lib.datavalue;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.util.Arrays;
 
@@ -14,6 +16,38 @@ public class DataValueFactoryTest {
 		assertEquals(1, dv.asLong());
 	}
 
+	@Test public void cachedLongDataValue() {
+		assertSame(DataValueFactory.longValue(-1024), DataValueFactory.longValue(-1024));
+		assertSame(DataValueFactory.longValue(6), DataValueFactory.longValue(6));
+		assertSame(DataValueFactory.longValue(65536), DataValueFactory.longValue(65536));
+		assertSame(DataValueFactory.longValue(4), DataValueFactory.longValue(2).add(DataValueFactory.longValue(2)));
+		
+		DataValue dv = DataValueFactory.longValue(65537);
+		assertNotSame(dv, DataValueFactory.longValue(65537));
+		assertEquals(dv, DataValueFactory.longValue(65537));
+		assertEquals(65537, dv.asLong());
+		
+		dv = DataValueFactory.longValue(-1025);
+		assertNotSame(dv, DataValueFactory.longValue(-1025));
+		assertEquals(-1025, dv.asLong());
+	}
+
+	@Test public void cachedDoubleDataValue() {
+		assertSame(DataValueFactory.doubleValue(0.0), DataValueFactory.doubleValue(0.0));
+		assertSame(DataValueFactory.doubleValue(1.0), DataValueFactory.doubleValue(1.0));
+		assertSame(DataValueFactory.doubleValue(0.5), DataValueFactory.doubleValue(0.5));
+		assertEquals(0.5, DataValueFactory.doubleValue(0.5).asDouble(), 0.0);
+		assertEquals(-3.0, DataValueFactory.doubleValue(-3.0).asDouble(), 0.0);
+		
+		// -0.0 must keep its sign.
+		assertEquals("-0.0", DataValueFactory.doubleValue(-0.0).asString());
+		assertEquals("0.0", DataValueFactory.doubleValue(0.0).asString());
+		
+		assertNotSame(DataValueFactory.doubleValue(1.1), DataValueFactory.doubleValue(1.1));
+		assertEquals(1.1, DataValueFactory.doubleValue(1.1).asDouble(), 0.0);
+		assertEquals(Double.NaN, DataValueFactory.doubleValue(Double.NaN).asDouble(), 0.0);
+	}
+
 	@Test public void doubleDataValue() {
 		DataValue dv = DataValueFactory.doubleValue(1.2);
 		assertEquals(DataType.DOUBLE, dv.dataType());
@@ -41,5 +75,46 @@ public class DataValueFactoryTest {
 		
 	}
 
+	@Test public void longListDataValue() {
+		long[] arr = { 3, 1, 100000, -6 };
+		DataValue dv = DataValueFactory.longListValue(arr);
+		DataValue expected = DataValueFactory.listValue(Arrays.asList(
+				DataValueFactory.longValue(3), DataValueFactory.longValue(1),
+				DataValueFactory.longValue(100000), DataValueFactory.longValue(-6)));
+		
+		arr[0] = 4;
+		assertEquals(DataType.LIST, dv.dataType());
+		assertEquals(4, dv.asList().size());
+		assertEquals(DataType.LONG, dv.asList().get(0).dataType());
+		assertEquals(3, dv.asList().get(0).asLong());
+		assertEquals(expected, dv);
+		assertEquals(dv, expected);
+		assertEquals(expected.hashCode(), dv.hashCode());
+		assertEquals(expected.asString(), dv.asString());
+		assertEquals(2, dv.asList().indexOf(DataValueFactory.longValue(100000)));
+		assertEquals(-1, dv.asList().indexOf(DataValueFactory.longValue(2)));
+		assertEquals(3, dv.asList().indexOf(DataValueFactory.doubleValue(-6.0)));
+		
+		assertEquals(dv, DataValueFactory.longListValue(Arrays.asList(3L, 1L, 100000L, -6L)));
+	}
 
+	@Test public void doubleListDataValue() {
+		double[] arr = { 0.5, 2.25, -1.0 };
+		DataValue dv = DataValueFactory.doubleListValue(arr);
+		DataValue expected = DataValueFactory.listValue(Arrays.asList(
+				DataValueFactory.doubleValue(0.5), DataValueFactory.doubleValue(2.25), 
+				DataValueFactory.doubleValue(-1.0)));
+		
+		arr[0] = 4;
+		assertEquals(DataType.LIST, dv.dataType());
+		assertEquals(3, dv.asList().size());
+		assertEquals(DataType.DOUBLE, dv.asList().get(1).dataType());
+		assertEquals(0.5, dv.asList().get(0).asDouble(), 0.0);
+		assertEquals(expected, dv);
+		assertEquals(expected.hashCode(), dv.hashCode());
+		assertEquals(1, dv.asList().indexOf(DataValueFactory.doubleValue(2.25)));
+		assertEquals(2, dv.asList().indexOf(DataValueFactory.longValue(-1)));
+		
+		assertEquals(dv, DataValueFactory.doubleListValue(Arrays.asList(0.5, 2.25, -1.0)));
+	}
 }
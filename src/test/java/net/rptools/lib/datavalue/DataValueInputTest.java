@@ -0,0 +1,59 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DataValueInputTest {
+
+	@Test(expected=EOFException.class)
+	public void empty() throws IOException {
+		DataValueInput.fromBytes(new byte[0]);
+	}
+
+	@Test(expected=EOFException.class)
+	public void truncated() throws IOException {
+		byte[] bytes = DataValueOutput.toBytes(DataValueFactory.stringValue("truncated"));
+		DataValueInput.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	@Test(expected=StreamCorruptedException.class)
+	public void invalidTag() throws IOException {
+		DataValueInput.fromBytes(new byte[] { 99 });
+	}
+
+	@Test(expected=EOFException.class)
+	public void hugeLength() throws IOException {
+		// A list claiming 2^31 - 1 values must not allocate space for them all.
+		DataValueInput.fromBytes(new byte[] { DataValueOutput.TAG_LONG_LIST, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 2 });
+	}
+
+	@Test(expected=StreamCorruptedException.class)
+	public void tooDeep() throws IOException {
+		byte[] bytes = new byte[2000];
+		for (int i = 0; i < bytes.length; i += 2) {
+			bytes[i] = DataValueOutput.TAG_LIST;
+			bytes[i + 1] = 1;
+		}
+		DataValueInput.fromBytes(bytes);
+	}
+
+	@Test public void bufferPositionAfterError() throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[] { DataValueOutput.TAG_TRUE, 99 });
+		DataValueInput input = new DataValueInput(buffer);
+		assertEquals(true, input.read().asBoolean());
+		assertEquals(1, buffer.position());
+		try {
+			input.read();
+		} catch (StreamCorruptedException e) {
+			// Expected.
+		}
+		assertEquals(2, buffer.position());
+	}
+}
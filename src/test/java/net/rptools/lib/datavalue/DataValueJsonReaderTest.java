@@ -0,0 +1,152 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DataValueJsonReaderTest {
+
+	@Test public void primitives() throws IOException {
+		assertEquals(DataType.NULL, DataValueJsonReader.fromJson("null").dataType());
+		assertEquals(DataValueFactory.booleanValue(true), DataValueJsonReader.fromJson(" true "));
+		assertEquals(DataValueFactory.booleanValue(false), DataValueJsonReader.fromJson("false"));
+		assertEquals(DataValueFactory.stringValue("a\"b\\c/\b\f\n\r\t\u00e9\ud83d\ude00"),
+				DataValueJsonReader.fromJson("\"a\\\"b\\\\c\\/\\b\\f\\n\\r\\t\\u00E9\\ud83d\\ude00\""));
+		assertEquals(DataValueFactory.stringValue(""), DataValueJsonReader.fromJson("\"\""));
+	}
+
+	@Test public void numbers() throws IOException {
+		DataValue dv = DataValueJsonReader.fromJson("[0, -0, 12, -12, 9223372036854775807, -9223372036854775808, 9223372036854775808, 1.5, -0.25e1, 2E+2, 3e-1, 2.0]");
+		DataType[] types = { DataType.LONG, DataType.LONG, DataType.LONG, DataType.LONG, DataType.LONG, DataType.LONG,
+				DataType.DOUBLE, DataType.DOUBLE, DataType.DOUBLE, DataType.DOUBLE, DataType.DOUBLE, DataType.DOUBLE };
+		List<DataValue> lst = dv.asList();
+		assertEquals(types.length, lst.size());
+		for (int i = 0; i < types.length; i++) {
+			assertEquals(Integer.toString(i), types[i], lst.get(i).dataType());
+		}
+		assertEquals(Long.MAX_VALUE, lst.get(4).asLong());
+		assertEquals(Long.MIN_VALUE, lst.get(5).asLong());
+		assertEquals(9223372036854775808.0, lst.get(6).asDouble(), 0);
+		assertEquals(-2.5, lst.get(8).asDouble(), 0);
+		assertEquals(200, lst.get(9).asDouble(), 0);
+		assertEquals(0.3, lst.get(10).asDouble(), 0);
+	}
+
+	@Test public void dictionaryOrder() throws IOException {
+		DataValue dv = DataValueJsonReader.fromJson("{\"z\": 1, \"a\": {\"b\": []}, \"m\": 3, \"z\": 4}");
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		Map<String, DataValue> dict = dv.asDictionary();
+		Iterator<String> keys = dict.keySet().iterator();
+		assertEquals("z", keys.next());
+		assertEquals("a", keys.next());
+		assertEquals("m", keys.next());
+		assertTrue(keys.hasNext() == false);
+		assertEquals(4, dict.get("z").asLong());
+		assertEquals(0, dict.get("a").asDictionary().get("b").asList().size());
+	}
+
+	@Test public void multipleValues() throws IOException {
+		DataValueJsonReader reader = new DataValueJsonReader(new StringReader("1 [2]\n{\"a\":3}\"x\"-4"));
+		assertEquals(1, reader.read().asLong());
+		assertEquals(2, reader.read().asList().get(0).asLong());
+		assertEquals(3, reader.read().asDictionary().get("a").asLong());
+		assertEquals("x", reader.read().asString());
+		assertEquals(-4, reader.read().asLong());
+		try {
+			reader.read();
+			fail();
+		} catch (EOFException e) {
+			// Expected.
+		}
+	}
+
+	@Test public void smallReads() throws IOException {
+		// Values must be read correctly however the input is split between reads.
+		List<DataValue> vals = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			vals.add(DataValueFactory.stringValue("value " + i + (i % 3 == 0 ? "\n" : "")));
+			vals.add(DataValueFactory.longValue(i * 1234567L));
+			vals.add(DataValueFactory.doubleValue(i + 0.5));
+		}
+		StringBuilder longString = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			longString.append((char) ('a' + i % 26));
+		}
+		vals.add(DataValueFactory.stringValue(longString.toString()));
+		final DataValue expected = DataValueFactory.listValue(vals);
+		sb.append(DataValueJsonWriter.toJson(expected));
+
+		final String json = sb.toString();
+		Reader trickle = new StringReader(json) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return super.read(cbuf, off, Math.min(len, 7));
+			}
+		};
+		assertEquals(expected, new DataValueJsonReader(trickle).read());
+		assertEquals(expected, DataValueJsonReader.fromJson(json));
+	}
+
+	@Test public void invalid() throws IOException {
+		for (String json : Arrays.asList("", "[", "[1,]", "[1 2]", "{\"a\"}", "{\"a\":1,}", "{1:2}", "tru", "nul", "01", "1.", "-", "1e",
+				".5", "\"abc", "\"\\x\"", "\"\\u12g4\"", "\"a\nb\"", "[1] 2", "'a'",
+				"[1\u0000]", "1\u0000", "[1.5\u0000]", "{\"a\":1e5\u0000}")) {
+			try {
+				DataValueJsonReader.fromJson(json);
+				fail(json);
+			} catch (IOException e) {
+				// Expected.
+			}
+		}
+	}
+
+	@Test public void outOfRange() throws IOException {
+		StringBuilder big = new StringBuilder("1");
+		for (int i = 0; i < 400; i++) {
+			big.append('0');
+		}
+		for (String json : Arrays.asList("1e400", "-1e400", "[0.5e309]", big.toString(), "-" + big)) {
+			try {
+				DataValueJsonReader.fromJson(json);
+				fail(json);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Number out of range"));
+			}
+		}
+		assertEquals(0.0, DataValueJsonReader.fromJson("1e-400").asDouble(), 0);
+	}
+
+	@Test public void errorOffset() {
+		try {
+			DataValueJsonReader.fromJson("[1, 2, x]");
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("offset 7"));
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void tooDeep() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append('[');
+		}
+		for (int i = 0; i < 1000; i++) {
+			sb.append(']');
+		}
+		DataValueJsonReader.fromJson(sb.toString());
+	}
+}
@@ -0,0 +1,119 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.rptools.lib.result.ResultBuilder;
+
+import org.junit.Test;
+
+public class DataValueJsonWriterTest {
+
+	private DataValue sample() {
+		Map<String, DataValue> dict = new LinkedHashMap<>();
+		dict.put("name", DataValueFactory.stringValue("Orc \"Grom\"\n\u00e9\ud83d\ude00\u2028"));
+		dict.put("hp", DataValueFactory.longValue(-15));
+		dict.put("speed", DataValueFactory.doubleValue(30));
+		dict.put("dead", DataValueFactory.booleanValue(false));
+		dict.put("owner", DataValueFactory.nullDataValue());
+		dict.put("rolls", DataValueFactory.longListValue(new long[] { 3, Long.MIN_VALUE, Long.MAX_VALUE }));
+		dict.put("weights", DataValueFactory.doubleListValue(new double[] { 0.5, 1e300 }));
+		dict.put("empty", DataValueFactory.listValue(new ArrayList<DataValue>()));
+		dict.put("nested", DataValueFactory.listValue(Arrays.asList(
+				DataValueFactory.dictionaryValue(new LinkedHashMap<String, DataValue>()),
+				DataValueFactory.stringValue("\u0001"))));
+		return DataValueFactory.dictionaryValue(dict);
+	}
+
+	@Test public void toJson() {
+		assertEquals("{\"name\":\"Orc \\\"Grom\\\"\\n\u00e9\ud83d\ude00\\u2028\",\"hp\":-15,\"speed\":30.0,\"dead\":false,\"owner\":null,"
+				+ "\"rolls\":[3,-9223372036854775808,9223372036854775807],\"weights\":[0.5,1.0E300],\"empty\":[],"
+				+ "\"nested\":[{},\"\\u0001\"]}", DataValueJsonWriter.toJson(sample()));
+	}
+
+	@Test public void roundTrip() throws IOException {
+		DataValue dv = sample();
+		assertEquals(dv, DataValueJsonReader.fromJson(DataValueJsonWriter.toJson(dv)));
+
+		// Long strings must be split across the buffer correctly.
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			sb.append(i % 100 == 0 ? "\\\ud83d\ude00" : "x");
+		}
+		dv = DataValueFactory.stringValue(sb.toString());
+		assertEquals(dv, DataValueJsonReader.fromJson(DataValueJsonWriter.toJson(dv)));
+	}
+
+	@Test public void byteBuffer() throws IOException {
+		List<DataValue> vals = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			vals.add(DataValueFactory.stringValue("\ud83d\ude00" + i));
+		}
+		DataValue dv = DataValueFactory.listValue(vals);
+
+		ByteBuffer buffer = ByteBuffer.allocate(200000);
+		DataValueJsonWriter writer = new DataValueJsonWriter(buffer);
+		writer.write(dv);
+		writer.write(DataValueFactory.longValue(1));
+		buffer.flip();
+		assertEquals(DataValueJsonWriter.toJson(dv) + "\n1", StandardCharsets.UTF_8.decode(buffer).toString());
+	}
+
+	@Test public void unpairedSurrogates() throws IOException {
+		final String str = "a\ud800b\udc00c\ud83d\ude00\ud83d\ud83d\ude00\ude00\ud800";
+		final DataValue dv = DataValueFactory.stringValue(str);
+		final String json = DataValueJsonWriter.toJson(dv);
+		assertEquals("\"a\\ud800b\\udc00c\ud83d\ude00\\ud83d\ud83d\ude00\\ude00\\ud800\"", json);
+
+		ByteBuffer buffer = ByteBuffer.allocate(100);
+		DataValueJsonWriter writer = new DataValueJsonWriter(buffer);
+		writer.write(dv);
+		buffer.flip();
+		assertEquals(json, StandardCharsets.UTF_8.decode(buffer).toString());
+		assertEquals(dv, DataValueJsonReader.fromJson(json));
+	}
+
+	@Test(expected=BufferOverflowException.class)
+	public void byteBufferOverflow() throws IOException {
+		new DataValueJsonWriter(ByteBuffer.allocate(4)).write(DataValueFactory.stringValue("too long"));
+	}
+
+	@Test public void labelsAndResults() {
+		DataValue dv = DataValueFactory.labeledValue(DataValueFactory.longValue(3), new DataLabel("Test", 0));
+		assertEquals("3", DataValueJsonWriter.toJson(dv));
+		dv = DataValueFactory.resultValue(new ResultBuilder().setValue(DataValueFactory.stringValue("r")).toResult());
+		assertEquals("\"r\"", DataValueJsonWriter.toJson(dv));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void notANumber() {
+		DataValueJsonWriter.toJson(DataValueFactory.doubleValue(Double.NaN));
+	}
+
+	private DataValue nested(int depth) {
+		DataValue dv = DataValueFactory.longValue(1);
+		for (int i = 0; i < depth; i++) {
+			dv = DataValueFactory.listValue(Arrays.asList(dv));
+		}
+		return dv;
+	}
+
+	@Test public void deepest() throws IOException {
+		DataValue dv = nested(DataValueJsonReader.MAX_DEPTH);
+		assertEquals(dv, DataValueJsonReader.fromJson(DataValueJsonWriter.toJson(dv)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void tooDeep() {
+		DataValueJsonWriter.toJson(nested(DataValueJsonReader.MAX_DEPTH + 1));
+	}
+}
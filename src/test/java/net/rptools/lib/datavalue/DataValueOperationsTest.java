@@ -0,0 +1,227 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.rptools.lib.result.ResultBuilder;
+
+import org.junit.Test;
+
+public class DataValueOperationsTest {
+
+	private final DataValue longValue = new LongDataValue(6);
+
+	private final DataValue doubleValue = new DoubleDataValue(1.5);
+
+	private final DataValue stringValue = new StringDataValue("ab");
+
+	private final DataValue listValue = new ListDataValue(Arrays.<DataValue>asList(new LongDataValue(1), new LongDataValue(2)));
+
+	private final DataValue dictionaryValue = new DictionaryDataValue(Collections.<String, DataValue>singletonMap("a", new LongDataValue(1)));
+
+	private final DataValue resultValue = new ResultDataValue(new ResultBuilder().setLongValue(4).toResult());
+
+	private final DataValue labeledValue = new LabeledDataValue(new LongDataValue(2), new DataLabel("Test", 0));
+
+
+	@Test public void numeric() {
+		assertEquals(DataType.LONG, DataValueOperations.add(longValue, longValue).dataType());
+		assertEquals(12, DataValueOperations.add(longValue, longValue).asLong());
+		assertEquals(DataType.DOUBLE, DataValueOperations.add(doubleValue, longValue).dataType());
+		assertEquals(7.5, DataValueOperations.add(doubleValue, longValue).asDouble(), 0.0);
+		assertEquals(DataType.DOUBLE, DataValueOperations.subtract(longValue, doubleValue).dataType());
+		assertEquals(4.5, DataValueOperations.subtract(longValue, doubleValue).asDouble(), 0.0);
+		assertEquals(9.0, DataValueOperations.multiply(longValue, doubleValue).asDouble(), 0.0);
+		assertEquals(3, DataValueOperations.divide(longValue, labeledValue).asLong());
+		assertEquals(0, DataValueOperations.remainder(longValue, labeledValue).asLong());
+		assertEquals(36, DataValueOperations.power(longValue, labeledValue).asLong());
+	}
+
+	@Test public void results() {
+		assertEquals(DataType.LONG, DataValueOperations.add(resultValue, longValue).dataType());
+		assertEquals(10, DataValueOperations.add(resultValue, longValue).asLong());
+		assertEquals(2, DataValueOperations.subtract(longValue, resultValue).asLong());
+		assertEquals(16, DataValueOperations.multiply(resultValue, resultValue).asLong());
+		assertEquals(6.0, DataValueOperations.multiply(resultValue, doubleValue).asDouble(), 0.0);
+
+		final DataValue nested = new ResultDataValue(new ResultBuilder().setValue(resultValue).toResult());
+		assertEquals(DataType.LONG, DataValueOperations.add(nested, longValue).dataType());
+		assertEquals(10, DataValueOperations.add(nested, longValue).asLong());
+	}
+
+	@Test public void reusedResultBuilder() {
+		final ResultBuilder builder = new ResultBuilder().setLongValue(3)
+				.setIndividualValues(Arrays.asList(DataValueFactory.longValue(1), DataValueFactory.longValue(2)));
+		final DataValue first = new ResultDataValue(builder.toResult());
+		final int hash = first.hashCode();
+
+		builder.setIndividualValues(Arrays.asList(DataValueFactory.longValue(3)));
+		final DataValue second = new ResultDataValue(builder.toResult());
+		assertEquals(2, first.asResult().getValues().size());
+		assertEquals(hash, first.hashCode());
+		assertEquals(hash, new ResultDataValue(new ResultBuilder().setLongValue(3)
+				.setIndividualValues(Arrays.asList(DataValueFactory.longValue(1), DataValueFactory.longValue(2))).toResult()).hashCode());
+		assertEquals(1, second.asResult().getValues().size());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void resultValuesUnmodifiable() {
+		new ResultBuilder().setLongValue(3).toResult().getValues().add(DataValueFactory.longValue(1));
+	}
+
+	@Test public void lists() {
+		assertEquals(DataType.LIST, DataValueOperations.add(listValue, longValue).dataType());
+		assertEquals(3, DataValueOperations.add(listValue, longValue).asList().size());
+		assertEquals(4, DataValueOperations.add(listValue, listValue).asList().size());
+		assertEquals(0, DataValueOperations.subtract(listValue, listValue).asList().size());
+	}
+
+	@Test public void strings() {
+		assertEquals("ab6", DataValueOperations.add(stringValue, longValue).asString());
+		assertEquals("1.5ab", DataValueOperations.add(doubleValue, stringValue).asString());
+		assertEquals("", DataValueOperations.subtract(stringValue, stringValue).asString());
+		assertEquals("ababab", DataValueOperations.multiply(stringValue, new LongDataValue(3)).asString());
+		assertEquals("abab", DataValueOperations.multiply(labeledValue, stringValue).asString());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void addNull() {
+		DataValueOperations.add(longValue, NullDataValue.getInstance());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void addDictionary() {
+		DataValueOperations.add(dictionaryValue, longValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void addBoolean() {
+		DataValueOperations.add(resultValue, BooleanDataValue.getBooleanDataValue(true));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void subtractListFromNumber() {
+		DataValueOperations.subtract(longValue, listValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void subtractNumberFromString() {
+		DataValueOperations.subtract(stringValue, longValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void multiplyStrings() {
+		DataValueOperations.multiply(stringValue, stringValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void divideString() {
+		DataValueOperations.divide(longValue, stringValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void remainderList() {
+		DataValueOperations.remainder(listValue, longValue);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void powerDictionary() {
+		DataValueOperations.power(longValue, dictionaryValue);
+	}
+
+	@Test public void primitiveOperations() {
+		assertEquals("ab5", stringValue.add(5).asString());
+		assertEquals("abab", stringValue.multiply(2L).asString());
+		assertEquals(9, resultValue.add(5).asLong());
+		assertEquals(8.0, labeledValue.multiply(4.0).asDouble(), 0.0);
+		assertEquals(5, listValue.add(5).asList().get(2).asLong());
+		assertEquals(0, resultValue.compareTo(4));
+		assertTrue(new StringDataValue("2.5").compareTo(3) < 0);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void primitiveOperationOnDictionary() {
+		dictionaryValue.add(1);
+	}
+
+	private List<DataValue> subtractLinear(List<DataValue> values, List<DataValue> remove) {
+		List<DataValue> expected = new ArrayList<>();
+		for (DataValue dv : values) {
+			if (remove.contains(dv) == false) {
+				expected.add(dv);
+			}
+		}
+		return expected;
+	}
+
+	@Test public void subtractLists() {
+		// Sizes either side of the limit for comparing the lists directly.
+		for (int size : new int[] { 3, 10, 100, 2000 }) {
+			List<DataValue> values = new ArrayList<>();
+			List<DataValue> remove = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				values.add(new LongDataValue(i % 50));
+				values.add(new StringDataValue("s" + (i % 7)));
+				if (i % 3 == 0) {
+					// Longs and doubles with the same value are equal.
+					remove.add(i % 2 == 0 ? new LongDataValue(i % 50) : new DoubleDataValue(i % 50));
+				}
+			}
+			values.add(new DoubleDataValue(-0.0));
+			values.add(listValue);
+			remove.add(new StringDataValue("s3"));
+			remove.add(new ListDataValue(Arrays.<DataValue>asList(new DoubleDataValue(1), new LongDataValue(2))));
+
+			final DataValue dv = DataValueOperations.subtract(new ListDataValue(values), new ListDataValue(remove));
+			assertEquals(new ListDataValue(subtractLinear(values, remove)), dv);
+			assertTrue(dv.asList().contains(new StringDataValue("s3")) == false);
+			assertTrue(dv.asList().contains(listValue) == false);
+			assertTrue(dv.asList().contains(new LongDataValue(0)) == false);
+		}
+	}
+
+	@Test public void repeat() {
+		assertEquals("", DataValueOperations.repeat("ab", 0, 100));
+		assertEquals("", DataValueOperations.repeat("ab", -3, 100));
+		assertEquals("", DataValueOperations.repeat("", Long.MAX_VALUE, 100));
+		assertEquals("ab", DataValueOperations.repeat("ab", 1, 100));
+		assertEquals("xxxxx", DataValueOperations.repeat("x", 5, 100));
+		for (int times = 2; times < 40; times++) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < times; i++) {
+				sb.append("abc");
+			}
+			assertEquals(sb.toString(), DataValueOperations.repeat("abc", times, 120));
+		}
+		assertEquals("ababab", new StringDataValue("ab").multiply(new DoubleDataValue(3.7)).asString());
+		assertEquals("abab", DataValueOperations.multiply(new LongDataValue(2), stringValue).asString());
+	}
+
+	@Test public void repeatTooLong() {
+		try {
+			DataValueOperations.repeat("abc", 41, 120);
+			fail();
+		} catch (StringTooLongException e) {
+			assertEquals(123, e.getLength());
+			assertEquals(120, e.getMaxLength());
+		}
+		try {
+			new StringDataValue("x").multiply(1000000000000L);
+			fail();
+		} catch (StringTooLongException e) {
+			assertEquals(1000000000000L, e.getLength());
+		}
+		try {
+			DataValueOperations.repeat("abc", Long.MAX_VALUE, 120);
+			fail();
+		} catch (StringTooLongException e) {
+			assertEquals(Long.MAX_VALUE, e.getLength());
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.rptools.lib.result.Result;
+import net.rptools.lib.result.ResultBuilder;
+import net.rptools.lib.result.RollExpression;
+
+import org.junit.Test;
+
+public class DataValueOutputTest {
+
+	private DataValue roundTrip(DataValue dv) throws IOException {
+		DataValue read = DataValueInput.fromBytes(DataValueOutput.toBytes(dv));
+		assertEquals(dv, read);
+		assertEquals(dv.dataType(), read.dataType());
+		if (dv.dataType() != DataType.NULL) {
+			assertEquals(dv.asString(), read.asString());
+		}
+		return read;
+	}
+
+	private DataValue tree() {
+		Map<String, DataValue> token = new LinkedHashMap<>();
+		token.put("name", DataValueFactory.stringValue("Gr\u00FCmsh the \u00C6lf \uD83D\uDC09"));
+		token.put("hp", DataValueFactory.longValue(-17));
+		token.put("speed", DataValueFactory.doubleValue(7.5));
+		token.put("rolls", DataValueFactory.longListValue(new long[] { 1, 6, Long.MIN_VALUE, Long.MAX_VALUE }));
+		token.put("weights", DataValueFactory.doubleListValue(new double[] { 0.5, -0.0, 1e300 }));
+		token.put("alive", DataValueFactory.booleanValue(true));
+		List<DataValue> mixed = new ArrayList<>();
+		mixed.add(DataValueFactory.stringValue(""));
+		mixed.add(DataValueFactory.longValue(300));
+		mixed.add(DataValueFactory.dictionaryValue(new LinkedHashMap<String, DataValue>()));
+		mixed.add(DataValueFactory.booleanValue(false));
+		token.put("mixed", DataValueFactory.listValue(mixed));
+		return DataValueFactory.dictionaryValue(token);
+	}
+
+	@Test public void primitives() throws IOException {
+		roundTrip(DataValueFactory.nullDataValue());
+		roundTrip(DataValueFactory.booleanValue(false));
+		roundTrip(DataValueFactory.booleanValue(true));
+		for (long l : new long[] { 0, 1, -1, 63, -64, 64, 1 << 20, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			roundTrip(DataValueFactory.longValue(l));
+		}
+		for (double d : new double[] { 0.0, -0.0, 1.5, Double.MAX_VALUE, Double.NEGATIVE_INFINITY }) {
+			roundTrip(DataValueFactory.doubleValue(d));
+		}
+		assertTrue(Double.isNaN(DataValueInput.fromBytes(DataValueOutput.toBytes(DataValueFactory.doubleValue(Double.NaN))).asDouble()));
+		roundTrip(DataValueFactory.stringValue(""));
+		roundTrip(DataValueFactory.stringValue("caf\u00E9 \u20AC \uD83C\uDFB2"));
+	}
+
+	@Test public void compact() {
+		assertEquals(1, DataValueOutput.toBytes(DataValueFactory.nullDataValue()).length);
+		assertEquals(2, DataValueOutput.toBytes(DataValueFactory.longValue(-64)).length);
+		assertEquals(3, DataValueOutput.toBytes(DataValueFactory.longValue(64)).length);
+		assertEquals(9, DataValueOutput.toBytes(DataValueFactory.doubleValue(2.5)).length);
+		assertEquals(5, DataValueOutput.toBytes(DataValueFactory.stringValue("abc")).length);
+		assertEquals(2 + 100, DataValueOutput.toBytes(DataValueFactory.longListValue(new long[100])).length);
+	}
+
+	@Test public void unpairedSurrogate() throws IOException {
+		String str = "a\uD800b";
+		assertEquals(new String(str.getBytes("UTF-8"), "UTF-8"),
+				DataValueInput.fromBytes(DataValueOutput.toBytes(DataValueFactory.stringValue(str))).asString());
+	}
+
+	@Test public void longString() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			sb.append((char) ('a' + i % 26)).append(i % 100 == 0 ? "\u00E9\u4E2D" : "");
+		}
+		roundTrip(DataValueFactory.stringValue(sb.toString()));
+	}
+
+	@Test public void collections() throws IOException {
+		DataValue tree = tree();
+		roundTrip(tree);
+
+		DataValue read = roundTrip(DataValueFactory.longListValue(new long[] { 1, 2, 3 }));
+		assertTrue(read.asList() instanceof LongArrayList);
+		read = roundTrip(DataValueFactory.doubleListValue(new double[] { 1.5 }));
+		assertTrue(read.asList() instanceof DoubleArrayList);
+
+		List<DataValue> big = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			big.add(tree);
+		}
+		roundTrip(DataValueFactory.listValue(big));
+
+		// Null values can not be converted to strings so only check equality.
+		List<DataValue> withNull = new ArrayList<>();
+		withNull.add(DataValueFactory.nullDataValue());
+		withNull.add(tree);
+		DataValue dv = DataValueFactory.listValue(withNull);
+		assertEquals(dv, DataValueInput.fromBytes(DataValueOutput.toBytes(dv)));
+	}
+
+	@Test public void labels() throws IOException {
+		DataValue labeled = DataValueFactory.labeledValue(DataValueFactory.longValue(3), new DataLabel("Str", 2));
+		DataValue read = roundTrip(labeled);
+		assertTrue(read.hasLabel());
+		assertEquals(new DataLabel("Str", 2), read.getLabel());
+
+		List<DataValue> lst = new ArrayList<>();
+		lst.add(labeled);
+		read = roundTrip(DataValueFactory.listValue(lst));
+		assertEquals(new DataLabel("Str", 2), read.asList().get(0).getLabel());
+	}
+
+	@Test public void results() throws IOException {
+		List<DataValue> rolls = Arrays.asList(DataValueFactory.longValue(3), DataValueFactory.longValue(5));
+		Result result = new ResultBuilder()
+			.setLongValue(8)
+			.setDetailedResult(DataValueFactory.stringValue("3 + 5"))
+			.setIndividualValues(rolls)
+			.setRollExpression(RollExpression.getDetailedSummedRollExpression("2d6"))
+			.toResult();
+		DataValue read = roundTrip(DataValueFactory.resultValue(result));
+		Result readResult = read.asResult();
+		assertEquals(DataValueFactory.longValue(8), readResult.getValue());
+		assertEquals("3 + 5", readResult.getDetailedResult().asString());
+		assertEquals(rolls, readResult.getValues());
+		assertEquals("2d6", readResult.getRollExpression().getRollString());
+		assertTrue(readResult.getRollExpression().isVerbose());
+		assertTrue(readResult.getRollExpression().isSum());
+
+		read = roundTrip(DataValueFactory.longValue(4).asResultValue());
+		assertEquals(false, read.asResult().hasRollExpression());
+	}
+
+	@Test public void streams() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataValueOutput output = new DataValueOutput(bytes);
+		for (int i = 0; i < 1000; i++) {
+			output.write(tree());
+			output.write(DataValueFactory.longValue(i));
+		}
+		output.flush();
+
+		DataValueInput input = new DataValueInput(new ByteArrayInputStream(bytes.toByteArray()));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(tree(), input.read());
+			assertEquals(i, input.read().asLong());
+		}
+	}
+
+	@Test public void buffers() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(100000);
+		DataValueOutput output = new DataValueOutput(buffer);
+		output.write(tree());
+		final int first = buffer.position();
+		output.write(DataValueFactory.stringValue("next"));
+		buffer.flip();
+
+		DataValueInput input = new DataValueInput(buffer);
+		assertEquals(tree(), input.read());
+		assertEquals(first, buffer.position());
+		assertEquals("next", input.read().asString());
+		assertEquals(buffer.limit(), buffer.position());
+
+		assertArrayEquals(DataValueOutput.toBytes(tree()), Arrays.copyOf(bytes(buffer, first), first));
+	}
+
+	private byte[] bytes(ByteBuffer buffer, int len) {
+		byte[] bytes = new byte[len];
+		buffer.position(0);
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Test(expected=BufferOverflowException.class)
+	public void bufferOverflow() throws IOException {
+		new DataValueOutput(ByteBuffer.allocate(10)).write(tree());
+	}
+
+	private DataValue nested(int depth) {
+		DataValue dv = DataValueFactory.longValue(1);
+		for (int i = 0; i < depth; i++) {
+			dv = DataValueFactory.listValue(Arrays.asList(dv, DataValueFactory.stringValue("x")));
+		}
+		return dv;
+	}
+
+	@Test public void deepest() throws IOException {
+		roundTrip(nested(DataValueInput.MAX_DEPTH));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void tooDeep() throws IOException {
+		DataValueOutput.toBytes(nested(DataValueInput.MAX_DEPTH + 1));
+	}
+}
@@ -0,0 +1,54 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DictionaryDataValueTest {
+
+	@Test public void create() {
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		vals.put("a", new LongDataValue(1));
+		vals.put("b", new StringDataValue("x"));
+		final DataValue dv = new DictionaryDataValue(vals);
+		vals.put("c", new LongDataValue(3));
+
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		assertEquals(2, dv.asDictionary().size());
+		assertEquals("{ a:1, b:x }", dv.asString());
+	}
+
+	@Test public void builder() {
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		vals.put("b", new StringDataValue("x"));
+		vals.put("c", new LongDataValue(3));
+
+		final DataValue dv = new DictionaryDataValue.Builder()
+				.put("a", new LongDataValue(1))
+				.putAll(vals)
+				.put("c", new LongDataValue(4))
+				.build();
+
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		assertEquals("{ a:1, b:x, c:4 }", dv.asString());
+
+		vals.put("a", new LongDataValue(1));
+		vals.put("c", new LongDataValue(4));
+		assertEquals(new DictionaryDataValue(vals), dv);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void builderReuse() {
+		DictionaryDataValue.Builder builder = new DictionaryDataValue.Builder();
+		builder.put("a", new LongDataValue(1)).build();
+		builder.put("b", new LongDataValue(2));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void builtDictionaryUnmodifiable() {
+		new DictionaryDataValue.Builder().build().asDictionary().put("a", new LongDataValue(1));
+	}
+}
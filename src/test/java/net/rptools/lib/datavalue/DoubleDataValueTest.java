@@ -453,9 +453,35 @@ public class DoubleDataValueTest {
 			assertTrue(dv2.equals(dv1));
 		}
 	}
-	
-	
-	
-	
-	
+
+	@Test public void equalsOtherTypes() {
+		final DataValue dv = new DoubleDataValue(2.0);
+		assertTrue(dv.equals(new LongDataValue(2)));
+		assertEquals(new LongDataValue(2).hashCode(), dv.hashCode());
+		assertEquals(new DoubleDataValue(-0.0), new DoubleDataValue(0.0));
+		assertEquals(new DoubleDataValue(-0.0).hashCode(), new DoubleDataValue(0.0).hashCode());
+		assertFalse(dv.equals(new StringDataValue("2.0")));
+		assertFalse(dv.equals(DataValueFactory.nullDataValue()));
+	}
+
+	@Test public void primitiveOperations() {
+		for (int i = 0; i < 20; i++) {
+			final double d1 = random.nextDouble();
+			final double d2 = random.nextDouble();
+			final long l2 = random.nextInt(100) + 1;
+			final DataValue dv = new DoubleDataValue(d1);
+
+			assertEquals(DataType.DOUBLE, dv.add(l2).dataType());
+			assertEquals(d1 + l2, dv.add(l2).asDouble(), 0.0);
+			assertEquals(d1 - d2, dv.subtract(d2).asDouble(), 0.0);
+			assertEquals(d1 * l2, dv.multiply(l2).asDouble(), 0.0);
+			assertEquals(d1 / d2, dv.divide(d2).asDouble(), 0.0);
+			assertEquals(d1 % d2, dv.remainder(d2).asDouble(), 0.0);
+			assertEquals(Math.pow(d1, l2), dv.power(l2).asDouble(), 0.0);
+
+			assertEquals(Double.compare(d1, d2), dv.compareTo(d2));
+			assertTrue(dv.compareTo(l2) < 0);
+		}
+	}
+
 }
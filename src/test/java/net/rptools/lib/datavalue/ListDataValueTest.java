@@ -2,6 +2,7 @@ package net.rptools.lib.datavalue;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -375,4 +376,38 @@ public class ListDataValueTest {
 			assertTrue(dv2.equals(dv1));
 		}
 	}
+
+	@Test public void builder() {
+		final List<DataValue> lst = generateList();
+		ListDataValue.Builder builder = new ListDataValue.Builder();
+		builder.add(lst.get(0)).addAll(lst.subList(1, lst.size()));
+		final DataValue dvl = builder.build();
+
+		assertEquals(DataType.LIST, dvl.dataType());
+		assertTrue(listEqual(lst, dvl.asList()));
+		assertEquals(new ListDataValue(lst), dvl);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void builderReuse() {
+		ListDataValue.Builder builder = new ListDataValue.Builder(1);
+		builder.add(new LongDataValue(1)).build();
+		builder.add(new LongDataValue(2));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void builtListUnmodifiable() {
+		new ListDataValue.Builder().add(new LongDataValue(1)).build().asList().add(new LongDataValue(2));
+	}
+
+	@Test public void cachedHashAndString() {
+		final List<DataValue> lst = generateList();
+		final DataValue dvl = new ListDataValue(lst);
+
+		final int hash = dvl.hashCode();
+		assertEquals(hash, dvl.hashCode());
+		assertEquals(new ListDataValue(lst).hashCode(), hash);
+		assertSame(dvl.asString(), dvl.asString());
+		assertEquals(new ListDataValue(lst).asString(), dvl.asString());
+	}
 }
@@ -0,0 +1,144 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+public class ListViewsTest {
+
+	private List<DataValue> longs(int from, int to) {
+		List<DataValue> vals = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			vals.add(DataValueFactory.longValue(i));
+		}
+		return vals;
+	}
+
+	private void assertListEquals(List<DataValue> expected, DataValue dv) {
+		final DataValue materialized = DataValueFactory.listValue(expected);
+		assertEquals(DataType.LIST, dv.dataType());
+		assertEquals(expected, dv.asList());
+		assertEquals(materialized, dv);
+		assertEquals(dv, materialized);
+		assertEquals(materialized.hashCode(), dv.hashCode());
+		assertEquals(materialized.asString(), dv.asString());
+	}
+
+	@Test public void slice() {
+		final List<DataValue> vals = longs(0, 100);
+		final DataValue dv = DataValueFactory.listValue(vals);
+		assertListEquals(vals.subList(10, 20), dv.slice(10, 20));
+		assertListEquals(vals.subList(15, 17), dv.slice(10, 20).slice(5, 7));
+		assertListEquals(Collections.<DataValue>emptyList(), dv.slice(50, 50));
+		assertSame(dv, dv.slice(0, 100));
+
+		final DataValue longList = DataValueFactory.longListValue(new long[] { 6, 5, 4, 1 });
+		assertListEquals(longs(4, 7).subList(0, 1), longList.slice(2, 3));
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void sliceOutOfBounds() {
+		DataValueFactory.listValue(longs(0, 10)).slice(5, 11);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void sliceIndexOutOfBounds() {
+		DataValueFactory.listValue(longs(0, 10)).slice(2, 5).asList().get(3);
+	}
+
+	@Test public void reverse() {
+		final List<DataValue> vals = longs(0, 50);
+		final List<DataValue> reversed = new ArrayList<>(vals);
+		Collections.reverse(reversed);
+		final DataValue dv = DataValueFactory.listValue(vals);
+
+		assertListEquals(reversed, dv.reverse());
+		assertEquals(dv, dv.reverse().reverse());
+		assertSame(dv.asList(), dv.reverse().reverse().asList());
+
+		// Slicing a reversed list and reversing a sliced list.
+		assertListEquals(reversed.subList(5, 12), dv.reverse().slice(5, 12));
+		List<DataValue> expected = new ArrayList<>(vals.subList(5, 12));
+		Collections.reverse(expected);
+		assertListEquals(expected, dv.slice(5, 12).reverse());
+		assertListEquals(vals.subList(38, 45), dv.reverse().slice(5, 12).reverse());
+	}
+
+	@Test public void concat() {
+		final List<DataValue> vals1 = longs(0, 10);
+		final List<DataValue> vals2 = longs(10, 25);
+		final DataValue dv = DataValueFactory.listValue(vals1).add(DataValueFactory.listValue(vals2).reverse());
+
+		List<DataValue> expected = new ArrayList<>(vals1);
+		List<DataValue> reversed = new ArrayList<>(vals2);
+		Collections.reverse(reversed);
+		expected.addAll(reversed);
+		assertListEquals(expected, dv);
+		assertListEquals(expected.subList(8, 13), dv.slice(8, 13));
+
+		// Concatenating concatenations is copied rather than nesting views.
+		DataValue dv2 = dv;
+		for (int i = 0; i < 100; i++) {
+			dv2 = dv2.add(dv);
+			expected.addAll(dv.asList());
+		}
+		assertListEquals(expected, dv2);
+	}
+
+	@Test public void map() {
+		final int[] calls = new int[1];
+		final UnaryOperator<DataValue> twice = new UnaryOperator<DataValue>() {
+			@Override
+			public DataValue apply(DataValue dv) {
+				calls[0]++;
+				return dv.multiply(2);
+			}
+		};
+
+		final DataValue dv = DataValueFactory.listValue(longs(0, 1000)).map(twice);
+		assertEquals(0, calls[0]);
+		assertEquals(1000, dv.asList().size());
+		assertEquals(1998, dv.asList().get(999).asLong());
+		assertEquals(1, calls[0]);
+
+		List<DataValue> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			expected.add(DataValueFactory.longValue(i * 2));
+		}
+		assertListEquals(expected, dv);
+		assertEquals(1000, calls[0]);
+	}
+
+	@Test public void labeled() {
+		final DataValue dv = DataValueFactory.labeledValue(DataValueFactory.listValue(longs(0, 4)), new DataLabel("Test", 0));
+		assertEquals(DataLabel.NO_LABEL, dv.reverse().getLabel());
+		assertEquals(3, dv.reverse().asList().get(0).asLong());
+		assertEquals(2, dv.slice(1, 3).asList().size());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void notList() {
+		DataValueFactory.stringValue("abc").reverse();
+	}
+
+	@Test public void concatWithEmptyIsUnmodifiable() {
+		final DataValue empty = DataValueFactory.listValue(Collections.<DataValue>emptyList());
+		for (DataValue dv : new DataValue[] { DataValueFactory.longValue(5).add(empty), empty.add(DataValueFactory.stringValue("a")), 
+				DataValueFactory.longValue(5).add(DataValueFactory.longListValue(new long[] { 6 })) }) {
+			final String str = dv.asString();
+			try {
+				dv.asList().add(DataValueFactory.longValue(7));
+				throw new AssertionError("List was modified.");
+			} catch (UnsupportedOperationException e) {
+				// Expected.
+			}
+			assertEquals(str, dv.asString());
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Random;
 
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -457,9 +458,40 @@ public class LongDataValueTest {
 			assertTrue(dv2.equals(dv1));
 		}
 	}
-	
-	
-	
-	
-	
+
+	@Test public void primitiveOperations() {
+		for (int i = 0; i < 20; i++) {
+			final long l1 = random.nextLong();
+			final long l2 = random.nextLong();
+			final double d2 = random.nextDouble();
+			final DataValue dv = new LongDataValue(l1);
+
+			assertEquals(DataType.LONG, dv.add(l2).dataType());
+			assertEquals(l1 + l2, dv.add(l2).asLong());
+			assertEquals(l1 - l2, dv.subtract(l2).asLong());
+			assertEquals(l1 * l2, dv.multiply(l2).asLong());
+			assertEquals(l1 / l2, dv.divide(l2).asLong());
+			assertEquals(l1 % l2, dv.remainder(l2).asLong());
+			assertEquals(dv.power(new LongDataValue(l2)), dv.power(l2));
+
+			assertEquals(DataType.DOUBLE, dv.add(d2).dataType());
+			assertEquals(dv.add(new DoubleDataValue(d2)), dv.add(d2));
+			assertEquals(dv.subtract(new DoubleDataValue(d2)), dv.subtract(d2));
+			assertEquals(dv.multiply(new DoubleDataValue(d2)), dv.multiply(d2));
+			assertEquals(dv.divide(new DoubleDataValue(d2)), dv.divide(d2));
+
+			assertEquals(Long.compare(l1, l2), dv.compareTo(l2));
+			assertEquals(0, dv.compareTo(l1));
+		}
+	}
+
+	@Test public void cacheRange() {
+		assertArrayEquals(new long[] { -1024, 65536 }, LongDataValue.cacheRange(-1024, 65536));
+		assertArrayEquals(new long[] { 5, 5 }, LongDataValue.cacheRange(5, 5));
+		assertArrayEquals(new long[] { 0, -1 }, LongDataValue.cacheRange(10, 9));
+		assertArrayEquals(new long[] { 0, -1 }, LongDataValue.cacheRange(Long.MIN_VALUE + 1, Long.MIN_VALUE));
+		assertArrayEquals(new long[] { -1024, 65536 }, LongDataValue.cacheRange(Long.MIN_VALUE, Long.MAX_VALUE));
+		assertArrayEquals(new long[] { -1024, 65536 }, LongDataValue.cacheRange(0, Integer.MAX_VALUE));
+		assertArrayEquals(new long[] { Long.MAX_VALUE - 10, Long.MAX_VALUE }, LongDataValue.cacheRange(Long.MAX_VALUE - 10, Long.MAX_VALUE));
+	}
 }
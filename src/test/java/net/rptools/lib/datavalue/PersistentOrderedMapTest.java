@@ -0,0 +1,161 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentOrderedMapTest {
+
+	Random random = new Random(1);
+
+	private void assertMapEquals(Map<String, DataValue> expected, Map<String, DataValue> map) {
+		assertEquals(expected.size(), map.size());
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+
+		// Iteration order must match insertion order.
+		Iterator<Map.Entry<String, DataValue>> iter = map.entrySet().iterator();
+		for (Map.Entry<String, DataValue> e : expected.entrySet()) {
+			assertTrue(iter.hasNext());
+			Map.Entry<String, DataValue> me = iter.next();
+			assertEquals(e.getKey(), me.getKey());
+			assertEquals(e.getValue(), me.getValue());
+			assertEquals(e.getValue(), map.get(e.getKey()));
+			assertTrue(map.containsKey(e.getKey()));
+		}
+		assertFalse(iter.hasNext());
+	}
+
+	@Test public void randomOperations() {
+		Map<String, DataValue> expected = new LinkedHashMap<>();
+		PersistentOrderedMap map = PersistentOrderedMap.EMPTY;
+
+		for (int i = 0; i < 20000; i++) {
+			final String key = "key" + random.nextInt(500);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.without(key);
+				assertFalse(map.containsKey(key));
+			} else {
+				final DataValue val = new LongDataValue(random.nextInt(100));
+				expected.put(key, val);
+				map = map.with(key, val);
+			}
+
+			if (i % 1000 == 0) {
+				assertMapEquals(expected, map);
+			}
+		}
+		assertMapEquals(expected, map);
+	}
+
+	@Test public void persistence() {
+		List<PersistentOrderedMap> versions = new ArrayList<>();
+		List<Map<String, DataValue>> expected = new ArrayList<>();
+		Map<String, DataValue> current = new LinkedHashMap<>();
+		PersistentOrderedMap map = PersistentOrderedMap.EMPTY;
+
+		for (int i = 0; i < 300; i++) {
+			final String key = "k" + (i % 120);
+			if (i % 5 == 0) {
+				current.remove(key);
+				map = map.without(key);
+			} else {
+				current.put(key, new StringDataValue("v" + i));
+				map = map.with(key, new StringDataValue("v" + i));
+			}
+			versions.add(map);
+			expected.add(new LinkedHashMap<>(current));
+		}
+
+		for (int i = 0; i < versions.size(); i++) {
+			assertMapEquals(expected.get(i), versions.get(i));
+		}
+	}
+
+	@Test public void collisions() {
+		// "Aa" and "BB" have the same hash code.
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+
+		PersistentOrderedMap map = PersistentOrderedMap.EMPTY
+				.with("Aa", new LongDataValue(1))
+				.with("BB", new LongDataValue(2))
+				.with("AaAa", new LongDataValue(3))
+				.with("BBBB", new LongDataValue(4))
+				.with("AaBB", new LongDataValue(5));
+
+		assertEquals(5, map.size());
+		assertEquals(1, map.get("Aa").asLong());
+		assertEquals(2, map.get("BB").asLong());
+		assertEquals(5, map.get("AaBB").asLong());
+
+		map = map.with("BB", new LongDataValue(6)).without("Aa");
+		assertEquals(4, map.size());
+		assertNull(map.get("Aa"));
+		assertEquals(6, map.get("BB").asLong());
+
+		map = map.without("BB");
+		assertNull(map.get("BB"));
+		assertEquals(3, map.get("AaAa").asLong());
+	}
+
+	@Test public void unchanged() {
+		final DataValue val = new LongDataValue(1);
+		PersistentOrderedMap map = PersistentOrderedMap.EMPTY.with("a", val);
+		assertSame(map, map.with("a", val));
+		assertSame(map, map.without("b"));
+		assertNull(map.get(Integer.valueOf(1)));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void unmodifiable() {
+		PersistentOrderedMap.EMPTY.with("a", new LongDataValue(1)).put("b", new LongDataValue(2));
+	}
+
+	@Test public void dictionaryOperations() {
+		Map<String, DataValue> vals = new LinkedHashMap<>();
+		vals.put("hp", DataValueFactory.longValue(20));
+		vals.put("name", DataValueFactory.stringValue("Orc"));
+		final DataValue dict = DataValueFactory.dictionaryValue(vals);
+
+		DataValue dv = dict.with("hp", DataValueFactory.longValue(15));
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		assertEquals(15, dv.asDictionary().get("hp").asLong());
+		assertEquals(20, dict.asDictionary().get("hp").asLong());
+		assertEquals("{ hp:15, name:Orc }", dv.asString());
+
+		dv = dv.with("ac", DataValueFactory.longValue(13)).without("name");
+		assertEquals("{ hp:15, ac:13 }", dv.asString());
+
+		Map<String, DataValue> expected = new LinkedHashMap<>();
+		expected.put("hp", DataValueFactory.longValue(15));
+		expected.put("ac", DataValueFactory.longValue(13));
+		assertEquals(DataValueFactory.dictionaryValue(expected), dv);
+		assertEquals(dv, DataValueFactory.dictionaryValue(expected));
+		assertEquals(DataValueFactory.dictionaryValue(expected).hashCode(), dv.hashCode());
+
+		dv = dict.merge(dv);
+		assertEquals("{ hp:15, name:Orc, ac:13 }", dv.asString());
+
+		DataValue labeled = DataValueFactory.labeledValue(dict, new DataLabel("Test", 0));
+		assertEquals(DataLabel.NO_LABEL, labeled.without("hp").getLabel());
+		assertEquals(1, labeled.without("hp").asDictionary().size());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void withOnList() {
+		DataValueFactory.longListValue(new long[] { 1 }).with("a", DataValueFactory.longValue(1));
+	}
+}
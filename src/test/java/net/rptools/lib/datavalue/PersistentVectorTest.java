@@ -0,0 +1,115 @@
+package net.rptools.lib.datavalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PersistentVectorTest {
+
+	private void assertContents(List<DataValue> expected, List<DataValue> vec) {
+		assertEquals(expected.size(), vec.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), vec.get(i));
+		}
+
+		Iterator<DataValue> iter = vec.iterator();
+		for (DataValue dv : expected) {
+			assertTrue(iter.hasNext());
+			assertEquals(dv, iter.next());
+		}
+		assertTrue(iter.hasNext() == false);
+	}
+
+	@Test public void append() {
+		List<DataValue> expected = new ArrayList<>();
+		PersistentVector<DataValue> vec = PersistentVector.<DataValue>empty();
+		List<PersistentVector<DataValue>> versions = new ArrayList<>();
+
+		for (int i = 0; i < 40000; i++) {
+			versions.add(vec);
+			vec = vec.append(new LongDataValue(i));
+			expected.add(new LongDataValue(i));
+		}
+
+		assertContents(expected, vec);
+
+		// Earlier versions must be unchanged.
+		for (int i : new int[] { 0, 1, 31, 32, 33, 1023, 1024, 1025, 1056, 32768, 32800, 39999 }) {
+			assertContents(expected.subList(0, i), versions.get(i));
+		}
+	}
+
+	@Test public void appendAll() {
+		List<DataValue> expected = new ArrayList<>();
+		PersistentVector<DataValue> vec = PersistentVector.<DataValue>empty();
+
+		for (int size : new int[] { 0, 1, 30, 1, 1, 500, 32, 1024, 33000 }) {
+			final PersistentVector<DataValue> previous = vec;
+			final int previousSize = expected.size();
+
+			List<DataValue> vals = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				vals.add(new StringDataValue(Integer.toString(expected.size() + i)));
+			}
+			vec = vec.appendAll(vals);
+			expected.addAll(vals);
+
+			assertContents(expected, vec);
+			assertContents(expected.subList(0, previousSize), previous);
+		}
+	}
+
+	@Test public void mixedAppend() {
+		List<DataValue> expected = new ArrayList<>();
+		PersistentVector<DataValue> vec = PersistentVector.<DataValue>empty();
+
+		for (int i = 0; i < 3000; i++) {
+			if (i % 7 == 0) {
+				List<DataValue> vals = new ArrayList<>();
+				for (int j = 0; j < i % 45; j++) {
+					vals.add(new LongDataValue(j));
+				}
+				vec = vec.appendAll(vals);
+				expected.addAll(vals);
+			} else {
+				vec = vec.append(new LongDataValue(i));
+				expected.add(new LongDataValue(i));
+			}
+		}
+
+		assertContents(expected, vec);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void outOfBounds() {
+		PersistentVector.<DataValue>empty().append(new LongDataValue(1)).get(1);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void unmodifiable() {
+		PersistentVector.<DataValue>empty().append(new LongDataValue(1)).add(new LongDataValue(2));
+	}
+
+	@Test public void listConcatenation() {
+		DataValue dv = DataValueFactory.listValue(new ArrayList<DataValue>());
+		List<DataValue> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			dv = dv.add(DataValueFactory.longValue(i));
+			expected.add(DataValueFactory.longValue(i));
+		}
+
+		assertEquals(DataType.LIST, dv.dataType());
+		assertEquals(DataValueFactory.listValue(expected), dv);
+		assertEquals(DataValueFactory.listValue(expected).hashCode(), dv.hashCode());
+
+		DataValue dv2 = dv.add(dv);
+		assertEquals(2000, dv2.asList().size());
+		assertEquals(1000, dv.asList().size());
+		assertEquals(999, dv2.asList().get(1999).asLong());
+	}
+}
@@ -0,0 +1,153 @@
+package net.rptools.lib.result;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.rptools.lib.datavalue.DataType;
+import net.rptools.lib.datavalue.DataValue;
+
+import org.junit.Test;
+
+public class DiceDistributionTest {
+
+	/**
+	 * Works out the distribution by rolling every combination of dice.
+	 */
+	private double[] enumerate(DiceProgram program) {
+		final int groups = program.getGroupCount();
+		final int min = (int) program.getMinimum();
+		final double[] probs = new double[(int) (program.getMaximum() - min + 1)];
+		int[][] rolls = new int[groups][];
+		long combinations = 1;
+		for (int g = 0; g < groups; g++) {
+			rolls[g] = new int[program.getDiceCount(g)];
+			Arrays.fill(rolls[g], 1);
+			for (int i = 0; i < rolls[g].length; i++) {
+				combinations *= program.getSides(g);
+			}
+		}
+
+		for (long c = 0; c < combinations; c++) {
+			long total = program.getConstant();
+			for (int g = 0; g < groups; g++) {
+				int[] sorted = rolls[g].clone();
+				Arrays.sort(sorted);
+				int from = 0;
+				int to = sorted.length;
+				if (program.getKeep(g) == DiceProgram.Keep.HIGHEST) {
+					from = to - program.getKeepCount(g);
+				} else if (program.getKeep(g) == DiceProgram.Keep.LOWEST) {
+					to = program.getKeepCount(g);
+				}
+				long sum = 0;
+				for (int i = from; i < to; i++) {
+					sum += sorted[i];
+				}
+				total += program.isNegative(g) ? -sum : sum;
+			}
+			probs[(int) (total - min)] += 1.0 / combinations;
+
+			// Move on to the next combination.
+			for (int g = 0, i = 0; g < groups; ) {
+				if (i == rolls[g].length) {
+					g++;
+					i = 0;
+				} else if (++rolls[g][i] > program.getSides(g)) {
+					rolls[g][i++] = 1;
+				} else {
+					break;
+				}
+			}
+		}
+		return probs;
+	}
+
+	@Test public void matchesEnumeration() {
+		for (String rollString : new String[] { "3d6", "4d6kh3", "4d6kl3", "2d20kh1", "2d20kl1", "3d6-1d4+2", "5d4dh2", "2d6kh1+3d3kl2-d8", "7", "-d6" }) {
+			DiceProgram program = DiceProgram.parse(rollString);
+			DiceDistribution dist = DiceDistribution.of(program);
+			assertEquals(rollString, program.getMinimum(), dist.getMinimum());
+			assertEquals(rollString, program.getMaximum(), dist.getMaximum());
+			double[] expected = enumerate(program);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(rollString, expected[i], dist.probability(dist.getMinimum() + i), 1e-12);
+			}
+		}
+	}
+
+	@Test public void chance() {
+		DiceDistribution dist = DiceDistribution.of(RollExpression.getRollExpression("3d6+4"));
+		assertEquals(0.5, dist.probabilityAtLeast(15), 1e-12);
+		assertEquals(1.0, dist.probabilityAtLeast(7), 1e-12);
+		assertEquals(0.0, dist.probabilityAtLeast(23), 1e-12);
+		assertEquals(1.0 / 216, dist.probabilityAtMost(7), 1e-12);
+		assertEquals(0.5, dist.probabilityAtMost(14), 1e-12);
+		assertEquals(0.0, dist.probability(6), 0);
+		assertEquals(14.5, dist.getMean(), 1e-12);
+		assertEquals(3 * 35.0 / 12, dist.getVariance(), 1e-12);
+	}
+
+	@Test public void largePools() {
+		DiceDistribution dist = DiceDistribution.of(DiceProgram.parse("1000d6"));
+		assertEquals(3500, dist.getMean(), 1e-6);
+		assertEquals(1000 * 35.0 / 12, dist.getVariance(), 1e-6);
+		assertEquals(0.5, dist.probabilityAtMost(3499) + dist.probability(3500) / 2, 1e-9);
+		assertEquals(0.0, dist.probability(1000), 1e-15);
+
+		dist = DiceDistribution.of(DiceProgram.parse("300d100-200d20+5"));
+		assertEquals(300 * 50.5 - 200 * 10.5 + 5, dist.getMean(), 1e-6);
+		assertEquals(300 * 9999 / 12.0 + 200 * 399 / 12.0, dist.getVariance(), 1e-4);
+
+		// Direct and FFT convolution must agree.
+		double[] a = DiceDistribution.sumOfDice(50, 6);
+		double[] b = DiceDistribution.sumOfDice(40, 10);
+		double[] fft = DiceDistribution.convolve(a, b);
+		double[] direct = new double[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b.length; j++) {
+				direct[i + j] += a[i] * b[j];
+			}
+		}
+		for (int i = 0; i < direct.length; i++) {
+			assertEquals(direct[i], fft[i], 1e-15);
+		}
+	}
+
+	@Test public void keepLarge() {
+		// The highest of many dice is almost always the highest face.
+		DiceDistribution dist = DiceDistribution.of(DiceProgram.parse("1000d6kh1"));
+		assertEquals(1.0 - Math.pow(5.0 / 6, 1000), dist.probability(6), 1e-12);
+
+		dist = DiceDistribution.of(DiceProgram.parse("100d6kh50"));
+		assertEquals(1.0, dist.probabilityAtLeast(0), 1e-9);
+		assertEquals(0.0, dist.probabilityAtMost(49), 0);
+		// Keeping the highest and lowest halves adds up to all of the dice.
+		DiceDistribution low = DiceDistribution.of(DiceProgram.parse("100d6kl50"));
+		assertEquals(350, dist.getMean() + low.getMean(), 1e-9);
+		assertEquals(dist.getMean(), 350 - low.getMean(), 1e-9);
+		assertEquals(dist.probability(300), low.probability(50), 1e-12);
+	}
+
+	@Test public void dataValue() {
+		DataValue dv = DiceDistribution.of(DiceProgram.parse("2d4")).toDataValue();
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		assertEquals(2, dv.asDictionary().get("minimum").asLong());
+		assertEquals(8, dv.asDictionary().get("maximum").asLong());
+		List<DataValue> probs = dv.asDictionary().get("probabilities").asList();
+		assertEquals(7, probs.size());
+		assertEquals(DataType.DOUBLE, probs.get(0).dataType());
+		assertEquals(4.0 / 16, probs.get(3).asDouble(), 1e-15);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void tooManyOutcomes() {
+		DiceDistribution.of(DiceProgram.parse("1000000d1000000"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void keepsTooMany() {
+		DiceDistribution.of(DiceProgram.parse("1000d100kh900"));
+	}
+}
@@ -0,0 +1,95 @@
+package net.rptools.lib.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class DiceProgramTest {
+
+	@Test public void parse() {
+		DiceProgram program = DiceProgram.parse("4d6kh3+2");
+		assertEquals("4d6kh3+2", program.getRollString());
+		assertEquals(1, program.getGroupCount());
+		assertEquals(4, program.getDiceCount(0));
+		assertEquals(6, program.getSides(0));
+		assertEquals(DiceProgram.Keep.HIGHEST, program.getKeep(0));
+		assertEquals(3, program.getKeepCount(0));
+		assertFalse(program.isNegative(0));
+		assertEquals(2, program.getConstant());
+		assertEquals(5, program.getMinimum());
+		assertEquals(20, program.getMaximum());
+
+		program = DiceProgram.parse(" - D20 + 2d% - 3 + 1d8 ");
+		assertEquals(3, program.getGroupCount());
+		assertTrue(program.isNegative(0));
+		assertEquals(1, program.getDiceCount(0));
+		assertEquals(100, program.getSides(1));
+		assertEquals(DiceProgram.Keep.ALL, program.getKeep(1));
+		assertEquals(2, program.getKeepCount(1));
+		assertEquals(-3, program.getConstant());
+		assertEquals(-20 + 2 - 3 + 1, program.getMinimum());
+		assertEquals(-1 + 200 - 3 + 8, program.getMaximum());
+		assertEquals("-1d20+2d100+1d8-3", program.toString());
+
+		assertEquals("12", DiceProgram.parse("5+7").toString());
+	}
+
+	@Test public void keepAndDrop() {
+		assertEquals("4d6kh3", DiceProgram.parse("4d6k3").toString());
+		assertEquals("4d6kh3", DiceProgram.parse("4d6dl1").toString());
+		assertEquals("4d6kl3", DiceProgram.parse("4d6dh1").toString());
+		assertEquals("4d6kl1", DiceProgram.parse("4D6KL1").toString());
+		assertEquals("4d6", DiceProgram.parse("4d6kh4").toString());
+		assertEquals("4d6", DiceProgram.parse("4d6dl0").toString());
+	}
+
+	@Test public void invalid() {
+		for (String rollStr : new String[] { "", " ", "d", "4d", "0d6", "4d0", "4d6kh5", "4d6kh0", "4d6dl4", "4d6d1", "4d6x",
+				"2d6+", "+", "3 4", "2d6kh", "99999999999999999999", "9223372036854775807+1", "2000000d6", "1d3000000000", "1d\u0661" }) {
+			try {
+				DiceProgram.parse(rollStr);
+				fail(rollStr);
+			} catch (IllegalArgumentException e) {
+				// Expected.
+			}
+		}
+	}
+
+	@Test public void cache() {
+		DiceProgramCache cache = new DiceProgramCache(32);
+		final DiceProgram program = cache.get("4d6kh3");
+		assertSame(program, cache.get("4d6kh3"));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+
+		// Every segment is full at 2 programs each.
+		for (int i = 1; i <= 1000; i++) {
+			cache.get(i + "d6");
+		}
+		assertTrue(cache.count() <= 32);
+		assertEquals(1001, cache.missCount());
+
+		cache.clear();
+		assertEquals(0, cache.count());
+
+		DiceProgramCache disabled = new DiceProgramCache(0);
+		assertTrue(disabled.get("1d6") != disabled.get("1d6"));
+		assertEquals(0, disabled.count());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void cacheInvalid() {
+		new DiceProgramCache(32).get("4d");
+	}
+
+	@Test public void rollExpression() {
+		RollExpression rexpr = RollExpression.getRollExpression("2d8+1d4+3");
+		assertSame(rexpr.getProgram(), rexpr.getProgram());
+		assertSame(rexpr.getProgram(), RollExpression.getDetailedRollExpression("2d8+1d4+3").getProgram());
+		assertEquals(6, rexpr.getProgram().getMinimum());
+	}
+}
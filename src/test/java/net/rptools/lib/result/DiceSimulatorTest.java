@@ -0,0 +1,139 @@
+package net.rptools.lib.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import net.rptools.lib.datavalue.DataType;
+import net.rptools.lib.datavalue.DataValue;
+
+import org.junit.Test;
+
+public class DiceSimulatorTest {
+
+	/** A d6 that is rolled again and added on a 6, up to 10 times. */
+	private static final DiceSimulator.Trial EXPLODING_D6 = new DiceSimulator.Trial() {
+		@Override
+		public long run(RandomGenerator random) {
+			long total = 0;
+			for (int i = 0; i <= 10; i++) {
+				final int roll = random.nextInt(6) + 1;
+				total += roll;
+				if (roll < 6) {
+					break;
+				}
+			}
+			return total;
+		}
+	};
+
+	private RollHistogram simulate(int threads, String rollString, long trials, long seed) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return new DiceSimulator(pool).simulate(RollExpression.getRollExpression(rollString), trials, seed);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void assertSameCounts(RollHistogram expected, RollHistogram hist) {
+		assertEquals(expected.getTrials(), hist.getTrials());
+		assertEquals(expected.getMinimum(), hist.getMinimum());
+		assertEquals(expected.getMaximum(), hist.getMaximum());
+		for (long t = expected.getMinimum(); t <= expected.getMaximum(); t++) {
+			assertEquals(expected.getCount(t), hist.getCount(t));
+		}
+	}
+
+	@Test public void sameForAnyThreads() {
+		for (String rollString : new String[] { "3d6", "4d6kh3+2", "2d2000kl1-d4" }) {
+			RollHistogram expected = simulate(1, rollString, 300000, 5);
+			for (int threads : new int[] { 2, 3, 8 }) {
+				assertSameCounts(expected, simulate(threads, rollString, 300000, 5));
+			}
+		}
+	}
+
+	@Test public void matchesDistribution() {
+		for (String rollString : new String[] { "3d6+4", "4d6kl3", "2d20kh1-1d4" }) {
+			DiceDistribution dist = DiceDistribution.of(DiceProgram.parse(rollString));
+			RollHistogram hist = simulate(4, rollString, 1000000, 11);
+			assertEquals(1000000, hist.getTrials());
+			assertEquals(rollString, dist.getMean(), hist.getMean(), 0.02);
+			assertEquals(rollString, dist.getVariance(), hist.getVariance(), dist.getVariance() * 0.02);
+			for (long t = dist.getMinimum(); t <= dist.getMaximum(); t++) {
+				assertEquals(rollString, dist.probability(t), hist.getCount(t) / 1e6, 0.002);
+			}
+		}
+	}
+
+	@Test public void customTrial() {
+		RollHistogram hist = new DiceSimulator().simulate(EXPLODING_D6, 1, 66, 500000, 3);
+		assertEquals(500000, hist.getTrials());
+		assertEquals(1, hist.getMinimum());
+		assertEquals(0, hist.getCount(6));
+		assertEquals(0, hist.getCount(12));
+		// The mean of an exploding d6 is 4.2.
+		assertEquals(4.2, hist.getMean(), 0.02);
+		assertEquals(1.0 / 6 / 6, hist.getCount(7) / 5e5, 0.002);
+	}
+
+	@Test public void percentiles() {
+		RollHistogram hist = new RollHistogram(10, new long[] { 0, 1, 2, 3, 4, 0 });
+		assertEquals(10, hist.getTrials());
+		assertEquals(11, hist.getMinimum());
+		assertEquals(14, hist.getMaximum());
+		assertEquals(11, hist.getPercentile(1));
+		assertEquals(11, hist.getPercentile(10));
+		assertEquals(12, hist.getPercentile(10.5));
+		assertEquals(13, hist.getPercentile(50));
+		assertEquals(13, hist.getPercentile(60));
+		assertEquals(14, hist.getPercentile(61));
+		assertEquals(14, hist.getPercentile(100));
+		assertEquals(13, hist.getMean(), 0);
+		assertEquals(1.0, hist.getVariance(), 1e-12);
+
+		DataValue dv = hist.toDataValue();
+		assertEquals(DataType.DICTIONARY, dv.dataType());
+		assertEquals(10, dv.asDictionary().get("trials").asLong());
+		assertEquals(13.0, dv.asDictionary().get("mean").asDouble(), 0);
+		assertEquals(14, dv.asDictionary().get("percentiles").asDictionary().get("95").asLong());
+		List<DataValue> counts = dv.asDictionary().get("counts").asList();
+		assertEquals(4, counts.size());
+		assertEquals(4, counts.get(3).asLong());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void percentileRange() {
+		new RollHistogram(0, new long[] { 1 }).getPercentile(0);
+	}
+
+	@Test public void outOfBounds() {
+		try {
+			new DiceSimulator().simulate(EXPLODING_D6, 1, 20, 100000, 3);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("is not between 1 and 20"));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void noTrials() {
+		new DiceSimulator().simulate(RollExpression.getRollExpression("d6"), 0, 1);
+	}
+
+	@Test public void chunkSeeds() {
+		SplittableRandom random = new SplittableRandom(99);
+		for (int chunk = 0; chunk < 10; chunk++) {
+			assertEquals(random.nextLong(), DiceSimulator.chunkSeed(99, chunk));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void tooManyTrials() {
+		new DiceSimulator().simulate(RollExpression.getRollExpression("d6"), DiceSimulator.MAX_TRIALS + 1, 1);
+	}
+}
@@ -0,0 +1,91 @@
+package net.rptools.lib.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.rptools.lib.datavalue.DataType;
+import net.rptools.lib.datavalue.DataValue;
+
+import org.junit.Test;
+
+public class ParallelRollEvaluatorTest {
+
+	private Result evaluate(int threads, String rollString, long seed) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return new ParallelRollEvaluator(pool).evaluate(RollExpression.getRollExpression(rollString), seed);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void sameForAnyThreads() {
+		for (String rollString : new String[] { "1000000d6", "100000d20kh50000+3", "70000d100000", "50000d1000000kl10-5d4" }) {
+			Result expected = evaluate(1, rollString, 42);
+			for (int threads : new int[] { 2, 3, 8 }) {
+				Result result = evaluate(threads, rollString, 42);
+				assertEquals(rollString, expected.getValue(), result.getValue());
+				assertEquals(rollString, expected.getValues(), result.getValues());
+			}
+			assertNotEquals(rollString, expected.getValues(), evaluate(1, rollString, 43).getValues());
+		}
+	}
+
+	@Test public void counts() {
+		Result result = evaluate(4, "1000000d6+2", 7);
+		assertEquals(DataType.LONG, result.getValue().dataType());
+		List<DataValue> values = result.getValues();
+		assertEquals(1, values.size());
+		List<DataValue> counts = values.get(0).asList();
+		assertEquals(6, counts.size());
+
+		long dice = 0;
+		long sum = 2;
+		for (int side = 1; side <= 6; side++) {
+			final long count = counts.get(side - 1).asLong();
+			assertTrue(count > 160000 && count < 173000);
+			dice += count;
+			sum += count * side;
+		}
+		assertEquals(1000000, dice);
+		assertEquals(sum, result.getValue().asLong());
+	}
+
+	@Test public void keep() {
+		Result result = evaluate(2, "100000d6kh99999-100000d6kl99999", 1);
+		// Only a 6 is dropped from the first and only a 1 from the second.
+		long first = 0;
+		long second = 0;
+		List<DataValue> counts = result.getValues().get(0).asList();
+		List<DataValue> counts2 = result.getValues().get(1).asList();
+		for (int side = 1; side <= 6; side++) {
+			first += counts.get(side - 1).asLong() * side;
+			second += counts2.get(side - 1).asLong() * side;
+		}
+		assertEquals((first - 1) - (second - 6), result.getValue().asLong());
+
+		result = evaluate(2, "30000d1000000kh1", 1);
+		assertTrue(result.getValue().asLong() > 990000);
+		assertEquals(result.getValue(), result.getValues().get(0));
+	}
+
+	@Test public void bounds() {
+		for (String rollString : new String[] { "20000d20000", "3d6", "40000d3kl5", "-d20" }) {
+			DiceProgram program = DiceProgram.parse(rollString);
+			for (long seed = 0; seed < 5; seed++) {
+				final long total = evaluate(2, rollString, seed).getValue().asLong();
+				assertTrue(rollString, total >= program.getMinimum() && total <= program.getMaximum());
+			}
+		}
+	}
+
+	@Test public void constant() {
+		Result result = new ParallelRollEvaluator().evaluate(RollExpression.getDetailedRollExpression("12"));
+		assertEquals(12, result.getValue().asLong());
+		assertEquals(1, result.getValues().size());
+	}
+}
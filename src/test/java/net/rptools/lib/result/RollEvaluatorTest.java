@@ -0,0 +1,105 @@
+package net.rptools.lib.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.rptools.lib.datavalue.DataType;
+import net.rptools.lib.datavalue.DataValue;
+import net.rptools.lib.datavalue.DataValueFactory;
+
+import org.junit.Test;
+
+public class RollEvaluatorTest {
+
+	/**
+	 * Returns a generator that rolls the specified values in turn.
+	 */
+	private RandomGenerator rolls(final int... vals) {
+		return new RandomGenerator() {
+			private int next;
+
+			@Override
+			public int nextInt(int bound) {
+				final int val = vals[next++ % vals.length] - 1;
+				assertTrue(val < bound);
+				return val;
+			}
+		};
+	}
+
+	@Test public void total() {
+		RollEvaluator evaluator = new RollEvaluator(rolls(5, 3, 1, 6));
+		Result result = evaluator.evaluate(RollExpression.getRollExpression("4d6kh3+2"));
+		assertEquals(DataType.LONG, result.getValue().dataType());
+		assertEquals(16, result.getValue().asLong());
+		assertEquals(result.getValue(), result.getDetailedResult());
+		assertEquals(Arrays.asList(result.getValue()), result.getValues());
+
+		assertEquals(5 + 3 + 1 + 6 - 5 - 3, new RollEvaluator(rolls(5, 3, 1, 6)).total(DiceProgram.parse("4d6 - 2d8")));
+		assertEquals(3, new RollEvaluator(rolls(5, 3, 1, 6)).total(DiceProgram.parse("3")));
+	}
+
+	@Test public void verbose() {
+		Result result = new RollEvaluator(rolls(5, 3, 1, 6)).evaluate(RollExpression.getDetailedSummedRollExpression("4d6kh3+2"));
+		assertEquals(16, result.getValue().asLong());
+		assertEquals("4d6kh3[5, 3, (1), 6]+2 = 16", result.getDetailedResult().asString());
+		assertEquals(DataValueFactory.longListValue(new long[] { 5, 3, 1, 6 }).asList(), result.getValues());
+		assertTrue(result.hasRollExpression());
+
+		result = new RollEvaluator(rolls(3, 5, 5, 5, 2)).evaluate(RollExpression.getDetailedRollExpression("4d6kh2-1d4"));
+		assertEquals(DataValueFactory.longListValue(new long[] { 5, 5, 2 }), result.getValue());
+		assertEquals("4d6kh2[(3), 5, 5, (5)]-1d4[2] = 8", result.getDetailedResult().asString());
+
+		result = new RollEvaluator(rolls(3, 5, 1, 5)).evaluate(RollExpression.getDetailedSummedRollExpression("4d6kl2"));
+		assertEquals("4d6kl2[3, (5), 1, (5)] = 4", result.getDetailedResult().asString());
+	}
+
+	@Test public void verboseMatchesTotal() {
+		// Rolling with the same seed must give the same total whether or not the
+		// individual dice are kept, for both ways of finding the kept dice.
+		for (String rollStr : new String[] { "10d6kh3+1", "20d4kl5-3d8", "7d5000kh2", "9d100000kl4+2d3", "3d6" }) {
+			final DiceProgram program = DiceProgram.parse(rollStr);
+			for (long seed = 0; seed < 200; seed++) {
+				final long total = new RollEvaluator(RandomGenerator.seeded(seed)).total(program);
+				final Result result = new RollEvaluator(RandomGenerator.seeded(seed)).evaluate(
+						RollExpression.getDetailedSummedRollExpression(rollStr));
+				assertEquals(rollStr, total, result.getValue().asLong());
+				assertTrue(total >= program.getMinimum() && total <= program.getMaximum());
+
+				final List<DataValue> values = result.getValues();
+				long rolled = 0;
+				for (int g = 0; g < program.getGroupCount(); g++) {
+					rolled += program.getDiceCount(g);
+				}
+				assertEquals(rolled, values.size());
+			}
+		}
+	}
+
+	@Test public void keep() {
+		int[] rolls = { 4, 2, 4, 6, 1, 4 };
+		assertEquals(Arrays.toString(new boolean[] { true, false, true, true, false, false }),
+				Arrays.toString(RollEvaluator.keep(rolls, 6, DiceProgram.Keep.HIGHEST, 3)));
+		assertEquals(Arrays.toString(new boolean[] { true, true, false, false, true, false }),
+				Arrays.toString(RollEvaluator.keep(rolls, 6, DiceProgram.Keep.LOWEST, 3)));
+		assertEquals(14, RollEvaluator.keptSumOfRolls(rolls.clone(), DiceProgram.Keep.HIGHEST, 3));
+		assertEquals(7, RollEvaluator.keptSumOfRolls(rolls.clone(), DiceProgram.Keep.LOWEST, 3));
+		assertEquals(14, RollEvaluator.keptSumOfCounts(new int[] { 0, 1, 1, 0, 3, 0, 1 }, DiceProgram.Keep.HIGHEST, 3));
+		assertEquals(7, RollEvaluator.keptSumOfCounts(new int[] { 0, 1, 1, 0, 3, 0, 1 }, DiceProgram.Keep.LOWEST, 3));
+	}
+
+	@Test public void threadLocal() {
+		RollEvaluator evaluator = new RollEvaluator();
+		final DiceProgram program = DiceProgram.parse("2d6");
+		int[] seen = new int[13];
+		for (int i = 0; i < 2000; i++) {
+			seen[(int) evaluator.total(program)]++;
+		}
+		for (int i = 2; i <= 12; i++) {
+			assertTrue(seen[i] > 0);
+		}
+	}
+}